@@ -0,0 +1,97 @@
+package com.claude.automator.automation;
+
+import lombok.Getter;
+
+/**
+ * Chooses when the next monitoring poll should run, based on how long the
+ * current state has lasted in the past.
+ *
+ * <p>
+ * While a state is far from its expected end the delay is long; as the
+ * expected end approaches the delay is halved on every poll, so the
+ * Working-to-Prompt flip is seen within about {@code minIntervalMillis} of
+ * happening. The expected end is a low percentile of the recorded dwell times
+ * that the current state has not yet exceeded.
+ * </p>
+ *
+ * <p>
+ * Until a state has {@value #MIN_SAMPLES} recorded dwell times the default
+ * interval is used. If the state has already lasted longer than any recorded
+ * dwell, the delay grows again with the overrun, so a long Working phase does
+ * not keep the monitor polling at the minimum interval. All delays are clamped
+ * to {@code [minIntervalMillis, maxIntervalMillis]}.
+ * </p>
+ */
+public class AdaptivePollingScheduler {
+
+    static final int MIN_SAMPLES = 3;
+
+    // Percentile of the remaining dwell times used as the expected end
+    private static final double EXPECTED_END_PERCENTILE = 0.1;
+
+    @Getter
+    private final StateDwellTracker dwellTracker;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long defaultIntervalMillis;
+
+    private long nextPollAtMillis = Long.MIN_VALUE;
+
+    public AdaptivePollingScheduler(StateDwellTracker dwellTracker, long minIntervalMillis,
+                                    long maxIntervalMillis, long defaultIntervalMillis) {
+        if (minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException(
+                    "Invalid polling bounds: min=" + minIntervalMillis + " max=" + maxIntervalMillis);
+        }
+        this.dwellTracker = dwellTracker;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.defaultIntervalMillis = defaultIntervalMillis;
+    }
+
+    /**
+     * Whether a poll should run at the given time.
+     */
+    public synchronized boolean isDue(long nowMillis) {
+        return nowMillis >= nextPollAtMillis;
+    }
+
+    /**
+     * Records the state observed by a completed poll and schedules the next one.
+     *
+     * @return the delay until the next poll in milliseconds
+     */
+    public synchronized long recordPoll(String observedState, long nowMillis) {
+        dwellTracker.observe(observedState, nowMillis);
+        long delay = nextDelayMillis(nowMillis);
+        nextPollAtMillis = nowMillis + delay;
+        return delay;
+    }
+
+    synchronized long nextDelayMillis(long nowMillis) {
+        String state = dwellTracker.getCurrentState();
+        long[] samples = state != null ? dwellTracker.getDwellSamples(state) : new long[0];
+        if (samples.length < MIN_SAMPLES) {
+            return clamp(defaultIntervalMillis);
+        }
+
+        long elapsed = dwellTracker.elapsedMillis(nowMillis);
+        int firstAhead = 0;
+        while (firstAhead < samples.length && samples[firstAhead] <= elapsed) {
+            firstAhead++;
+        }
+
+        if (firstAhead == samples.length) {
+            // Longer than every recorded dwell - back off with the overrun
+            return clamp((elapsed - samples[samples.length - 1]) / 2);
+        }
+
+        int remaining = samples.length - firstAhead;
+        long expectedEnd = samples[firstAhead + (int) (remaining * EXPECTED_END_PERCENTILE)];
+        return clamp((expectedEnd - elapsed) / 2);
+    }
+
+    private long clamp(long delayMillis) {
+        return Math.max(minIntervalMillis, Math.min(maxIntervalMillis, delayMillis));
+    }
+}
@@ -0,0 +1,61 @@
+package com.claude.automator.automation;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes use of Brobot's shared singletons across threads.
+ *
+ * <p>
+ * Brobot's {@code Action}, {@code StateMemory} and the ActionHistory lists of
+ * the patterns are application-wide and not thread-safe. Every thread that
+ * finds, clicks or types through Brobot, changes the active states, or trims
+ * the histories does so while holding this lock: the monitoring tick, the
+ * session threads of {@link MonitoringSessionManager} and the history trimming
+ * of {@link ContinuousModeMaintenance}. Matching a shared frame through
+ * {@code StateImageMatcher} touches none of them and needs no lock, which is
+ * why several sessions search that way and only take the lock for input.
+ * </p>
+ *
+ * <p>
+ * The lock is reentrant, so a locked section may call code that locks again.
+ * </p>
+ */
+@Component
+public class BrobotLock {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Runs the action while holding the lock and returns its result.
+     */
+    public <T> T call(Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the lock.
+     */
+    public void run(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the current thread holds the lock.
+     */
+    public boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+}
@@ -2,6 +2,7 @@ package com.claude.automator.automation;
 
 import io.github.jspinak.brobot.navigation.monitoring.StateAwareScheduler;
 import io.github.jspinak.brobot.navigation.monitoring.StateAwareScheduler.StateCheckConfiguration;
+import io.github.jspinak.brobot.navigation.service.StateService;
 import io.github.jspinak.brobot.navigation.transition.StateNavigator;
 import io.github.jspinak.brobot.statemanagement.StateMemory;
 import io.github.jspinak.brobot.action.Action;
@@ -10,17 +11,25 @@ import io.github.jspinak.brobot.action.ActionType;
 import io.github.jspinak.brobot.action.basic.find.PatternFindOptions;
 import io.github.jspinak.brobot.action.basic.vanish.VanishOptions;
 import io.github.jspinak.brobot.action.ConditionalActionChain;
-import io.github.jspinak.brobot.action.ObjectCollection;
 import com.claude.automator.states.WorkingState;
 import com.claude.automator.states.PromptState;
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
 import com.claude.automator.diagnostics.BrobotScreenCaptureDiagnostic;
+import com.claude.automator.diagnostics.TickMetrics;
+import com.claude.automator.diagnostics.TickMetrics.Phase;
+import com.claude.automator.matching.StateImageMatcher;
 import io.github.jspinak.brobot.tools.diagnostics.PatternMatchingDiagnostics;
 import io.github.jspinak.brobot.util.image.debug.CaptureDebugger;
 import io.github.jspinak.brobot.model.element.Location;
 import io.github.jspinak.brobot.model.element.Positions;
 import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.match.Match;
 import io.github.jspinak.brobot.lifecycle.ApplicationLifecycleService;
+import io.github.jspinak.brobot.model.state.State;
+import io.github.jspinak.brobot.model.state.StateImage;
 import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -30,10 +39,14 @@ import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Monitors Claude AI interface states and manages transitions.
@@ -46,6 +59,13 @@ import java.util.concurrent.TimeUnit;
  * <li>ConditionalActionChain for elegant UI interactions</li>
  * <li>Configuration-driven behavior via application.properties</li>
  * <li>Clean separation of monitoring logic from state definitions</li>
+ * <li>Frame-change gating that skips finds while the monitored regions are idle</li>
+ * <li>Optional adaptive polling driven by observed state dwell times</li>
+ * <li>One shared screen capture per tick via {@link FrameBroker}</li>
+ * <li>Optional streaming vanish detection for the Working icon</li>
+ * <li>Per-phase tick latency histograms via {@link TickMetrics}</li>
+ * <li>Predicted pattern order for the animated ClaudeIcon via {@link StateImageMatcher}</li>
+ * <li>Headless runs on a replayed recording, with input recorded by {@link ReplayInput}</li>
  * </ul>
  * 
  * @see WorkingState
@@ -63,6 +83,14 @@ public class ClaudeMonitoringAutomation {
     private final Action action;
     private final WorkingState workingState;
     private final PromptState promptState;
+    private final FrameBroker frameBroker;
+    private final TickMetrics tickMetrics;
+    private final FindResultCache findResultCache;
+    private final ContinuousModeMaintenance continuousMaintenance;
+    private final StateImageMatcher stateImageMatcher;
+    private final BrobotLock brobotLock;
+    private final StateService stateService;
+    private final ReplayInput replayInput;
     
     @Autowired
     private ApplicationLifecycleService lifecycleService;
@@ -79,6 +107,13 @@ public class ClaudeMonitoringAutomation {
     @Autowired(required = false)
     private PatternMatchingDiagnostics patternDiagnostics;
 
+    private FrameChangeDetector frameChangeDetector;
+    private AdaptivePollingScheduler adaptivePolling;
+    private final AtomicInteger adaptivePollCount = new AtomicInteger();
+    private StreamingVanishDetector streamingVanishDetector;
+    // The screen is a recording, see FrameBroker#isReplaying()
+    private boolean replaying;
+
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private ScheduledFuture<?> scheduledTask;
 
@@ -102,6 +137,49 @@ public class ClaudeMonitoringAutomation {
     @Value("${claude.automator.monitoring.debug-capture:false}")
     private boolean debugCaptureEnabled;
 
+    @Value("${claude.automator.monitoring.change-detection.enabled:true}")
+    private boolean changeDetectionEnabled;
+
+    @Value("${claude.automator.monitoring.change-detection.tile-size:32}")
+    private int changeDetectionTileSize;
+
+    @Value("${claude.automator.monitoring.change-detection.max-skipped-ticks:15}")
+    private int changeDetectionMaxSkippedTicks;
+
+    @Value("${claude.automator.monitoring.adaptive.enabled:false}")
+    private boolean adaptivePollingEnabled;
+
+    @Value("${claude.automator.monitoring.adaptive.min-interval-ms:250}")
+    private long adaptiveMinIntervalMs;
+
+    @Value("${claude.automator.monitoring.adaptive.max-interval-ms:5000}")
+    private long adaptiveMaxIntervalMs;
+
+    @Value("${claude.automator.monitoring.adaptive.history-size:20}")
+    private int adaptiveHistorySize;
+
+    // How the Working icon is checked: "chain" (one find per tick) or "streaming"
+    @Value("${claude.automator.monitoring.vanish-mode:chain}")
+    private String vanishMode;
+
+    @Value("${claude.automator.monitoring.streaming.fps:10}")
+    private int streamingFps;
+
+    @Value("${claude.automator.monitoring.streaming.required-misses:3}")
+    private int streamingRequiredMisses;
+
+    @Value("${claude.automator.matching.predictive.enabled:false}")
+    private boolean predictiveMatching;
+
+    // Used when ClaudePrompt has a matching backend override
+    @Value("${brobot.action.similarity:0.65}")
+    private double promptSimilarity;
+
+    @PostConstruct
+    void initChangeDetection() {
+        frameChangeDetector = new FrameChangeDetector(changeDetectionTileSize, changeDetectionMaxSkippedTicks);
+    }
+
     public void startMonitoring() {
         // Log the search region configuration for debugging
         log.info("WorkingState ClaudeIcon search region config: {}",
@@ -120,31 +198,95 @@ public class ClaudeMonitoringAutomation {
 
         log.info("Starting monitoring with max iterations: {}", maxIterations);
 
+        // Template preprocessing (e.g. pyramid levels) happens once, not on the first find
+        stateImageMatcher.prepare(promptState.getClaudePrompt(), workingState.getClaudeIcon());
+
+        // In adaptive mode a plain task ticks at the minimum interval and
+        // pollWhenDue() decides which ticks run a find; iterations are counted
+        // per poll there, so the state check itself is not limited
+        if (adaptivePollingEnabled) {
+            adaptivePolling = new AdaptivePollingScheduler(
+                    new StateDwellTracker(adaptiveHistorySize),
+                    adaptiveMinIntervalMs,
+                    adaptiveMaxIntervalMs,
+                    TimeUnit.SECONDS.toMillis(checkInterval));
+            log.info("Adaptive polling enabled: {}-{} ms", adaptiveMinIntervalMs, adaptiveMaxIntervalMs);
+        }
+
+        if ("streaming".equalsIgnoreCase(vanishMode)) {
+            // The stream only reports the vanish; the state change happens in
+            // an extra tick on the monitoring thread
+            streamingVanishDetector = new StreamingVanishDetector(
+                    this::isClaudeIconVisible,
+                    this::wakeMonitoring,
+                    streamingRequiredMisses,
+                    streamingFps);
+            log.info("Streaming vanish detection enabled: {} fps, {} consecutive misses",
+                    streamingFps, streamingRequiredMisses);
+        }
+
         // Configure state checking - ensures Prompt and Working states exist
         StateCheckConfiguration stateConfig = new StateCheckConfiguration.Builder()
                 .withRequiredStates(requiredStates)
                 .withRebuildOnMismatch(true)
                 .withSkipIfStatesMissing(false)
-                .withMaxIterations(maxIterations)
+                .withMaxIterations(adaptivePollingEnabled || isContinuous() ? -1 : maxIterations)
                 .build();
 
-        // Schedule monitoring with automatic state verification and iteration limit
-        scheduledTask = stateAwareScheduler.scheduleWithStateCheck(
-                scheduler,
-                this::monitorClaudeStates,
-                stateConfig,
-                initialDelay,
-                checkInterval,
-                TimeUnit.SECONDS);
+        // Schedule monitoring with automatic state verification and iteration limit.
+        // The state check runs a full find of the required states, so it keeps
+        // the check interval; in adaptive mode only the monitoring tick speeds up.
+        // StateAwareScheduler searches the live screen, so a replay checks the
+        // required states in the replayed frame at the start of each tick instead
+        replaying = frameBroker.isReplaying();
+        if (replaying) {
+            log.info("Replaying a recording: states are checked in the replayed frames, input is recorded");
+            scheduledTask = scheduler.scheduleWithFixedDelay(
+                    adaptivePollingEnabled ? () -> { } : this::monitorClaudeStates,
+                    TimeUnit.SECONDS.toMillis(initialDelay),
+                    TimeUnit.SECONDS.toMillis(checkInterval),
+                    TimeUnit.MILLISECONDS);
+        } else {
+            scheduledTask = stateAwareScheduler.scheduleWithStateCheck(
+                    scheduler,
+                    adaptivePollingEnabled ? () -> { } : this::monitorClaudeStates,
+                    stateConfig,
+                    TimeUnit.SECONDS.toMillis(initialDelay),
+                    TimeUnit.SECONDS.toMillis(checkInterval),
+                    TimeUnit.MILLISECONDS);
+        }
+        if (adaptivePollingEnabled) {
+            // Same single thread as the state check, so the two never overlap
+            scheduler.scheduleWithFixedDelay(this::pollWhenDue, TimeUnit.SECONDS.toMillis(initialDelay),
+                    adaptiveMinIntervalMs, TimeUnit.MILLISECONDS);
+        }
         
         // Capture diagnostic screenshot after scheduling is done
         if (screenCaptureDiagnostic != null) {
             log.info("Capturing diagnostic screenshot after scheduling...");
             scheduler.schedule(() -> {
-                screenCaptureDiagnostic.captureDiagnosticScreenshot("after_scheduling");
+                if (replaying) {
+                    // The desktop is not what the finds search
+                    try (CapturedFrame frame = frameBroker.currentFrame()) {
+                        screenCaptureDiagnostic.saveFrame(frame, "after_scheduling");
+                    }
+                } else {
+                    screenCaptureDiagnostic.captureDiagnosticScreenshot("after_scheduling");
+                }
             }, initialDelay + 1, TimeUnit.SECONDS); // Capture 1 second after initial delay
         }
 
+        // Continuous mode runs until the application is stopped
+        if (isContinuous()) {
+            log.info("Continuous mode: monitoring runs until shutdown, max-iterations is ignored");
+            return;
+        }
+
+        // Adaptive polls have no fixed duration, pollWhenDue() stops after max iterations
+        if (adaptivePollingEnabled) {
+            return;
+        }
+
         // Schedule a separate task to stop monitoring after max iterations time
         // This ensures stopMonitoring is called even if the scheduler doesn't complete
         // normally
@@ -166,10 +308,68 @@ public class ClaudeMonitoringAutomation {
      * <li>If Prompt state is active: navigate to Working (triggers transition)</li>
      * <li>If neither state is active: let state verification handle it</li>
      * </ol>
+     *
+     * <p>
+     * Before any find runs, the search regions of ClaudePrompt and ClaudeIcon are
+     * compared with the frame the last result was computed from. If nothing changed
+     * and the active states are the same, the tick is skipped.
+     * </p>
+     *
+     * <p>
+     * The screen is captured at most once per tick: change detection, the finds
+     * below and the Prompt-to-Working transition all use the frame from the
+     * {@link FrameBroker}.
+     * </p>
+     *
+     * <p>
+     * Each tick is timed per phase (capture, region resolution, change
+     * detection, match, state update, logging). Ticks longer than
+     * {@code check-interval} are counted as overruns.
+     * </p>
+     *
+     * <p>
+     * The tick holds the {@link BrobotLock}, since window sessions may use
+     * Brobot's Action and StateMemory at the same time.
+     * </p>
      */
     private void monitorClaudeStates() {
+        tickMetrics.startTick();
+        try {
+            brobotLock.run(this::runMonitoringTick);
+        } finally {
+            tickMetrics.finishTick(TimeUnit.SECONDS.toNanos(checkInterval));
+        }
+        continuousMaintenance.runIfDue();
+    }
+
+    private void runMonitoringTick() {
+        frameBroker.beginTick();
+        if (replaying) {
+            checkRequiredStatesInFrame();
+        }
         var activeStates = stateMemory.getActiveStateNames();
 
+        if (streamingVanishDetector != null) {
+            // The vanish stream owns the Working icon check until the icon is gone
+            switch (streamingVanishDetector.onMonitoringTick(activeStates.contains("Working"))) {
+                case VANISHED -> {
+                    log.info("❌ ClaudeIcon vanished from the stream, transitioning back to Prompt state");
+                    handleIconDisappearance();
+                    return;
+                }
+                case STREAMING -> {
+                    return;
+                }
+                case IDLE -> {
+                }
+            }
+        }
+
+        if (!monitoredRegionsChanged(Set.copyOf(activeStates))) {
+            log.debug("Monitored regions unchanged since last result, skipping find");
+            return;
+        }
+
         if (activeStates.contains("Working")) {
             // Working state is active - verify icon still visible
             checkWorkingIconWithConditionalChain();
@@ -178,12 +378,136 @@ public class ClaudeMonitoringAutomation {
             navigateToWorkingState();
         }
         // If neither state is active, StateAwareScheduler will handle rebuilding
+
+        // The result of this tick now reflects the observed frame
+        frameChangeDetector.confirm();
+    }
+
+    /**
+     * The state check of StateAwareScheduler for a replay, which would search
+     * the live screen: required states that are not active are searched in
+     * the replayed frame of this tick and activated if found.
+     */
+    private void checkRequiredStatesInFrame() {
+        var activeStates = stateMemory.getActiveStateNames();
+        List<String> missing = requiredStates.stream().filter(name -> !activeStates.contains(name)).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        tickMetrics.enter(Phase.CAPTURE);
+        try (CapturedFrame frame = frameBroker.currentFrame()) {
+            if (frame == null) {
+                return;
+            }
+            tickMetrics.enter(Phase.MATCH);
+            for (String name : missing) {
+                Optional<State> state = stateService.getState(name);
+                if (state.isEmpty() || state.get().getStateImages().isEmpty()) {
+                    continue;
+                }
+                StateImage[] images = state.get().getStateImages().toArray(new StateImage[0]);
+                if (action.find(FrameBroker.collectionFor(frame, images)).isSuccess()) {
+                    stateMemory.addActiveState(state.get().getId());
+                    log.info("Required state {} found in {}, activated", name, frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scheduler tick used in adaptive mode: runs a poll only when the adaptive
+     * scheduler says one is due, then records the resulting state so the next
+     * delay reflects how long that state usually lasts.
+     */
+    private void pollWhenDue() {
+        if (!adaptivePolling.isDue(monotonicMillis())) {
+            return;
+        }
+
+        monitorClaudeStates();
+
+        var activeStates = stateMemory.getActiveStateNames();
+        String observedState = activeStates.contains("Working") ? "Working"
+                : activeStates.contains("Prompt") ? "Prompt" : null;
+        long delay = adaptivePolling.recordPoll(observedState, monotonicMillis());
+        log.debug("State {} active for {} ms, next poll in {} ms", observedState,
+                adaptivePolling.getDwellTracker().elapsedMillis(monotonicMillis()), delay);
+
+        if (!isContinuous() && maxIterations > 0 && adaptivePollCount.incrementAndGet() >= maxIterations) {
+            log.info("Reached {} adaptive polls, stopping", maxIterations);
+            stopMonitoring();
+        }
+    }
+
+    private boolean isContinuous() {
+        return continuousMaintenance.isContinuous();
+    }
+
+    private static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Checks whether the monitored regions of this tick's frame changed since
+     * the last confirmed result.
+     * 
+     * <p>
+     * Returns true whenever change detection cannot be applied (disabled, mock
+     * mode, or no frame available) so that the find always runs in those cases.
+     * </p>
+     */
+    private boolean monitoredRegionsChanged(Set<String> activeStates) {
+        if (!changeDetectionEnabled) {
+            return true;
+        }
+        tickMetrics.enter(Phase.REGION_RESOLUTION);
+        Rectangle area = monitoredArea();
+        Rectangle captured = captureArea(activeStates.contains("Working"));
+        tickMetrics.enter(Phase.CAPTURE);
+        try (CapturedFrame frame = frameBroker.currentFrame(captured)) {
+            if (frame == null) {
+                return true;
+            }
+            tickMetrics.enter(Phase.CHANGE_DETECTION);
+            return frameChangeDetector.hasChanged(frame.getImage(), frame.toImageArea(area), activeStates);
+        }
+    }
+
+    /**
+     * Returns the bounding box of all ClaudePrompt and ClaudeIcon search regions,
+     * or null if no search region is known yet (the whole screen is monitored).
+     */
+    private Rectangle monitoredArea() {
+        return FrameBroker.searchArea(promptState.getClaudePrompt(), workingState.getClaudeIcon());
+    }
+
+    /**
+     * The area to capture for this tick: the monitored area if the find the
+     * tick runs goes through StateImageMatcher, otherwise null, since a
+     * Brobot find needs a full-screen frame. A Working tick checks the icon,
+     * a Prompt tick finds the prompt.
+     */
+    private Rectangle captureArea(boolean workingActive) {
+        boolean regionFinds = workingActive
+                ? iconThroughMatcher()
+                : stateImageMatcher.hasBackendOverride(promptState.getClaudePrompt());
+        return regionFinds ? monitoredArea() : null;
+    }
+
+    /**
+     * Whether ClaudeIcon is searched through StateImageMatcher: with
+     * predictive matching, or with a backend override for ClaudeIcon, which
+     * only the matcher applies.
+     */
+    private boolean iconThroughMatcher() {
+        return predictiveMatching || stateImageMatcher.hasBackendOverride(workingState.getClaudeIcon());
     }
 
     /**
      * Navigates from Prompt to Working state using modern pattern.
      */
     private void navigateToWorkingState() {
+        tickMetrics.enter(Phase.LOGGING);
         log.info("=== NAVIGATE TO WORKING STATE ===");
         log.info("Prompt state active, attempting to navigate to Working state");
         log.info("About to search for ClaudePrompt (instance: {})", 
@@ -200,8 +524,18 @@ public class ClaudeMonitoringAutomation {
 
         // Use action.find for verification before navigation
         // State activation happens automatically in the Action framework
-        ActionResult promptFound = action.find(promptState.getClaudePrompt());
+        tickMetrics.enter(Phase.CAPTURE);
+        ActionResult promptFound;
+        try (CapturedFrame frame = frameBroker.currentFrame(captureArea(false))) {
+            tickMetrics.enter(Phase.MATCH);
+            promptFound = frame != null && stateImageMatcher.hasBackendOverride(promptState.getClaudePrompt())
+                    ? stateImageMatcher.find(promptState.getClaudePrompt(), frame, promptSimilarity)
+                    : action.find(FrameBroker.collectionFor(frame, promptState.getClaudePrompt()));
+            // PromptToWorkingTransition searches the same frame, let it reuse this match
+            findResultCache.put(promptState.getClaudePrompt(), frame, promptFound);
+        }
 
+        tickMetrics.enter(Phase.LOGGING);
         if (promptFound.isSuccess()) {
             log.info("✅ ClaudePrompt FOUND at {} - {} matches total",
                     promptFound.getMatchList().get(0).getRegion(),
@@ -217,8 +551,14 @@ public class ClaudeMonitoringAutomation {
             
             // Debug: Check if transition is available
             log.info("Attempting to navigate from current state to Working state");
+            tickMetrics.enter(Phase.STATE_UPDATE);
             boolean success = stateNavigator.openState("Working");
+            if (success) {
+                // Misses of earlier Working periods are expected vanishes, not a DPI change
+                stateImageMatcher.resetScaleMisses(workingState.getClaudeIcon());
+            }
             
+            tickMetrics.enter(Phase.LOGGING);
             log.info("Navigation to Working state: {}", success ? "SUCCESS" : "FAILED");
             log.info("Active states after navigation: {}", stateMemory.getActiveStates());
         } else {
@@ -233,8 +573,16 @@ public class ClaudeMonitoringAutomation {
      * This method demonstrates the modern conditional chain pattern for
      * cleaner error handling and state management.
      * </p>
+     *
+     * <p>
+     * With {@code claude.automator.matching.predictive.enabled} (off by
+     * default) or a backend override for ClaudeIcon, the icon is searched
+     * through {@link StateImageMatcher} instead, which skips the chain's
+     * search duration and ActionHistory.
+     * </p>
      */
     private void checkWorkingIconWithConditionalChain() {
+        tickMetrics.enter(Phase.LOGGING);
         log.info("=== CHECK WORKING ICON ===");
         log.info("About to search for ClaudeIcon (instance: {})", 
                 System.identityHashCode(workingState.getClaudeIcon()));
@@ -258,27 +606,95 @@ public class ClaudeMonitoringAutomation {
                     pattern.getSearchRegions().getAllRegions() : "null");
         }
         
-        // Build find options with configuration from properties
-        PatternFindOptions findOptions = new PatternFindOptions.Builder()
-                .setSearchDuration(iconTimeout)
-                .setSimilarity(0.85) // Configured for Claude icon detection
-                .build();
+        // Searching a shared frame again cannot change the result, so the
+        // search duration only applies when finds capture the live screen
+        tickMetrics.enter(Phase.CAPTURE);
+        try (CapturedFrame frame = frameBroker.currentFrame(captureArea(true))) {
+            tickMetrics.enter(Phase.MATCH);
+
+            if (frame != null && iconThroughMatcher()) {
+                checkWorkingIconWithPredictor(frame);
+                return;
+            }
 
-        // Use ConditionalActionChain for elegant conditional execution
-        ConditionalActionChain
-                .find(findOptions)
-                .ifFoundDo(result -> {
-                    log.info("✅ ClaudeIcon FOUND with {} matches at {}",
-                            result.getMatchList().size(),
-                            result.getMatchList().get(0).getRegion());
-                })
-                .ifNotFoundDo(result -> {
-                    log.info("❌ ClaudeIcon NOT FOUND, transitioning back to Prompt state");
-                    handleIconDisappearance();
-                })
-                .perform(action, new ObjectCollection.Builder()
-                        .withImages(workingState.getClaudeIcon())
-                        .build());
+            // Build find options with configuration from properties
+            PatternFindOptions findOptions = new PatternFindOptions.Builder()
+                    .setSearchDuration(frame == null ? iconTimeout : 0)
+                    .setSimilarity(0.85) // Configured for Claude icon detection
+                    .build();
+
+            // Use ConditionalActionChain for elegant conditional execution
+            ConditionalActionChain
+                    .find(findOptions)
+                    .ifFoundDo(result -> {
+                        tickMetrics.enter(Phase.LOGGING);
+                        log.info("✅ ClaudeIcon FOUND with {} matches at {}",
+                                result.getMatchList().size(),
+                                result.getMatchList().get(0).getRegion());
+                    })
+                    .ifNotFoundDo(result -> {
+                        tickMetrics.enter(Phase.LOGGING);
+                        log.info("❌ ClaudeIcon NOT FOUND, transitioning back to Prompt state");
+                        handleIconDisappearance();
+                    })
+                    .perform(action, FrameBroker.collectionFor(frame, workingState.getClaudeIcon()));
+        }
+    }
+
+    /**
+     * Checks ClaudeIcon in the shared frame, trying the animation frame and
+     * scale variant most likely to match first.
+     */
+    private void checkWorkingIconWithPredictor(CapturedFrame frame) {
+        Optional<Match> icon = stateImageMatcher.findFirst(workingState.getClaudeIcon(), frame, 0.85);
+        tickMetrics.enter(Phase.LOGGING);
+        if (icon.isPresent()) {
+            log.info("✅ ClaudeIcon FOUND at {}", icon.get().getRegion());
+        } else {
+            log.info("❌ ClaudeIcon NOT FOUND, transitioning back to Prompt state");
+            handleIconDisappearance();
+        }
+    }
+
+    /**
+     * Evaluates ClaudeIcon on a fresh frame for the streaming vanish detector.
+     * Each evaluation is a single search of one frame; the detector supplies
+     * the repetition and the hysteresis.
+     *
+     * <p>
+     * This runs on the stream thread: the frame is its own, so the frame of
+     * the monitoring tick stays untouched, and a Brobot find holds the
+     * {@link BrobotLock}.
+     * </p>
+     */
+    private boolean isClaudeIconVisible() {
+        // The stream only searches the icon, through Brobot unless the matcher handles it
+        boolean matcherFind = iconThroughMatcher();
+        try (CapturedFrame frame = frameBroker.captureFrame(matcherFind ? monitoredArea() : null)) {
+            if (frame != null && matcherFind) {
+                return stateImageMatcher.findFirst(workingState.getClaudeIcon(), frame, 0.85).isPresent();
+            }
+            PatternFindOptions findOptions = new PatternFindOptions.Builder()
+                    .setSimilarity(0.85) // Same threshold as the conditional chain
+                    .build();
+            return brobotLock.call(() -> action.perform(findOptions,
+                    FrameBroker.collectionFor(frame, workingState.getClaudeIcon())).isSuccess());
+        }
+    }
+
+    /**
+     * Runs an extra tick for a vanish reported by the stream, unless
+     * monitoring has been stopped meanwhile.
+     */
+    private void wakeMonitoring() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        try {
+            scheduler.execute(this::monitorClaudeStates);
+        } catch (RejectedExecutionException e) {
+            log.debug("Monitoring stopped, ignoring the ClaudeIcon vanish");
+        }
     }
 
     /**
@@ -290,14 +706,21 @@ public class ClaudeMonitoringAutomation {
      * </p>
      */
     private void handleIconDisappearance() {
-        // Run debug capture if enabled
-        if (debugCaptureEnabled && captureDebugger != null) {
+        tickMetrics.enter(Phase.STATE_UPDATE);
+        // Run debug capture if enabled; it captures the desktop, which a replay does not show
+        if (debugCaptureEnabled && captureDebugger != null && !replaying) {
             runDebugCapture();
         }
+        if (debugCaptureEnabled && screenCaptureDiagnostic != null) {
+            try (CapturedFrame frame = frameBroker.currentFrame()) {
+                screenCaptureDiagnostic.saveFrame(frame, "icon_not_found");
+            }
+        }
 
         // Remove Working state to return to Prompt state
         // This allows the transition cycle to restart
         stateMemory.removeInactiveState("working");
+        stateImageMatcher.resetScaleMisses(promptState.getClaudePrompt());
         log.info("Removed Working state, returning to Prompt state");
     }
 
@@ -357,6 +780,10 @@ public class ClaudeMonitoringAutomation {
             log.error("Failed to move mouse to center during shutdown", e);
         }
 
+        if (streamingVanishDetector != null) {
+            streamingVanishDetector.shutdown();
+        }
+
         log.info("Shutting down scheduler...");
         scheduler.shutdown();
 
@@ -387,6 +814,10 @@ public class ClaudeMonitoringAutomation {
      * </p>
      */
     private void moveMouseToCenter() {
+        if (replaying) {
+            replayInput.record("move", Positions.Name.MIDDLEMIDDLE);
+            return;
+        }
         try {
             // Use idiomatic Brobot pattern for screen center
             // This automatically calculates center based on current screen dimensions
@@ -398,6 +829,7 @@ public class ClaudeMonitoringAutomation {
             // Use the Action.perform convenience method with ActionType.MOVE
             log.debug("Calling action.perform with MOVE and location: {}", centerLocation);
             ActionResult moveResult = action.perform(ActionType.MOVE, centerLocation);
+            findResultCache.invalidateForInput();
             log.debug("action.perform returned, checking result...");
 
             if (moveResult != null) {
@@ -440,6 +872,7 @@ public class ClaudeMonitoringAutomation {
         Location centerLocation = new Location(centerX, centerY);
 
         ActionResult moveResult = action.perform(ActionType.MOVE, centerLocation);
+        findResultCache.invalidateForInput();
 
         if (moveResult.isSuccess()) {
             log.info("Mouse moved to center: {}", centerLocation);
@@ -0,0 +1,279 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.diagnostics.TickMetrics;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.WorkingState;
+import io.github.jspinak.brobot.config.core.FrameworkSettings;
+import io.github.jspinak.brobot.model.action.ActionHistory;
+import io.github.jspinak.brobot.model.action.ActionRecord;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.match.Match;
+import io.github.jspinak.brobot.model.state.StateImage;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps heap and disk usage flat when monitoring runs continuously.
+ *
+ * <p>
+ * With {@code claude.automator.monitoring.continuous=true} monitoring no longer
+ * stops after {@code max-iterations}, so everything that grows per find must be
+ * bounded. The monitors call {@link #runIfDue()} at the end of each tick, and
+ * every {@code maintenance-interval} seconds this component:
+ * </p>
+ * <ul>
+ * <li>trims the ActionHistory of every monitored pattern back to its newest
+ * {@code max-snapshots-per-pattern} snapshots</li>
+ * <li>caps {@code lastMatchesFound} of every monitored StateImage to
+ * {@code max-last-matches}</li>
+ * <li>applies rolling retention to the history directory by age and total
+ * size</li>
+ * <li>logs a memory report per subsystem, also available from the
+ * {@code memoryreport} actuator endpoint</li>
+ * </ul>
+ *
+ * <p>
+ * The histories are trimmed periodically, not capped where Brobot records
+ * them: between two passes they grow by one snapshot per find, so their size
+ * stays below the limit plus the finds of one interval.
+ * </p>
+ *
+ * <p>
+ * Brobot finds of the monitoring tick, the window sessions and the vanish
+ * stream append to the ActionHistory lists from several threads, so the
+ * snapshots are trimmed and counted while holding the {@link BrobotLock} that
+ * all of those finds hold. {@code lastMatchesFound} is only ever replaced
+ * with a new list, never changed in place. In mock mode the ActionHistory
+ * snapshots are the mock data, so they are never trimmed.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ContinuousModeMaintenance {
+
+    // Rough per-object sizes used for the heap estimates in the memory report
+    private static final long ESTIMATED_RECORD_BYTES = 256;
+    private static final long ESTIMATED_MATCH_BYTES = 320;
+
+    private final PromptState promptState;
+    private final WorkingState workingState;
+    private final FrameBroker frameBroker;
+    private final TickMetrics tickMetrics;
+    private final BrobotLock brobotLock;
+
+    @Value("${claude.automator.monitoring.continuous:false}")
+    @Getter
+    private boolean continuous;
+
+    @Value("${claude.automator.continuous.maintenance-interval:60}")
+    private int maintenanceIntervalSeconds;
+
+    @Value("${claude.automator.continuous.max-snapshots-per-pattern:50}")
+    private int maxSnapshotsPerPattern;
+
+    @Value("${claude.automator.continuous.max-last-matches:10}")
+    private int maxLastMatches;
+
+    @Value("${claude.automator.continuous.history-dir:history}")
+    private String historyDir;
+
+    @Value("${claude.automator.continuous.history-max-mb:200}")
+    private long historyMaxMb;
+
+    @Value("${claude.automator.continuous.history-max-age-hours:24}")
+    private long historyMaxAgeHours;
+
+    // StateImages owned by monitoring sessions, registered as sessions are created
+    private final List<StateImage> sessionImages = new CopyOnWriteArrayList<>();
+
+    private HistoryRetention historyRetention;
+    private volatile HistoryRetention.Usage lastHistoryUsage;
+    private long nextRunNanos;
+
+    @PostConstruct
+    void initMaintenance() {
+        historyRetention = new HistoryRetention(Paths.get(historyDir),
+                historyMaxMb * 1024 * 1024, Duration.ofHours(historyMaxAgeHours));
+        nextRunNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(maintenanceIntervalSeconds);
+        if (continuous) {
+            log.info("Continuous mode: maintenance every {} s, {} snapshots per pattern, {} last matches, "
+                    + "history {} MB / {} h", maintenanceIntervalSeconds, maxSnapshotsPerPattern, maxLastMatches,
+                    historyMaxMb, historyMaxAgeHours);
+        }
+    }
+
+    /**
+     * Adds StateImages that are not part of the global states, e.g. those of a
+     * {@link MonitoringSession}, to the maintenance and the memory report.
+     */
+    public void register(StateImage... images) {
+        sessionImages.addAll(List.of(images));
+    }
+
+    /**
+     * Runs a maintenance pass if continuous mode is on and the interval has
+     * passed.
+     */
+    public synchronized void runIfDue() {
+        if (!continuous || System.nanoTime() - nextRunNanos < 0) {
+            return;
+        }
+        nextRunNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(maintenanceIntervalSeconds);
+        runMaintenance();
+    }
+
+    /**
+     * Runs one maintenance pass. Failures are logged so monitoring continues.
+     */
+    public void runMaintenance() {
+        try {
+            int trimmedSnapshots = FrameworkSettings.mock ? 0 : brobotLock.call(this::trimSnapshots);
+            int trimmedMatches = 0;
+            for (StateImage image : monitoredImages()) {
+                trimmedMatches += capLastMatches(image, maxLastMatches);
+            }
+            lastHistoryUsage = historyRetention.enforce(Instant.now());
+
+            if (trimmedSnapshots > 0 || trimmedMatches > 0) {
+                log.debug("Trimmed {} action snapshots and {} last matches", trimmedSnapshots, trimmedMatches);
+            }
+            log.info("Memory report: {}", memoryReport());
+        } catch (RuntimeException e) {
+            log.error("Continuous mode maintenance failed", e);
+        }
+    }
+
+    /**
+     * Estimated memory and disk use per subsystem.
+     */
+    public Map<String, Object> memoryReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+
+        long[] recordCounts = brobotLock.call(this::countSnapshots);
+        long records = recordCounts[0];
+        long recordMatches = recordCounts[1];
+        long lastMatches = 0;
+        for (StateImage image : monitoredImages()) {
+            lastMatches += image.getLastMatchesFound() != null ? image.getLastMatchesFound().size() : 0;
+        }
+        report.put("actionHistory", Map.of(
+                "snapshots", records,
+                "matches", recordMatches,
+                "estimatedKb", (records * ESTIMATED_RECORD_BYTES + recordMatches * ESTIMATED_MATCH_BYTES) / 1024));
+        report.put("lastMatchesFound", Map.of(
+                "matches", lastMatches,
+                "estimatedKb", lastMatches * ESTIMATED_MATCH_BYTES / 1024));
+
+        CapturedFrame frame = frameBroker.peekFrame();
+        report.put("frameBroker", Map.of(
+                "frameKb", frame != null ? (long) frame.getWidth() * frame.getHeight() * 4 / 1024 : 0,
+                "ringKb", frameBroker.getRingBytes() / 1024,
+                "ringMisses", frameBroker.getRingMissCount(),
+                "captures", frameBroker.getCaptureCount(),
+                "duplicates", frameBroker.getDuplicateCount()));
+        report.put("tickMetrics", Map.of("estimatedKb", tickMetrics.footprintBytes() / 1024));
+
+        HistoryRetention.Usage history = lastHistoryUsage != null ? lastHistoryUsage : historyRetention.measure();
+        report.put("historyDir", Map.of(
+                "files", history.files(),
+                "kb", history.bytes() / 1024));
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        report.put("heap", Map.of(
+                "usedMb", heap.getUsed() / (1024 * 1024),
+                "committedMb", heap.getCommitted() / (1024 * 1024)));
+        return report;
+    }
+
+    /**
+     * Trims the ActionHistory of every monitored pattern; the caller holds the
+     * Brobot lock.
+     *
+     * @return the number of snapshots removed
+     */
+    private int trimSnapshots() {
+        int trimmed = 0;
+        for (StateImage image : monitoredImages()) {
+            for (Pattern pattern : image.getPatterns()) {
+                ActionHistory history = pattern.getMatchHistory();
+                if (history != null) {
+                    trimmed += trimOldest(history.getSnapshots(), maxSnapshotsPerPattern);
+                }
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * Counts the snapshots of all monitored patterns and their matches; the
+     * caller holds the Brobot lock.
+     */
+    private long[] countSnapshots() {
+        long records = 0;
+        long recordMatches = 0;
+        for (StateImage image : monitoredImages()) {
+            for (Pattern pattern : image.getPatterns()) {
+                ActionHistory history = pattern.getMatchHistory();
+                if (history != null) {
+                    for (ActionRecord record : history.getSnapshots()) {
+                        records++;
+                        recordMatches += record.getMatchList() != null ? record.getMatchList().size() : 0;
+                    }
+                }
+            }
+        }
+        return new long[]{records, recordMatches};
+    }
+
+    /**
+     * Removes the oldest entries so that at most {@code max} remain.
+     *
+     * @return the number of entries removed
+     */
+    static <T> int trimOldest(List<T> list, int max) {
+        if (list == null || list.size() <= max) {
+            return 0;
+        }
+        int excess = list.size() - max;
+        list.subList(0, excess).clear();
+        return excess;
+    }
+
+    private static int capLastMatches(StateImage image, int max) {
+        List<Match> matches = image.getLastMatchesFound();
+        if (matches == null || matches.size() <= max) {
+            return 0;
+        }
+        int excess = matches.size() - max;
+        // Keep the first matches: ClaudeIcon's search region is derived from the first one
+        image.setLastMatchesFound(new ArrayList<>(matches.subList(0, max)));
+        return excess;
+    }
+
+    private List<StateImage> monitoredImages() {
+        List<StateImage> images = new ArrayList<>();
+        images.add(promptState.getClaudePrompt());
+        images.add(workingState.getClaudeIcon());
+        images.addAll(sessionImages);
+        return images;
+    }
+}
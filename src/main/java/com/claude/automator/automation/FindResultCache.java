@@ -0,0 +1,127 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import io.github.jspinak.brobot.action.ActionResult;
+import io.github.jspinak.brobot.action.ActionType;
+import io.github.jspinak.brobot.action.basic.find.PatternFindOptions;
+import io.github.jspinak.brobot.action.basic.vanish.VanishOptions;
+import io.github.jspinak.brobot.model.state.StateImage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Short-lived cache of successful find results.
+ *
+ * <p>
+ * Results are keyed by StateImage instance and {@link CapturedFrame} sequence,
+ * so a result is only reused for the exact frame it was computed on. This lets
+ * PromptToWorkingTransition reuse the ClaudePrompt match that the monitoring
+ * tick confirmed moments earlier instead of searching the same frame again.
+ * </p>
+ *
+ * <p>
+ * Entries expire after {@code claude.automator.find-cache.ttl-ms}. Input
+ * clears the cache and the current frame of the {@link FrameBroker}, since the
+ * screen changes: the code of this application that clicks, types or moves
+ * the mouse calls {@link #invalidateForInput()} after the action. As a
+ * fallback for other callers, the aspect clears both before every
+ * {@code Action.click}, {@code Action.type} and every {@code Action.perform}
+ * that is not a find, including {@code perform(ActionType.MOVE, ...)}. Like
+ * all Spring aspects it only sees calls made through the Action bean, not
+ * calls Action makes to itself.
+ * </p>
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FindResultCache {
+
+    private final FrameBroker frameBroker;
+
+    @Value("${claude.automator.find-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${claude.automator.find-cache.ttl-ms:2000}")
+    private long ttlMillis;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Stores a successful result computed on the given frame. Failed results
+     * and results without a shared frame are not cached.
+     */
+    public synchronized void put(StateImage image, CapturedFrame frame, ActionResult result) {
+        if (!enabled || frame == null || result == null || !result.isSuccess()) {
+            return;
+        }
+        entries.removeIf(entry -> entry.image == image);
+        entries.add(new Entry(image, frame.getSequence(), result, System.nanoTime()));
+    }
+
+    /**
+     * Returns the cached result for this image on this frame, if still valid.
+     */
+    public synchronized Optional<ActionResult> get(StateImage image, CapturedFrame frame) {
+        if (!enabled || frame == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.storedAtNanos > ttlMillis * 1_000_000L) {
+                it.remove();
+            } else if (entry.image == image && entry.frameSequence == frame.getSequence()) {
+                log.debug("Reusing {} result from {}", image.getName(), frame);
+                return Optional.of(entry.result);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Clears the cache and the current frame of the {@link FrameBroker} after
+     * a click, typing or a mouse move.
+     */
+    public void invalidateForInput() {
+        invalidate();
+        frameBroker.invalidate();
+    }
+
+    @Before("execution(* io.github.jspinak.brobot.action.Action.click(..))"
+            + " || execution(* io.github.jspinak.brobot.action.Action.type(..))")
+    public void invalidateOnInput() {
+        invalidateForInput();
+    }
+
+    @Before("execution(* io.github.jspinak.brobot.action.Action.perform(..))")
+    public void invalidateOnPerform(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        Object config = args.length > 0 ? args[0] : null;
+        boolean find = config instanceof PatternFindOptions
+                || config instanceof VanishOptions
+                || config == ActionType.FIND;
+        if (!find) {
+            invalidateForInput();
+        }
+    }
+
+    private record Entry(StateImage image, long frameSequence, ActionResult result, long storedAtNanos) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.IntPixels;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Detects whether the monitored part of the screen changed since the last
+ * confirmed monitoring result.
+ *
+ * <p>
+ * The monitored area is divided into square tiles and each tile is reduced to
+ * a 64-bit FNV-1a hash of its RGB values. A tick compares the current tile
+ * hashes with the ones recorded when the last find completed; if no tile
+ * changed and the active states are the same, the previous result still
+ * holds and the find can be skipped.
+ * </p>
+ *
+ * <p>
+ * A tick that is skipped {@code maxSkippedTicks} times in a row is forced to
+ * run anyway, so a result can never go stale indefinitely.
+ * </p>
+ *
+ * <p>
+ * Frames with an int raster, which is what the frame ring holds, are hashed
+ * straight from their pixel array; other images are read row by row through
+ * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+ * </p>
+ */
+@Slf4j
+public class FrameChangeDetector {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int tileSize;
+    private final int maxSkippedTicks;
+
+    // Hashes recorded for the last confirmed result
+    private long[] confirmedHashes;
+    private Rectangle confirmedArea;
+    private Object confirmedKey;
+
+    // Hashes of the most recent observation, promoted by confirm()
+    private long[] pendingHashes;
+    private Rectangle pendingArea;
+    private Object pendingKey;
+    private boolean hasPending;
+
+    private int[] rowBuffer = new int[0];
+    private int skippedTicks;
+
+    @Getter
+    private long observedTicks;
+    @Getter
+    private long skippedTotal;
+
+    public FrameChangeDetector(int tileSize, int maxSkippedTicks) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        this.maxSkippedTicks = maxSkippedTicks;
+    }
+
+    /**
+     * Hashes the monitored area of the frame and reports whether it differs
+     * from the last confirmed observation.
+     *
+     * @param frame    the captured screen
+     * @param area     the monitored area in frame coordinates, or null for the
+     *                 whole frame
+     * @param stateKey identifies the state the result belongs to (for example
+     *                 the set of active state names); a different key always
+     *                 counts as a change
+     * @return true if the find should run, false if it can be skipped
+     */
+    public synchronized boolean hasChanged(BufferedImage frame, Rectangle area, Object stateKey) {
+        observedTicks++;
+        Rectangle clipped = clip(frame, area);
+        pendingArea = clipped;
+        pendingKey = stateKey;
+        pendingHashes = clipped.isEmpty() ? new long[0] : hashTiles(frame, clipped, pendingHashes);
+        hasPending = true;
+
+        boolean unchanged = confirmedHashes != null
+                && Objects.equals(confirmedKey, stateKey)
+                && confirmedArea.equals(clipped)
+                && Arrays.equals(confirmedHashes, pendingHashes);
+
+        if (unchanged && skippedTicks < maxSkippedTicks) {
+            skippedTicks++;
+            skippedTotal++;
+            return false;
+        }
+        if (unchanged) {
+            log.debug("Forcing find after {} skipped ticks", skippedTicks);
+        }
+        return true;
+    }
+
+    /**
+     * Records the most recent observation as the one the current result was
+     * computed from. Call this after the find for the tick has completed.
+     */
+    public synchronized void confirm() {
+        if (!hasPending) {
+            return;
+        }
+        // Swap buffers so the next observation reuses the old confirmed array
+        long[] previous = confirmedHashes;
+        confirmedHashes = pendingHashes;
+        confirmedArea = pendingArea;
+        confirmedKey = pendingKey;
+        pendingHashes = previous;
+        hasPending = false;
+        skippedTicks = 0;
+    }
+
+    /**
+     * Forgets the confirmed observation so that the next tick always runs.
+     */
+    public synchronized void reset() {
+        confirmedHashes = null;
+        confirmedArea = null;
+        confirmedKey = null;
+        hasPending = false;
+        skippedTicks = 0;
+    }
+
+    private Rectangle clip(BufferedImage frame, Rectangle area) {
+        Rectangle bounds = new Rectangle(0, 0, frame.getWidth(), frame.getHeight());
+        if (area == null) {
+            return bounds;
+        }
+        Rectangle clipped = bounds.intersection(area);
+        return clipped.isEmpty() ? new Rectangle() : clipped;
+    }
+
+    private long[] hashTiles(BufferedImage frame, Rectangle area, long[] reuse) {
+        int cols = (area.width + tileSize - 1) / tileSize;
+        int rows = (area.height + tileSize - 1) / tileSize;
+        long[] hashes = reuse != null && reuse.length == cols * rows ? reuse : new long[cols * rows];
+        Arrays.fill(hashes, FNV_OFFSET);
+
+        IntPixels direct = IntPixels.of(frame);
+        if (direct != null) {
+            for (int y = 0; y < area.height; y++) {
+                hashRow(hashes, (y / tileSize) * cols, direct.data(), direct.index(area.x, area.y + y), area.width);
+            }
+            return hashes;
+        }
+
+        if (rowBuffer.length < area.width) {
+            rowBuffer = new int[area.width];
+        }
+        for (int y = 0; y < area.height; y++) {
+            frame.getRGB(area.x, area.y + y, area.width, 1, rowBuffer, 0, area.width);
+            hashRow(hashes, (y / tileSize) * cols, rowBuffer, 0, area.width);
+        }
+        return hashes;
+    }
+
+    private void hashRow(long[] hashes, int tileRowOffset, int[] pixels, int offset, int width) {
+        for (int x = 0; x < width; x++) {
+            int index = tileRowOffset + x / tileSize;
+            hashes[index] = (hashes[index] ^ (pixels[offset + x] & 0xFFFFFF)) * FNV_PRIME;
+        }
+    }
+}
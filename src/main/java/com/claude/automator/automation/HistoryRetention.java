@@ -0,0 +1,120 @@
+package com.claude.automator.automation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Rolling retention for the history directory (screenshots, best matches,
+ * diagnostic captures).
+ *
+ * <p>
+ * Files older than {@code maxAge} are deleted first. If the remaining files
+ * still exceed {@code maxBytes}, the oldest are deleted until they fit. Only
+ * regular files are deleted; the directory layout is left alone.
+ * </p>
+ */
+@Slf4j
+public class HistoryRetention {
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration maxAge;
+
+    public HistoryRetention(Path directory, long maxBytes, Duration maxAge) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Files and bytes left in the directory after a pass, and how many files
+     * the pass deleted.
+     */
+    public record Usage(int files, long bytes, int deleted) {
+    }
+
+    /**
+     * Deletes expired and excess files.
+     *
+     * @param now the reference time for the age limit
+     */
+    public Usage enforce(Instant now) {
+        List<FileEntry> files = listFiles();
+        files.sort(Comparator.comparing(FileEntry::modified));
+
+        long totalBytes = files.stream().mapToLong(FileEntry::size).sum();
+        Instant cutoff = now.minus(maxAge);
+        int deleted = 0;
+
+        List<FileEntry> remaining = new ArrayList<>(files.size());
+        for (FileEntry file : files) {
+            boolean expired = file.modified().isBefore(cutoff);
+            boolean overBudget = totalBytes > maxBytes;
+            if ((expired || overBudget) && delete(file.path())) {
+                totalBytes -= file.size();
+                deleted++;
+            } else {
+                remaining.add(file);
+            }
+        }
+
+        if (deleted > 0) {
+            log.info("History retention deleted {} files from {}, {} files ({} KB) remain",
+                    deleted, directory, remaining.size(), totalBytes / 1024);
+        }
+        return new Usage(remaining.size(), totalBytes, deleted);
+    }
+
+    /**
+     * Measures the directory without deleting anything.
+     */
+    public Usage measure() {
+        List<FileEntry> files = listFiles();
+        return new Usage(files.size(), files.stream().mapToLong(FileEntry::size).sum(), 0);
+    }
+
+    private List<FileEntry> listFiles() {
+        List<FileEntry> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        files.add(new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+                    }
+                } catch (IOException e) {
+                    // File vanished while walking, nothing to retain
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not scan history directory {}: {}", directory, e.getMessage());
+        }
+        return files;
+    }
+
+    private boolean delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete history file {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private record FileEntry(Path path, long size, Instant modified) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.matching.StateImageMatcher;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.SharedSearchRegionStateImage;
+import com.claude.automator.states.WorkingState;
+import com.claude.automator.transitions.PromptToWorkingTransition;
+import com.claude.automator.transitions.PromptToWorkingTransition.ContinueResult;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.action.ActionResult;
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.action.basic.find.PatternFindOptions;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import io.github.jspinak.brobot.model.state.StateString;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.Rectangle;
+
+/**
+ * One monitored Claude window.
+ *
+ * <p>
+ * Each session owns its own ClaudePrompt and ClaudeIcon instances, so search
+ * regions and last matches never leak between windows. The session keeps a
+ * small local state machine instead of using the global StateMemory:
+ * </p>
+ * <ol>
+ * <li>PROMPT: find ClaudePrompt in the lower-left quarter of the window, click
+ * it and type the continue command, then switch to WORKING</li>
+ * <li>WORKING: find ClaudeIcon next to the prompt match; switch back to PROMPT
+ * when it disappears</li>
+ * </ol>
+ *
+ * <p>
+ * All finds search the frame passed to {@link #tick(CapturedFrame)}, which the
+ * {@link MonitoringSessionManager} captures once per tick for all sessions.
+ * With {@code matcherFinds}, which the manager sets whenever it runs more than
+ * one session, both images are searched through {@link StateImageMatcher}:
+ * it takes no lock, so the finds of all sessions run in parallel. Otherwise
+ * ClaudeIcon goes through the image matcher with predictive icon matching or
+ * a matching backend override, ClaudePrompt with a matching backend override,
+ * and the rest are Brobot finds under the {@link BrobotLock}. Without a frame
+ * every find is a Brobot find.
+ * </p>
+ */
+@Slf4j
+public class MonitoringSession {
+
+    public enum Phase {
+        PROMPT, WORKING
+    }
+
+    @Getter
+    private final String name;
+    @Getter
+    private final Region window;
+    @Getter
+    private final StateImage claudePrompt;
+    @Getter
+    private final StateImage claudeIcon;
+
+    private final Action action;
+    private final PromptToWorkingTransition promptToWorking;
+    private final StateString continueCommand;
+    private final MatchAdjustmentOptions iconAdjustments;
+    private final double iconSimilarity;
+    private final double promptSimilarity;
+    private final StateImageMatcher imageMatcher;
+    private final boolean predictiveIcon;
+    private final boolean matcherFinds;
+    private final BrobotLock brobotLock;
+    private final FrameChangeDetector changeDetector;
+
+    @Getter
+    private volatile Phase phase = Phase.PROMPT;
+    private final Region promptRegion;
+    private Region iconSearchRegion;
+
+    public MonitoringSession(String name, Region window, Action action, PromptToWorkingTransition promptToWorking,
+                             StateString continueCommand,
+                             MatchAdjustmentOptions iconAdjustments, double iconSimilarity, double promptSimilarity,
+                             StateImageMatcher imageMatcher, boolean predictiveIcon, boolean matcherFinds,
+                             BrobotLock brobotLock, FrameChangeDetector changeDetector) {
+        this(name, window, action, promptToWorking, continueCommand, iconAdjustments, iconSimilarity,
+                promptSimilarity, imageMatcher, predictiveIcon, matcherFinds, brobotLock, changeDetector,
+                SharedSearchRegionStateImage.createWithSharedRegion(
+                        PromptState.PROMPT_PATTERNS, promptRegion(window), name + "-ClaudePrompt"),
+                SharedSearchRegionStateImage.createWithSharedRegion(
+                        WorkingState.ICON_PATTERNS, window, name + "-ClaudeIcon"));
+    }
+
+    /**
+     * Creates a session for the given ClaudePrompt and ClaudeIcon instances,
+     * which must belong to this session alone.
+     */
+    MonitoringSession(String name, Region window, Action action, PromptToWorkingTransition promptToWorking,
+                      StateString continueCommand,
+                      MatchAdjustmentOptions iconAdjustments, double iconSimilarity, double promptSimilarity,
+                      StateImageMatcher imageMatcher, boolean predictiveIcon, boolean matcherFinds,
+                      BrobotLock brobotLock, FrameChangeDetector changeDetector,
+                      StateImage claudePrompt, StateImage claudeIcon) {
+        this.name = name;
+        this.window = window;
+        this.action = action;
+        this.promptToWorking = promptToWorking;
+        this.continueCommand = continueCommand;
+        this.iconAdjustments = iconAdjustments;
+        this.iconSimilarity = iconSimilarity;
+        this.promptSimilarity = promptSimilarity;
+        this.imageMatcher = imageMatcher;
+        this.predictiveIcon = predictiveIcon;
+        this.matcherFinds = matcherFinds;
+        this.brobotLock = brobotLock;
+        this.changeDetector = changeDetector;
+        this.promptRegion = promptRegion(window);
+        this.claudePrompt = claudePrompt;
+        this.claudeIcon = claudeIcon;
+    }
+
+    /**
+     * Same layout as PromptState: the prompt lives in the lower-left quarter.
+     */
+    static Region promptRegion(Region window) {
+        return new Region(
+                window.x(),
+                window.y() + window.h() / 2,
+                window.w() / 2,
+                window.h() / 2);
+    }
+
+    /**
+     * Whether the find of this session's next tick searches the shared frame
+     * through {@link StateImageMatcher}, which handles region frames. Brobot
+     * finds need a full-screen frame.
+     */
+    public boolean searchesRegionFrames() {
+        return phase == Phase.WORKING ? iconThroughMatcher() : promptThroughMatcher();
+    }
+
+    private boolean promptThroughMatcher() {
+        return matcherFinds || imageMatcher.hasBackendOverride(claudePrompt);
+    }
+
+    private boolean iconThroughMatcher() {
+        return matcherFinds || predictiveIcon || imageMatcher.hasBackendOverride(claudeIcon);
+    }
+
+    /**
+     * Runs one monitoring step for this window against the shared frame.
+     */
+    public void tick(CapturedFrame frame) {
+        if (frame != null && !changeDetector.hasChanged(frame.getImage(), frame.toImageArea(monitoredArea()), phase)) {
+            log.debug("[{}] Window unchanged, skipping find", name);
+            return;
+        }
+
+        if (phase == Phase.WORKING) {
+            checkIcon(frame);
+        } else {
+            checkPrompt(frame);
+        }
+        changeDetector.confirm();
+    }
+
+    private void checkPrompt(CapturedFrame frame) {
+        ActionResult promptFound = frame != null && promptThroughMatcher()
+                ? imageMatcher.find(claudePrompt, frame, promptSimilarity)
+                : brobotLock.call(() -> action.find(FrameBroker.collectionFor(frame, claudePrompt)));
+        if (!promptFound.isSuccess()) {
+            log.debug("[{}] ClaudePrompt not found", name);
+            return;
+        }
+
+        Region promptMatch = promptFound.getMatchList().get(0).getRegion();
+        log.info("[{}] ClaudePrompt found at {}", name, promptMatch);
+
+        // ClaudeIcon is searched next to the prompt, as in WorkingState
+        iconSearchRegion = new Region(
+                promptMatch.x() + iconAdjustments.getAddX(),
+                promptMatch.y() + iconAdjustments.getAddY(),
+                promptMatch.w() + iconAdjustments.getAddW(),
+                promptMatch.h() + iconAdjustments.getAddH());
+        SharedSearchRegionStateImage.updateSharedRegion(claudeIcon, iconSearchRegion);
+
+        if (sendContinue(promptMatch)) {
+            phase = Phase.WORKING;
+            imageMatcher.resetScaleMisses(claudeIcon);
+            // Our own input changes the window, the next tick must search again
+            changeDetector.reset();
+            log.info("[{}] Continue sent, session is WORKING", name);
+        }
+    }
+
+    private void checkIcon(CapturedFrame frame) {
+        if (isIconVisible(frame)) {
+            log.debug("[{}] ClaudeIcon still visible", name);
+        } else {
+            phase = Phase.PROMPT;
+            imageMatcher.resetScaleMisses(claudePrompt);
+            log.info("[{}] ClaudeIcon gone, session is back at PROMPT", name);
+        }
+    }
+
+    private boolean isIconVisible(CapturedFrame frame) {
+        if (frame != null && iconThroughMatcher()) {
+            return imageMatcher.findFirst(claudeIcon, frame, iconSimilarity).isPresent();
+        }
+        PatternFindOptions findOptions = new PatternFindOptions.Builder()
+                .setSimilarity(iconSimilarity)
+                .build();
+        return brobotLock.call(() -> action.perform(findOptions, FrameBroker.collectionFor(frame, claudeIcon)))
+                .isSuccess();
+    }
+
+    /**
+     * Clicks the prompt and types the continue command through
+     * {@link PromptToWorkingTransition}. Mouse and keyboard are shared by all
+     * sessions, so both happen under one hold of the Brobot lock.
+     */
+    private boolean sendContinue(Region promptMatch) {
+        ContinueResult sent = brobotLock.call(() -> promptToWorking.sendContinue(promptMatch, continueCommand));
+        if (sent != ContinueResult.SENT) {
+            log.warn("[{}] Failed to send the continue command: {}", name, sent);
+            return false;
+        }
+        return true;
+    }
+
+    private Rectangle monitoredArea() {
+        Region region = phase == Phase.WORKING && iconSearchRegion != null ? iconSearchRegion : promptRegion;
+        return new Rectangle(region.x(), region.y(), region.w(), region.h());
+    }
+}
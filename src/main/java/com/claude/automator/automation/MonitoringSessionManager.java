@@ -0,0 +1,255 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.matching.StateImageMatcher;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.WorkingState;
+import com.claude.automator.transitions.PromptToWorkingTransition;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.model.element.Region;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitors several Claude windows on the same desktop.
+ *
+ * <p>
+ * Sessions are configured as a list of {@code name@x:y:w:h} entries:
+ * </p>
+ *
+ * <pre>
+ * claude.automator.sessions.enabled=true
+ * claude.automator.sessions.windows=left@0:0:960:1080,right@960:0:960:1080
+ * </pre>
+ *
+ * <p>
+ * Every tick captures the screen once and hands that frame to all sessions.
+ * Each session then runs on its own virtual thread. Brobot finds, clicks and
+ * typing go through the {@link BrobotLock}, because Brobot's Action,
+ * StateMemory and ActionHistory are not thread-safe, so with more than one
+ * session every find searches the shared frame through
+ * {@link StateImageMatcher} instead, which needs no lock, using each image's
+ * configured backend. The finds of all sessions then run in parallel and a
+ * tick costs one capture plus the finds of the slowest session, plus the
+ * clicks and typing of the sessions that found their prompt, which run one
+ * after another. If no frame can be captured the sessions fall back to Brobot
+ * finds, which run one after another.
+ * </p>
+ *
+ * @see MonitoringSession
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonitoringSessionManager {
+
+    private final Action action;
+    private final PromptState promptState;
+    private final WorkingState workingState;
+    private final FrameBroker frameBroker;
+    private final ContinuousModeMaintenance continuousMaintenance;
+    private final StateImageMatcher stateImageMatcher;
+    private final BrobotLock brobotLock;
+    private final PromptToWorkingTransition promptToWorkingTransition;
+
+    @Value("${claude.automator.sessions.enabled:false}")
+    @Getter
+    private boolean enabled;
+
+    @Value("${claude.automator.sessions.windows:}")
+    private List<String> windowDefinitions;
+
+    @Value("${claude.automator.sessions.icon-similarity:0.85}")
+    private double iconSimilarity;
+
+    // Used when ClaudePrompt has a matching backend override
+    @Value("${brobot.action.similarity:0.65}")
+    private double promptSimilarity;
+
+    @Value("${claude.automator.matching.predictive.enabled:false}")
+    private boolean predictiveMatching;
+
+    @Value("${claude.automator.monitoring.initial-delay:5}")
+    private int initialDelay;
+
+    @Value("${claude.automator.monitoring.check-interval:2}")
+    private int checkInterval;
+
+    @Value("${claude.automator.monitoring.change-detection.tile-size:32}")
+    private int changeDetectionTileSize;
+
+    @Value("${claude.automator.monitoring.change-detection.max-skipped-ticks:15}")
+    private int changeDetectionMaxSkippedTicks;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService sessionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Getter
+    private List<MonitoringSession> sessions = Collections.emptyList();
+
+    /**
+     * Creates the configured sessions and starts the shared tick.
+     */
+    public void startMonitoring() {
+        sessions = createSessions();
+        if (sessions.isEmpty()) {
+            log.warn("Session monitoring enabled but no windows configured (claude.automator.sessions.windows)");
+            return;
+        }
+
+        log.info("Starting {} monitoring sessions: {}", sessions.size(),
+                sessions.stream().map(MonitoringSession::getName).toList());
+
+        ticker.scheduleWithFixedDelay(this::tick, initialDelay, checkInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Captures one frame and runs every session against it in parallel.
+     */
+    private void tick() {
+        frameBroker.beginTick();
+        // Sessions only search within their windows; Brobot finds need the whole screen
+        Rectangle windows = sessions.stream().allMatch(MonitoringSession::searchesRegionFrames)
+                ? captureArea(sessions.stream().map(MonitoringSession::getWindow).toList())
+                : null;
+        // The sessions read the frame on other threads; invokeAll returns once they are done
+        try (CapturedFrame frame = frameBroker.currentFrame(windows)) {
+            List<Callable<Void>> tasks = new ArrayList<>(sessions.size());
+            for (MonitoringSession session : sessions) {
+                tasks.add(() -> {
+                    session.tick(frame);
+                    return null;
+                });
+            }
+
+            List<Future<Void>> results = sessionExecutor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Session '{}' failed during tick", sessions.get(i).getName(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // Trims under the Brobot lock, so a running vanish stream is no problem
+        continuousMaintenance.runIfDue();
+    }
+
+    private List<MonitoringSession> createSessions() {
+        List<WindowDefinition> parsed = new ArrayList<>();
+        if (windowDefinitions != null) {
+            for (String definition : windowDefinitions) {
+                if (definition == null || definition.isBlank()) {
+                    continue;
+                }
+                try {
+                    parsed.add(parseWindow(definition.trim()));
+                } catch (IllegalArgumentException e) {
+                    log.error("Ignoring session definition '{}': {}", definition, e.getMessage());
+                }
+            }
+        }
+
+        // Brobot finds would serialize the sessions on the lock
+        boolean matcherFinds = parsed.size() > 1;
+        List<MonitoringSession> created = new ArrayList<>(parsed.size());
+        for (WindowDefinition window : parsed) {
+            MonitoringSession session = createSession(window, matcherFinds);
+            continuousMaintenance.register(session.getClaudePrompt(), session.getClaudeIcon());
+            stateImageMatcher.prepare(session.getClaudePrompt(), session.getClaudeIcon());
+            created.add(session);
+        }
+        return created;
+    }
+
+    private MonitoringSession createSession(WindowDefinition parsed, boolean matcherFinds) {
+        return new MonitoringSession(
+                parsed.name(),
+                parsed.window(),
+                action,
+                promptToWorkingTransition,
+                promptState.getContinueCommand(),
+                workingState.getClaudeIcon().getSearchRegionOnObject().getAdjustments(),
+                iconSimilarity,
+                promptSimilarity,
+                stateImageMatcher,
+                predictiveMatching,
+                matcherFinds,
+                brobotLock,
+                new FrameChangeDetector(changeDetectionTileSize, changeDetectionMaxSkippedTicks));
+    }
+
+    /**
+     * Parses one {@code name@x:y:w:h} session definition.
+     *
+     * @throws IllegalArgumentException if the definition is malformed
+     */
+    static WindowDefinition parseWindow(String definition) {
+        int at = definition.indexOf('@');
+        if (at <= 0) {
+            throw new IllegalArgumentException("expected name@x:y:w:h");
+        }
+        String name = definition.substring(0, at).trim();
+        String[] parts = definition.substring(at + 1).split(":");
+        if (name.isEmpty() || parts.length != 4) {
+            throw new IllegalArgumentException("expected name@x:y:w:h");
+        }
+        int w = Integer.parseInt(parts[2].trim());
+        int h = Integer.parseInt(parts[3].trim());
+        if (w <= 0 || h <= 0) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        return new WindowDefinition(name, new Region(
+                Integer.parseInt(parts[0].trim()),
+                Integer.parseInt(parts[1].trim()),
+                w,
+                h));
+    }
+
+    /**
+     * The screen area a tick captures: the smallest rectangle covering all
+     * session windows, or null without sessions.
+     */
+    static Rectangle captureArea(List<Region> windows) {
+        Rectangle area = null;
+        for (Region window : windows) {
+            Rectangle rect = new Rectangle(window.x(), window.y(), window.w(), window.h());
+            area = area == null ? rect : area.union(rect);
+        }
+        return area;
+    }
+
+    /**
+     * A parsed session definition.
+     */
+    record WindowDefinition(String name, Region window) {
+    }
+
+    @PreDestroy
+    public void stopMonitoring() {
+        log.info("Stopping {} monitoring sessions", sessions.size());
+        ticker.shutdownNow();
+        sessionExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the input of a replayed run instead of sending it.
+ *
+ * <p>
+ * While {@link FrameBroker#isReplaying()}, the screen is a recording: a click
+ * or typing would reach whatever the desktop shows, not the frame it was
+ * decided on. The code that sends input asks {@link #isActive()} first and
+ * records the step here instead, so a replay runs without a desktop and a test
+ * can check what the automation would have done on each frame.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReplayInput {
+
+    /**
+     * One input step that was not sent.
+     *
+     * @param action        what would have been done, e.g. "click" or "type"
+     * @param target        where or what, e.g. the clicked region or the text
+     * @param frameSequence sequence of the broker's frame at the time, or 0 if
+     *                      there was none
+     */
+    public record Step(String action, String target, long frameSequence) {
+    }
+
+    private final FrameBroker frameBroker;
+
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Whether input is recorded instead of sent.
+     */
+    public boolean isActive() {
+        return frameBroker.isReplaying();
+    }
+
+    public synchronized void record(String action, Object target) {
+        CapturedFrame frame = frameBroker.peekFrame();
+        Step step = new Step(action, String.valueOf(target), frame != null ? frame.getSequence() : 0);
+        steps.add(step);
+        log.info("Replay: {} {} recorded, not sent", action, step.target());
+    }
+
+    /**
+     * The steps recorded so far, oldest first.
+     */
+    public synchronized List<Step> getSteps() {
+        return List.copyOf(steps);
+    }
+}
@@ -0,0 +1,81 @@
+package com.claude.automator.automation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Records how long each monitored state lasts.
+ *
+ * <p>
+ * The tracker is fed the observed state after every poll. A dwell time is
+ * recorded when the observed state changes, measured from the first poll that
+ * saw the state to the first poll that saw its successor. The state observed at
+ * startup has no known entry time, so its dwell is not recorded.
+ * </p>
+ *
+ * <p>
+ * Only the most recent {@code historySize} dwell times are kept per state, so
+ * the predictions follow changes in how Claude is being used.
+ * </p>
+ */
+public class StateDwellTracker {
+
+    private final int historySize;
+    private final Map<String, Deque<Long>> dwellHistory = new HashMap<>();
+
+    private String currentState;
+    private long enteredAtMillis;
+    private boolean entryObserved;
+
+    public StateDwellTracker(int historySize) {
+        this.historySize = Math.max(1, historySize);
+    }
+
+    /**
+     * Records the state seen by a poll at the given time.
+     *
+     * @param state     the observed state, or null if no monitored state is active
+     * @param nowMillis monotonic time of the poll in milliseconds
+     */
+    public synchronized void observe(String state, long nowMillis) {
+        if (Objects.equals(state, currentState)) {
+            return;
+        }
+        if (currentState != null && entryObserved) {
+            Deque<Long> history = dwellHistory.computeIfAbsent(currentState, k -> new ArrayDeque<>());
+            history.addLast(nowMillis - enteredAtMillis);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+        }
+        // The first state ever observed was entered at an unknown time
+        entryObserved = currentState != null;
+        currentState = state;
+        enteredAtMillis = nowMillis;
+    }
+
+    public synchronized String getCurrentState() {
+        return currentState;
+    }
+
+    /**
+     * Milliseconds since the current state was first observed.
+     */
+    public synchronized long elapsedMillis(long nowMillis) {
+        return currentState == null ? 0 : nowMillis - enteredAtMillis;
+    }
+
+    /**
+     * Returns the recorded dwell times of a state in ascending order.
+     */
+    public synchronized long[] getDwellSamples(String state) {
+        Deque<Long> history = dwellHistory.get(state);
+        if (history == null) {
+            return new long[0];
+        }
+        return history.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+}
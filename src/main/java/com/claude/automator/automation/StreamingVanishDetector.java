@@ -0,0 +1,247 @@
+package com.claude.automator.automation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Watches the Working icon on successive frames and reports when it is gone.
+ *
+ * <p>
+ * Once started, the detector evaluates {@code iconVisible} on its own thread
+ * at a fixed frame rate. A single missed frame is not enough: the icon is only
+ * declared gone after {@code requiredMisses} consecutive misses, which filters
+ * out animation frames the patterns do not cover. The detector then stops,
+ * keeps the vanish as pending and calls {@code onVanished} to wake up the
+ * monitoring thread.
+ * </p>
+ *
+ * <p>
+ * The stream thread never changes any state itself. The monitoring thread
+ * calls {@link #onMonitoringTick(boolean)} on every tick, which hands it the
+ * pending vanish to apply, starts the stream while Working is active and stops
+ * it, discarding any pending vanish, once Working is no longer active.
+ * </p>
+ *
+ * <p>
+ * Every start opens a new stream generation. A stream runs only while its
+ * generation is the current one, so a stop followed at once by a start ends
+ * the old loop after its current frame instead of leaving it running next to
+ * the new one, which waits for it on the single stream thread. The run of
+ * misses belongs to the stream thread alone: each stream starts with a fresh
+ * count.
+ * </p>
+ *
+ * <p>
+ * The latency from the first miss of the final run of misses to the tick that
+ * takes the vanish is recorded, i.e. how long it took from the icon
+ * disappearing on screen to the state change.
+ * </p>
+ */
+@Slf4j
+public class StreamingVanishDetector {
+
+    private final BooleanSupplier iconVisible;
+    private final Runnable onVanished;
+    private final int requiredMisses;
+    private final long frameIntervalNanos;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "icon-vanish-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean vanishPending = new AtomicBoolean();
+    // Incremented by every start and stop; a stream runs while its own is current
+    private final AtomicLong generation = new AtomicLong();
+
+    // Only touched by the stream thread
+    private int consecutiveMisses;
+    private volatile long firstMissNanos;
+
+    private final AtomicLong vanishCount = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public StreamingVanishDetector(BooleanSupplier iconVisible, Runnable onVanished,
+                                   int requiredMisses, int framesPerSecond) {
+        if (requiredMisses < 1 || framesPerSecond < 1) {
+            throw new IllegalArgumentException(
+                    "requiredMisses and framesPerSecond must be positive: " + requiredMisses + ", " + framesPerSecond);
+        }
+        this.iconVisible = iconVisible;
+        this.onVanished = onVanished;
+        this.requiredMisses = requiredMisses;
+        this.frameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+    }
+
+    /**
+     * What the monitoring tick should do about the Working icon.
+     */
+    public enum TickAction {
+        /** The icon is gone: apply the state change. */
+        VANISHED,
+        /** The stream is watching the icon, nothing to check this tick. */
+        STREAMING,
+        /** Working is not active, the tick checks the screen as usual. */
+        IDLE
+    }
+
+    /**
+     * Called by the monitoring thread at the start of every tick.
+     *
+     * @param workingActive whether the Working state is active
+     * @return what the tick should do about the Working icon
+     */
+    public synchronized TickAction onMonitoringTick(boolean workingActive) {
+        if (!workingActive) {
+            // Working ended some other way; a vanish seen meanwhile is stale
+            stop();
+            vanishPending.set(false);
+            return TickAction.IDLE;
+        }
+        if (vanishPending.getAndSet(false)) {
+            recordLatency(System.nanoTime() - firstMissNanos);
+            return TickAction.VANISHED;
+        }
+        if (start()) {
+            log.info("Working state active, streaming ClaudeIcon until it vanishes");
+        }
+        return TickAction.STREAMING;
+    }
+
+    /**
+     * Starts streaming unless it is already running or a vanish is pending.
+     *
+     * @return true if a new stream was started
+     */
+    public synchronized boolean start() {
+        if (vanishPending.get() || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        long streamGeneration = generation.incrementAndGet();
+        executor.execute(() -> stream(streamGeneration));
+        return true;
+    }
+
+    /**
+     * Stops the current stream after its current frame.
+     */
+    public synchronized void stop() {
+        generation.incrementAndGet();
+        running.set(false);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Whether the stream saw the icon vanish and no tick has taken it yet.
+     */
+    public boolean isVanishPending() {
+        return vanishPending.get();
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    public long getVanishCount() {
+        return vanishCount.get();
+    }
+
+    public long getLastLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos.get());
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    private void stream(long streamGeneration) {
+        log.debug("Streaming ClaudeIcon at one frame every {} ms", TimeUnit.NANOSECONDS.toMillis(frameIntervalNanos));
+        resetMisses();
+        try {
+            while (generation.get() == streamGeneration && !Thread.currentThread().isInterrupted()) {
+                long frameStart = System.nanoTime();
+
+                try {
+                    if (onFrame(iconVisible.getAsBoolean(), System.nanoTime())) {
+                        publishVanish(streamGeneration);
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    // A failed evaluation is neither a hit nor a miss
+                    log.warn("ClaudeIcon evaluation failed: {}", e.getMessage());
+                }
+
+                long remaining = frameIntervalNanos - (System.nanoTime() - frameStart);
+                if (remaining > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                // A newer stream may already be marked as running
+                if (generation.get() == streamGeneration) {
+                    running.set(false);
+                }
+            }
+        }
+    }
+
+    private void publishVanish(long streamGeneration) {
+        synchronized (this) {
+            // A tick that stopped the stream while the frame was evaluated wins
+            if (generation.get() != streamGeneration) {
+                return;
+            }
+            running.set(false);
+            vanishPending.set(true);
+        }
+        onVanished.run();
+    }
+
+    /**
+     * Applies the hysteresis to one frame.
+     *
+     * @return true if this frame completes the run of misses
+     */
+    boolean onFrame(boolean visible, long nowNanos) {
+        if (visible) {
+            consecutiveMisses = 0;
+            return false;
+        }
+        if (consecutiveMisses == 0) {
+            firstMissNanos = nowNanos;
+        }
+        consecutiveMisses++;
+        return consecutiveMisses >= requiredMisses;
+    }
+
+    long getFirstMissNanos() {
+        return firstMissNanos;
+    }
+
+    private void resetMisses() {
+        consecutiveMisses = 0;
+        firstMissNanos = 0;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        vanishCount.incrementAndGet();
+        lastLatencyNanos.set(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        log.info("ClaudeIcon gone after {} consecutive misses, first miss to state change: {} ms (max {} ms)",
+                requiredMisses, getLastLatencyMillis(), getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,37 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.capture.UnifiedCaptureService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures through Brobot's {@link UnifiedCaptureService}, i.e. whichever
+ * provider {@code brobot.capture.provider} configures. This was the only
+ * capture path before providers could be chosen.
+ */
+@Component
+public class BrobotCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "brobot";
+
+    // Screen capture - not available in every profile
+    @Autowired(required = false)
+    private UnifiedCaptureService captureService;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return captureService != null;
+    }
+
+    @Override
+    public BufferedImage capture() {
+        return captureService.captureScreen();
+    }
+}
@@ -0,0 +1,244 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.config.core.FrameworkSettings;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chooses the {@link ScreenCaptureProvider} that {@link FrameBroker} captures
+ * through.
+ *
+ * <p>
+ * With {@code claude.automator.capture.provider=auto}, every available
+ * provider is benchmarked once the application is ready: after one warm-up
+ * capture, {@code claude.automator.capture.benchmark-frames} captures are
+ * timed. A provider passes if every frame has the expected resolution and
+ * is not black, and the passing provider with the lowest median latency is
+ * used. The expected resolution is
+ * {@code claude.automator.capture.expected-resolution}, or the physical
+ * resolution of the default screen if that is empty, which is what the
+ * patterns are captured at. Black frames are what Robot and SikuliX return
+ * without access to the display, e.g. under Wayland.
+ * </p>
+ *
+ * <p>
+ * Any other value names the provider to use without a benchmark. If no
+ * provider passes, none is selected and finds capture the screen themselves
+ * as before.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CaptureProviderSelector {
+
+    public static final String AUTO = "auto";
+
+    // A frame whose sampled pixels are all this dark or darker is black
+    static final int BLACK_LEVEL = 16;
+    private static final int BLACK_SAMPLES = 64;
+
+    /**
+     * Outcome of benchmarking one provider.
+     *
+     * @param medianMillis median capture latency, or -1 if it failed
+     * @param failure      why the provider was rejected, or null if it passed
+     */
+    public record BenchmarkResult(String provider, double medianMillis, String failure) {
+
+        public boolean passed() {
+            return failure == null;
+        }
+    }
+
+    private final List<ScreenCaptureProvider> providers;
+
+    @Value("${claude.automator.capture.provider:" + AUTO + "}")
+    private String providerName = AUTO;
+
+    @Value("${claude.automator.capture.benchmark-frames:5}")
+    private int benchmarkFrames = 5;
+
+    // WIDTHxHEIGHT, or empty for the physical resolution of the default screen
+    @Value("${claude.automator.capture.expected-resolution:}")
+    private String expectedResolution = "";
+
+    private volatile boolean selected;
+    private volatile ScreenCaptureProvider provider;
+    private volatile List<BenchmarkResult> results = List.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    void selectAtStartup() {
+        if (!FrameworkSettings.mock) {
+            getProvider();
+        }
+    }
+
+    /**
+     * Returns the provider to capture through, selecting it on first use, or
+     * null if no provider works.
+     */
+    public ScreenCaptureProvider getProvider() {
+        if (!selected) {
+            synchronized (this) {
+                if (!selected) {
+                    provider = select();
+                    selected = true;
+                }
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Results of the startup benchmark, empty if none ran.
+     */
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    private ScreenCaptureProvider select() {
+        if (!AUTO.equalsIgnoreCase(providerName.trim())) {
+            for (ScreenCaptureProvider candidate : providers) {
+                if (candidate.getName().equalsIgnoreCase(providerName.trim())) {
+                    log.info("Screen capture through {} (configured)", candidate.getName());
+                    return candidate;
+                }
+            }
+            log.warn("Unknown capture provider '{}', benchmarking all of {}", providerName,
+                    providers.stream().map(ScreenCaptureProvider::getName).toList());
+        }
+
+        Dimension expected = expectedResolution();
+        List<BenchmarkResult> benchmarked = new ArrayList<>();
+        ScreenCaptureProvider fastest = null;
+        double fastestMillis = Double.MAX_VALUE;
+        for (ScreenCaptureProvider candidate : providers) {
+            if (!candidate.isAvailable()) {
+                benchmarked.add(new BenchmarkResult(candidate.getName(), -1, "not available"));
+                continue;
+            }
+            BenchmarkResult result = benchmark(candidate, expected, benchmarkFrames);
+            benchmarked.add(result);
+            if (result.passed() && result.medianMillis() < fastestMillis) {
+                fastest = candidate;
+                fastestMillis = result.medianMillis();
+            }
+        }
+        results = List.copyOf(benchmarked);
+
+        for (BenchmarkResult result : benchmarked) {
+            if (result.passed()) {
+                log.info("Capture provider {}: {} ms median", result.provider(),
+                        String.format("%.1f", result.medianMillis()));
+            } else {
+                log.info("Capture provider {}: rejected, {}", result.provider(), result.failure());
+            }
+        }
+        if (fastest == null) {
+            log.warn("No capture provider passed the startup benchmark, finds will capture individually");
+        } else {
+            log.info("Screen capture through {} ({} ms median)", fastest.getName(),
+                    String.format("%.1f", fastestMillis));
+        }
+        return fastest;
+    }
+
+    /**
+     * Captures one warm-up frame and then {@code frames} timed ones.
+     *
+     * @param expected required frame size, or null to only require every
+     *                 frame to have the same size
+     */
+    static BenchmarkResult benchmark(ScreenCaptureProvider provider, Dimension expected, int frames) {
+        String name = provider.getName();
+        double[] millis = new double[Math.max(1, frames)];
+        Dimension size = expected;
+        try {
+            BufferedImage warmUp = provider.capture();
+            String failure = check(warmUp, size);
+            if (failure != null) {
+                return new BenchmarkResult(name, -1, failure);
+            }
+            size = new Dimension(warmUp.getWidth(), warmUp.getHeight());
+            for (int i = 0; i < millis.length; i++) {
+                long start = System.nanoTime();
+                BufferedImage image = provider.capture();
+                millis[i] = (System.nanoTime() - start) / 1e6;
+                failure = check(image, size);
+                if (failure != null) {
+                    return new BenchmarkResult(name, -1, failure);
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            // Missing native libraries surface as linkage errors
+            return new BenchmarkResult(name, -1, "capture failed: " + e);
+        }
+        Arrays.sort(millis);
+        return new BenchmarkResult(name, millis[millis.length / 2], null);
+    }
+
+    private static String check(BufferedImage image, Dimension expected) {
+        if (image == null) {
+            return "no frame";
+        }
+        if (expected != null && (image.getWidth() != expected.width || image.getHeight() != expected.height)) {
+            return "frame is " + image.getWidth() + "x" + image.getHeight() + ", expected "
+                    + expected.width + "x" + expected.height;
+        }
+        if (isBlack(image)) {
+            return "black frame";
+        }
+        return null;
+    }
+
+    /**
+     * Whether a grid of sampled pixels is all at or below {@value #BLACK_LEVEL}
+     * in every channel.
+     */
+    static boolean isBlack(BufferedImage image) {
+        int stepX = Math.max(1, image.getWidth() / BLACK_SAMPLES);
+        int stepY = Math.max(1, image.getHeight() / BLACK_SAMPLES);
+        for (int y = stepY / 2; y < image.getHeight(); y += stepY) {
+            for (int x = stepX / 2; x < image.getWidth(); x += stepX) {
+                int rgb = image.getRGB(x, y);
+                if (((rgb >> 16) & 0xFF) > BLACK_LEVEL || ((rgb >> 8) & 0xFF) > BLACK_LEVEL
+                        || (rgb & 0xFF) > BLACK_LEVEL) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Dimension expectedResolution() {
+        String value = expectedResolution.trim();
+        if (!value.isEmpty()) {
+            String[] parts = value.toLowerCase().split("x");
+            try {
+                return new Dimension(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            } catch (RuntimeException e) {
+                log.error("Ignoring claude.automator.capture.expected-resolution '{}': expected WIDTHxHEIGHT",
+                        expectedResolution);
+            }
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode();
+        return new Dimension(mode.getWidth(), mode.getHeight());
+    }
+}
@@ -0,0 +1,234 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Scene;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A single screen capture shared by every consumer within one monitoring tick.
+ *
+ * <p>
+ * Frames are treated as immutable: consumers must not draw into the image.
+ * The sequence number identifies the capture, so results computed from one
+ * frame can be cached and compared across consumers.
+ * </p>
+ *
+ * <p>
+ * A frame may show only a region of the screen, the bounding box of the
+ * search regions of the tick (see {@link FrameBroker#currentFrame(Rectangle)}).
+ * Its image then starts at {@link #getBounds()}'s origin: consumers translate
+ * screen coordinates with {@link #toImageArea(Rectangle)} and add the origin
+ * back to what they find.
+ * </p>
+ *
+ * <p>
+ * Frames from {@link FrameBroker} usually live in a slot of its frame ring,
+ * which is overwritten by a later capture once the frame is released.
+ * {@link FrameBroker#currentFrame(Rectangle)} hands out a reference that the
+ * caller closes when done, e.g. with try-with-resources; whoever keeps the
+ * frame longer, or passes it to another thread, calls {@link #retain()} and
+ * {@link #release()}. For frames created directly both are no-ops.
+ * </p>
+ */
+@Getter
+public class CapturedFrame implements AutoCloseable {
+
+    private final BufferedImage image;
+    private final long sequence;
+    private final long capturedAtNanos;
+    // Screen area the image shows, and the size of the whole screen
+    @Getter(AccessLevel.NONE)
+    private final Rectangle bounds;
+    @Getter(AccessLevel.NONE)
+    private final Dimension screenSize;
+    // Ring slot holding the image, null if the frame owns it
+    @Getter(AccessLevel.NONE)
+    private final FrameRing.Slot slot;
+
+    // Created on first use; finds in the same tick share it
+    private volatile Scene scene;
+
+    public CapturedFrame(BufferedImage image, long sequence) {
+        this(image, sequence, System.nanoTime());
+    }
+
+    public CapturedFrame(BufferedImage image, long sequence, long capturedAtNanos) {
+        this(image, sequence, capturedAtNanos, null, null);
+    }
+
+    /**
+     * @param region     screen area the image shows, or null for the whole
+     *                   screen
+     * @param screenSize size of the whole screen, or null for the image size
+     */
+    public CapturedFrame(BufferedImage image, long sequence, long capturedAtNanos, Rectangle region,
+                         Dimension screenSize) {
+        this(image, sequence, capturedAtNanos, region, screenSize, null);
+    }
+
+    CapturedFrame(BufferedImage image, long sequence, long capturedAtNanos, Rectangle region, Dimension screenSize,
+                  FrameRing.Slot slot) {
+        this.slot = slot;
+        this.image = image;
+        this.sequence = sequence;
+        this.capturedAtNanos = capturedAtNanos;
+        this.bounds = region != null ? new Rectangle(region.x, region.y, image.getWidth(), image.getHeight())
+                : new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        this.screenSize = screenSize != null ? new Dimension(screenSize)
+                : new Dimension(image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Width of the image, which is the screen width for full frames.
+     */
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    /**
+     * Screen area the image shows.
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    public Dimension getScreenSize() {
+        return new Dimension(screenSize);
+    }
+
+    public boolean isFullScreen() {
+        return bounds.x == 0 && bounds.y == 0
+                && bounds.width == screenSize.width && bounds.height == screenSize.height;
+    }
+
+    /**
+     * Whether the image shows all of the given screen area; null stands for
+     * the whole screen.
+     */
+    public boolean covers(Rectangle area) {
+        if (area == null) {
+            return isFullScreen();
+        }
+        Rectangle onScreen = area.intersection(new Rectangle(screenSize));
+        return onScreen.isEmpty() || bounds.contains(onScreen);
+    }
+
+    /**
+     * Converts a screen area to image coordinates, clipped to the image.
+     *
+     * @return the area in the image, possibly empty, or null for null
+     */
+    public Rectangle toImageArea(Rectangle area) {
+        if (area == null) {
+            return null;
+        }
+        Rectangle clipped = area.intersection(bounds);
+        if (clipped.isEmpty()) {
+            return new Rectangle(0, 0, 0, 0);
+        }
+        clipped.translate(-bounds.x, -bounds.y);
+        return clipped;
+    }
+
+    /**
+     * Adds a reference that keeps the frame's ring slot from being
+     * overwritten until the matching {@link #release()}.
+     *
+     * @return this frame
+     * @throws IllegalStateException if the frame was already released
+     */
+    public CapturedFrame retain() {
+        if (slot != null) {
+            slot.retain();
+        }
+        return this;
+    }
+
+    /**
+     * Drops a reference; the image must not be read afterwards.
+     */
+    public void release() {
+        if (slot != null) {
+            slot.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * Whether the image lives in a ring slot that is reused after release.
+     */
+    public boolean isPooled() {
+        return slot != null;
+    }
+
+    /**
+     * Milliseconds elapsed since this frame was captured.
+     */
+    public long ageMillis() {
+        return (System.nanoTime() - capturedAtNanos) / 1_000_000L;
+    }
+
+    /**
+     * Returns this frame as a Brobot Scene so that finds search it instead of
+     * capturing the screen again. Brobot may keep the scene after the find,
+     * e.g. in match snapshots, history or illustrations, so the scene never
+     * shares a ring slot that a later capture overwrites. {@link FrameBroker}
+     * keeps full frames meant for Brobot out of the ring, and their image,
+     * which nothing else writes to, is shared without a copy. A pooled frame
+     * is copied into an image of its own, once per frame. Brobot
+     * reports matches in scene coordinates, so a region frame is drawn at its
+     * position into a screen-size image, black elsewhere. Callers that find
+     * through Brobot therefore ask {@link FrameBroker} for full frames.
+     */
+    public Scene getScene() {
+        Scene result = scene;
+        if (result == null) {
+            synchronized (this) {
+                result = scene;
+                if (result == null) {
+                    BufferedImage sceneImage = !isFullScreen() ? screenImage() : slot != null ? copyImage() : image;
+                    result = new Scene(new Pattern(sceneImage));
+                    scene = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private BufferedImage copyImage() {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        FrameRing.copy(image, ((DataBufferInt) copy.getRaster().getDataBuffer()).getData(),
+                image.getWidth(), image.getHeight());
+        return copy;
+    }
+
+    private BufferedImage screenImage() {
+        BufferedImage screen = new BufferedImage(screenSize.width, screenSize.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        g.drawImage(image, bounds.x, bounds.y, null);
+        g.dispose();
+        return screen;
+    }
+
+    @Override
+    public String toString() {
+        String size = image.getWidth() + "x" + image.getHeight();
+        return "CapturedFrame#" + sequence + "[" + (isFullScreen() ? size : size + " at " + bounds.x + "," + bounds.y)
+                + "]";
+    }
+}
@@ -0,0 +1,27 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.capture.JavaCVFFmpegCapture;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Captures the screen through the FFmpeg libraries bundled with JavaCV, at
+ * physical resolution.
+ */
+@Component
+public class FfmpegCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "ffmpeg";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public BufferedImage capture() throws IOException {
+        return JavaCVFFmpegCapture.capture();
+    }
+}
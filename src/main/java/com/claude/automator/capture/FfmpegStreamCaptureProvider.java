@@ -0,0 +1,469 @@
+package com.claude.automator.capture;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Captures from one long-lived FFmpeg x11grab stream instead of starting a
+ * grabber per capture.
+ *
+ * <p>
+ * The one-shot {@link FfmpegCaptureProvider} opens the X11 device, probes it
+ * and closes it again on every capture. Here a daemon thread keeps one JavaCV
+ * {@link FFmpegFrameGrabber} open at
+ * {@code claude.automator.capture.ffmpeg-stream.frame-rate} and decodes every
+ * frame into one of three buffers; a capture hands out the latest decoded
+ * frame without waiting, so after the stream started it costs a buffer swap.
+ * Frames are requested as {@code bgr0}, which is the layout of a
+ * {@code TYPE_INT_RGB} raster, so decoding is a copy. The returned image is
+ * overwritten after the next capture. {@link #getFrameSequence()} numbers the
+ * decoded frames, so {@link FrameBroker} recognizes a capture that returns the
+ * frame it already holds.
+ * </p>
+ *
+ * <p>
+ * The grab is cropped to the area of the capture ({@code -video_size} and the
+ * offset of the x11grab device), so only the bounding box of the search
+ * regions that {@link FrameBroker} asks for is decoded. A capture of an area
+ * the crop covers is a sub-image of the latest frame. One outside it reopens
+ * the stream cropped to the new area, and after {@value #RECROP_CAPTURES}
+ * captures that all fell into a smaller box, e.g. after one full capture for
+ * diagnostics, the stream is reopened cropped to that box.
+ * </p>
+ *
+ * <p>
+ * The stream stops after
+ * {@code claude.automator.capture.ffmpeg-stream.idle-stop-ms} without a
+ * capture, e.g. when another provider won the startup benchmark, and starts
+ * again on the next one. A grab without a frame backs off a little longer
+ * each time; after {@value #MAX_EMPTY_GRABS} in a row (display gone, end of
+ * stream) the stream fails, every capture waiting for its first frame gets
+ * the error and the next capture opens the device again.
+ * </p>
+ */
+@Component
+@Slf4j
+public class FfmpegStreamCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "ffmpeg-stream";
+
+    private static final long START_TIMEOUT_MS = 5000;
+    static final int MAX_EMPTY_GRABS = 20;
+    static final int RECROP_CAPTURES = 20;
+    private static final long EMPTY_GRAB_BACKOFF_MS = 5;
+    private static final long MAX_EMPTY_GRAB_BACKOFF_MS = 100;
+
+    /**
+     * The frames of a running stream.
+     */
+    interface FrameSource extends AutoCloseable {
+
+        /**
+         * Waits for the next frame of the stream.
+         *
+         * @param pixels where to copy the frame to with a stride of the crop
+         *               width
+         * @return false if there was no frame
+         */
+        boolean next(int[] pixels) throws Exception;
+
+        @Override
+        void close() throws Exception;
+    }
+
+    @Value("${claude.automator.capture.ffmpeg-stream.frame-rate:10}")
+    private double frameRate = 10;
+
+    // X11 display to grab, empty for $DISPLAY
+    @Value("${claude.automator.capture.ffmpeg-stream.display:}")
+    private String display = "";
+
+    @Value("${claude.automator.capture.ffmpeg-stream.idle-stop-ms:30000}")
+    private long idleStopMillis = 30000;
+
+    private final Supplier<Rectangle> screenBounds;
+    private final Function<Rectangle, FrameSource> sources;
+
+    private final Object lock = new Object();
+    private Stream current;
+    private int waiting;
+    private long lastCaptureNanos;
+    // Frames decoded by every stream so far, and the one the last capture returned
+    private long decoded;
+    private long frameSequence;
+
+    public FfmpegStreamCaptureProvider() {
+        this.screenBounds = () -> GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration().getBounds();
+        this.sources = this::openGrabber;
+    }
+
+    /**
+     * Creates a provider that streams from the given sources, for tests.
+     */
+    FfmpegStreamCaptureProvider(Rectangle screen, Function<Rectangle, FrameSource> sources, long idleStopMillis) {
+        this.screenBounds = () -> screen;
+        this.sources = sources;
+        this.idleStopMillis = idleStopMillis;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !GraphicsEnvironment.isHeadless() && !x11Display().isEmpty();
+    }
+
+    /**
+     * Returns the latest frame of the whole screen, starting the stream or
+     * widening its crop if needed. The image is overwritten after the next
+     * capture.
+     */
+    @Override
+    public BufferedImage capture() throws IOException, InterruptedException {
+        Rectangle screen = screenBounds.get();
+        return capture(new Rectangle(screen.width, screen.height));
+    }
+
+    /**
+     * Returns the latest frame of the area, starting the stream or changing
+     * its crop if needed. Only a started stream waits, for its first frame.
+     */
+    @Override
+    public BufferedImage capture(Rectangle region) throws IOException, InterruptedException {
+        Rectangle screen = screenBounds.get();
+        Rectangle area = region.intersection(new Rectangle(screen.width, screen.height));
+        if (area.isEmpty()) {
+            return null;
+        }
+        synchronized (lock) {
+            lastCaptureNanos = System.nanoTime();
+            Stream stream = streamFor(area);
+            awaitFirstFrame(stream);
+            if (stream.readyIsNew) {
+                StreamBuffer previous = stream.front;
+                stream.front = stream.ready;
+                stream.ready = previous;
+                stream.frontSequence = stream.readySequence;
+                stream.readyIsNew = false;
+            }
+            frameSequence = stream.frontSequence;
+            Rectangle crop = stream.crop;
+            BufferedImage image = stream.front.image;
+            return area.equals(crop) ? image
+                    : image.getSubimage(area.x - crop.x, area.y - crop.y, area.width, area.height);
+        }
+    }
+
+    @Override
+    public boolean reusesImages() {
+        return true;
+    }
+
+    /**
+     * Number of the frame the last capture returned, counting the frames
+     * decoded since the provider was created; 0 before the first.
+     */
+    @Override
+    public long getFrameSequence() {
+        synchronized (lock) {
+            return frameSequence;
+        }
+    }
+
+    /**
+     * Whether a stream thread is running.
+     */
+    boolean isStreaming() {
+        synchronized (lock) {
+            return current != null && !current.ended;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = null;
+        synchronized (lock) {
+            if (current != null) {
+                current.stopRequested = true;
+                thread = current.thread;
+            }
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * The running stream if its crop suits the area, otherwise a new one.
+     * Called with the lock held.
+     */
+    private Stream streamFor(Rectangle area) {
+        Stream stream = current;
+        if (stream == null || stream.stopRequested) {
+            return start(area);
+        }
+        if (!stream.crop.contains(area)) {
+            log.debug("Capture of {} is outside the stream crop {}, reopening", area, stream.crop);
+            stream.stopRequested = true;
+            return start(area);
+        }
+        stream.wanted = stream.wanted == null ? new Rectangle(area) : stream.wanted.union(area);
+        if (++stream.captures < RECROP_CAPTURES) {
+            return stream;
+        }
+        Rectangle wanted = stream.wanted;
+        if (wanted.equals(stream.crop)) {
+            stream.wanted = null;
+            stream.captures = 0;
+            return stream;
+        }
+        log.debug("The last {} captures fit into {}, narrowing the stream crop {}", RECROP_CAPTURES, wanted,
+                stream.crop);
+        stream.stopRequested = true;
+        return start(wanted);
+    }
+
+    private Stream start(Rectangle crop) {
+        Stream stream = new Stream(crop);
+        current = stream;
+        stream.thread = new Thread(() -> stream(stream), "ffmpeg-stream");
+        stream.thread.setDaemon(true);
+        stream.thread.start();
+        return stream;
+    }
+
+    /**
+     * Waits until the stream decoded a frame. Called with the lock held.
+     */
+    private void awaitFirstFrame(Stream stream) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT_MS);
+        waiting++;
+        try {
+            while (stream.readySequence == 0 && stream.failure == null && !stream.stopRequested) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IOException("No frame from " + x11Display() + " within " + START_TIMEOUT_MS + " ms");
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+        } finally {
+            waiting--;
+        }
+        // Every capture that waited on a failed stream gets its error
+        if (stream.failure != null) {
+            throw new IOException(stream.failure);
+        }
+        if (stream.readySequence == 0) {
+            throw new IOException("FFmpeg stream of " + stream.crop + " stopped before its first frame");
+        }
+    }
+
+    private void stream(Stream stream) {
+        long frames = 0;
+        int emptyGrabs = 0;
+        Rectangle screen = screenBounds.get();
+        Rectangle device = new Rectangle(screen.x + stream.crop.x, screen.y + stream.crop.y,
+                stream.crop.width, stream.crop.height);
+        try (FrameSource source = sources.apply(device)) {
+            while (keepStreaming(stream)) {
+                if (!source.next(stream.back.pixels)) {
+                    if (++emptyGrabs >= MAX_EMPTY_GRABS) {
+                        throw new IOException("No frame in " + emptyGrabs + " grabs from " + x11Display());
+                    }
+                    // An interrupt from stop() ends the wait early
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(
+                            Math.min(EMPTY_GRAB_BACKOFF_MS * emptyGrabs, MAX_EMPTY_GRAB_BACKOFF_MS)));
+                    continue;
+                }
+                emptyGrabs = 0;
+                publish(stream);
+                frames++;
+            }
+            log.info("FFmpeg stream of {} stopped after {} frames", device, frames);
+        } catch (Exception | LinkageError e) {
+            synchronized (lock) {
+                if (!stream.stopRequested) {
+                    // Missing native libraries surface as linkage errors
+                    log.warn("FFmpeg stream failed: {}", e.toString());
+                    stream.failure = "FFmpeg stream failed: " + e;
+                    stream.stopRequested = true;
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                stream.ended = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Whether the stream should grab another frame. An idle stream is marked
+     * stopped here, under the lock, so a capture coming right after starts a
+     * new stream instead of waiting on this one.
+     */
+    private boolean keepStreaming(Stream stream) {
+        synchronized (lock) {
+            if (!stream.stopRequested && waiting == 0
+                    && System.nanoTime() - lastCaptureNanos > TimeUnit.MILLISECONDS.toNanos(idleStopMillis)) {
+                log.debug("No capture for {} ms, stopping the FFmpeg stream", idleStopMillis);
+                stream.stopRequested = true;
+            }
+            return !stream.stopRequested;
+        }
+    }
+
+    private void publish(Stream stream) {
+        synchronized (lock) {
+            StreamBuffer decodedFrame = stream.back;
+            stream.back = stream.ready;
+            stream.ready = decodedFrame;
+            stream.readySequence = ++decoded;
+            stream.readyIsNew = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Opens the x11grab stream of an area of the screen, in X11 coordinates.
+     */
+    private FrameSource openGrabber(Rectangle area) {
+        String device = x11Display() + "+" + area.x + "," + area.y;
+        long startedAt = System.nanoTime();
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(device);
+        grabber.setFormat("x11grab");
+        grabber.setImageWidth(area.width);
+        grabber.setImageHeight(area.height);
+        grabber.setFrameRate(frameRate);
+        grabber.setPixelFormat(avutil.AV_PIX_FMT_BGR0);
+        // Robot and SikuliX captures have no cursor either
+        grabber.setOption("draw_mouse", "0");
+        try {
+            grabber.start();
+        } catch (FFmpegFrameGrabber.Exception e) {
+            try {
+                grabber.release();
+            } catch (FFmpegFrameGrabber.Exception ignored) {
+                // Reporting the start failure matters more
+            }
+            throw new IllegalStateException("Cannot open " + device + ": " + e.getMessage(), e);
+        }
+        log.info("FFmpeg stream of {} at {} fps started in {} ms", device, frameRate,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+
+        return new FrameSource() {
+            @Override
+            public boolean next(int[] pixels) throws Exception {
+                Frame frame = grabber.grabImage();
+                if (frame == null || frame.image == null) {
+                    return false;
+                }
+                if (frame.imageWidth != area.width || frame.imageHeight != area.height) {
+                    throw new IOException("Stream frame is " + frame.imageWidth + "x" + frame.imageHeight
+                            + ", expected " + area.width + "x" + area.height);
+                }
+                copyBgr0((ByteBuffer) frame.image[0], frame.imageStride, area.width, area.height, pixels);
+                return true;
+            }
+
+            @Override
+            public void close() throws Exception {
+                grabber.close();
+            }
+        };
+    }
+
+    private String x11Display() {
+        if (display != null && !display.isBlank()) {
+            return display.trim();
+        }
+        String env = System.getenv("DISPLAY");
+        return env != null ? env : "";
+    }
+
+    /**
+     * Copies a {@code bgr0} frame into {@code pixels} with a stride of
+     * {@code width}. Read as little-endian ints, bgr0 pixels are 0x00RRGGBB.
+     *
+     * @param strideBytes bytes per row of the frame, at least 4 x width
+     */
+    static void copyBgr0(ByteBuffer data, int strideBytes, int width, int height, int[] pixels) {
+        IntBuffer ints = data.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        for (int y = 0; y < height; y++) {
+            ints.position(y * (strideBytes / 4));
+            ints.get(pixels, y * width, width);
+        }
+    }
+
+    /**
+     * One x11grab stream of a fixed crop and its buffers. The thread decodes
+     * into back and swaps it with ready; a capture swaps ready with front,
+     * which nothing else writes. Fields other than the buffers' pixels are
+     * guarded by the provider's lock.
+     */
+    private static final class Stream {
+
+        final Rectangle crop;
+        StreamBuffer back;
+        StreamBuffer ready;
+        StreamBuffer front;
+        Thread thread;
+        boolean readyIsNew;
+        long readySequence;
+        long frontSequence;
+        volatile boolean stopRequested;
+        boolean ended;
+        String failure;
+        // Union of the areas captured since the crop was last checked
+        Rectangle wanted;
+        int captures;
+
+        Stream(Rectangle crop) {
+            this.crop = new Rectangle(crop);
+            back = new StreamBuffer(crop.width, crop.height);
+            ready = new StreamBuffer(crop.width, crop.height);
+            front = new StreamBuffer(crop.width, crop.height);
+        }
+    }
+
+    /**
+     * One decoded frame and the image over it.
+     */
+    private static final class StreamBuffer {
+
+        final int width;
+        final int height;
+        final int[] pixels;
+        final BufferedImage image;
+
+        StreamBuffer(int width, int height) {
+            this.width = width;
+            this.height = height;
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+    }
+}
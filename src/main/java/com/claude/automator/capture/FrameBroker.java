@@ -0,0 +1,379 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.action.ObjectCollection;
+import io.github.jspinak.brobot.config.core.FrameworkSettings;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out one screen capture per monitoring tick.
+ *
+ * <p>
+ * A tick calls {@link #beginTick()} once. The first {@link #currentFrame()}
+ * after that captures the screen, and every later call in the same tick
+ * (finds, transitions, diagnostics) gets the same {@link CapturedFrame}. A
+ * frame older than {@code claude.automator.capture.staleness-ms} is captured
+ * again, so a slow tick never acts on an outdated screen.
+ * </p>
+ *
+ * <p>
+ * With {@code claude.automator.capture.roi.enabled}, consumers pass the screen
+ * area they search to {@link #currentFrame(Rectangle)} (e.g. the bounding box
+ * of the ClaudePrompt and ClaudeIcon search regions) and only that area is
+ * captured. A later request in the same tick for an area the frame does not
+ * cover captures the union of both. {@link #currentFrame()} asks for the
+ * whole screen, for diagnostics and callers without a search region; the
+ * first capture is always a full one, to learn the screen size. Brobot finds
+ * need a full frame, see {@link CapturedFrame#getScene()}, so callers only
+ * pass an area when they search the frame through {@code StateImageMatcher}.
+ * </p>
+ *
+ * <p>
+ * Frames requested with an area are searched through {@code StateImageMatcher}
+ * only, so they are copied into a ring of
+ * {@code claude.automator.capture.ring.slots} preallocated buffers (see
+ * {@link FrameRing}) and stop costing a frame-size allocation per tick. Full
+ * frames requested without an area go to Brobot finds and diagnostics, which
+ * may keep the image: they are handed over as captured, without a ring copy,
+ * and only copied if the provider overwrites its images. A Brobot find on a
+ * pooled frame, which happens only when a tick mixes both kinds of consumers,
+ * copies the slot, see {@link CapturedFrame#getScene()}. Every frame returned
+ * by {@link #currentFrame(Rectangle)} carries a reference for the caller, who
+ * closes it after the finds; the broker holds its own until the frame is
+ * replaced. If all slots are still referenced, the capture is used as it is.
+ * </p>
+ *
+ * <p>
+ * A provider that streams, see {@link ScreenCaptureProvider#getFrameSequence()},
+ * may return the frame it returned before, e.g. when ticks come faster than
+ * its frame rate. The broker then hands out the frame it stored for it again,
+ * with the same sequence, instead of copying it a second time. It keeps that
+ * frame, and its ring slot, until the provider returns a new one or
+ * {@link #invalidate()} drops it.
+ * </p>
+ *
+ * <p>
+ * Frames are captured through the provider chosen by
+ * {@link CaptureProviderSelector}. In mock mode, or when no provider works or
+ * the capture fails, {@link #currentFrame()} returns null and finds capture
+ * the screen themselves as before.
+ * </p>
+ */
+@Component
+@Slf4j
+public class FrameBroker {
+
+    @Autowired
+    private CaptureProviderSelector captureProviders;
+
+    @Value("${claude.automator.capture.staleness-ms:1000}")
+    private long stalenessMillis;
+
+    @Value("${claude.automator.capture.roi.enabled:true}")
+    private boolean regionCapture;
+
+    // 0 keeps every capture in its own image
+    @Value("${claude.automator.capture.ring.slots:3}")
+    private int ringSlots;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong captures = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong ringMisses = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private FrameRing ring;
+
+    private CapturedFrame frame;
+    // Last frame stored for a streaming provider, and the provider's number for it
+    private CapturedFrame lastStored;
+    private long lastProviderFrame;
+    // Size of the last full capture, null until there was one
+    private Dimension screenSize;
+
+    /**
+     * Starts a new tick: the next {@link #currentFrame()} captures the screen.
+     */
+    public synchronized void beginTick() {
+        replaceFrame(null);
+        ScreenCaptureProvider provider = FrameworkSettings.mock ? null : captureProviders.getProvider();
+        if (provider != null) {
+            provider.beginTick();
+        }
+    }
+
+    /**
+     * Drops the current frame, e.g. after input that changes the screen.
+     */
+    public synchronized void invalidate() {
+        replaceFrame(null);
+        replaceLastStored(null, 0);
+    }
+
+    /**
+     * Returns the full-screen frame of the current tick, capturing it if there
+     * is none yet, if it only shows a region or if it is older than the
+     * staleness window.
+     *
+     * @return the shared frame, to be closed by the caller, or null if the
+     * screen cannot be captured
+     */
+    public CapturedFrame currentFrame() {
+        return currentFrame(null);
+    }
+
+    /**
+     * Returns a frame of the current tick showing at least the given screen
+     * area, capturing it if there is none yet, if the current one does not
+     * cover the area or if it is older than the staleness window.
+     *
+     * @param area screen area the caller searches, or null for the whole
+     *             screen
+     * @return the shared frame, to be closed by the caller, or null if the
+     * screen cannot be captured
+     */
+    public synchronized CapturedFrame currentFrame(Rectangle area) {
+        if (FrameworkSettings.mock) {
+            return null;
+        }
+        ScreenCaptureProvider provider = captureProviders.getProvider();
+        if (provider == null) {
+            return null;
+        }
+        boolean fresh = frame != null && frame.ageMillis() <= stalenessMillis;
+        if (fresh && frame.covers(area)) {
+            reuses.incrementAndGet();
+            return frame.retain();
+        }
+        if (frame != null && !fresh) {
+            log.debug("{} is older than {} ms, capturing again", frame, stalenessMillis);
+        }
+
+        // Keep covering what earlier consumers of this tick searched
+        CapturedFrame captured = capture(provider, captureRegion(area, fresh ? frame : null), area != null);
+        replaceFrame(captured);
+        return captured == null ? null : captured.retain();
+    }
+
+    /**
+     * Captures a new frame of the given area for the caller alone, leaving
+     * the frame of the current tick in place. For threads that watch the
+     * screen between ticks, such as the streaming vanish detector.
+     *
+     * @param area screen area the caller searches, or null for the whole
+     *             screen
+     * @return a frame only the caller references, to be closed by it, or null
+     * if the screen cannot be captured
+     */
+    public synchronized CapturedFrame captureFrame(Rectangle area) {
+        if (FrameworkSettings.mock) {
+            return null;
+        }
+        ScreenCaptureProvider provider = captureProviders.getProvider();
+        if (provider == null) {
+            return null;
+        }
+        return capture(provider, captureRegion(area, null), area != null);
+    }
+
+    /**
+     * Captures the region, or the whole screen if it is null.
+     *
+     * @param pooled whether only {@code StateImageMatcher} searches the frame,
+     *               so it may live in a ring slot
+     * @return the new frame holding one reference, or null if the capture
+     * failed
+     */
+    private CapturedFrame capture(ScreenCaptureProvider provider, Rectangle region, boolean pooled) {
+        try {
+            BufferedImage image = region == null ? provider.capture() : provider.capture(region);
+            if (image == null) {
+                return null;
+            }
+            long providerFrame = provider.getFrameSequence();
+            if (providerFrame != 0 && providerFrame == lastProviderFrame && lastStored != null
+                    && lastStored.covers(region)) {
+                duplicates.incrementAndGet();
+                log.trace("{} returned frame {} again, reusing {}", provider.getName(), providerFrame, lastStored);
+                return lastStored.retain();
+            }
+            if (region == null) {
+                screenSize = new Dimension(image.getWidth(), image.getHeight());
+            }
+            captures.incrementAndGet();
+            CapturedFrame stored = store(image, region, provider.reusesImages(), pooled);
+            if (providerFrame != 0) {
+                replaceLastStored(stored.retain(), providerFrame);
+            }
+            return stored;
+        } catch (Exception e) {
+            log.warn("Shared capture failed, finds will capture individually: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Wraps the capture in a frame, in a ring slot if it is pooled and one is
+     * free. The broker's reference is the one the frame is created with.
+     *
+     * @param reused whether the provider overwrites the image later
+     * @param pooled whether the frame may live in a ring slot
+     */
+    private CapturedFrame store(BufferedImage image, Rectangle region, boolean reused, boolean pooled) {
+        long seq = sequence.incrementAndGet();
+        long now = System.nanoTime();
+        if (pooled && ringSlots > 0) {
+            if (ring == null) {
+                ring = new FrameRing(ringSlots);
+            }
+            CapturedFrame pooled = ring.store(image, seq, now, region, screenSize);
+            if (pooled != null) {
+                return pooled;
+            }
+            ringMisses.incrementAndGet();
+            log.debug("All {} frame slots are in use, keeping capture #{} as it is", ringSlots, seq);
+        }
+        if (reused) {
+            // The provider writes its next frame into this image
+            BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            FrameRing.copy(image, ((DataBufferInt) copy.getRaster().getDataBuffer()).getData(),
+                    image.getWidth(), image.getHeight());
+            image = copy;
+        }
+        return new CapturedFrame(image, seq, now, region, region != null ? screenSize : null);
+    }
+
+    private void replaceFrame(CapturedFrame replacement) {
+        if (frame != null) {
+            frame.release();
+        }
+        frame = replacement;
+    }
+
+    private void replaceLastStored(CapturedFrame replacement, long providerFrame) {
+        if (lastStored != null) {
+            lastStored.release();
+        }
+        lastStored = replacement;
+        lastProviderFrame = providerFrame;
+    }
+
+    /**
+     * The screen region to capture for the area, or null for a full capture.
+     */
+    private Rectangle captureRegion(Rectangle area, CapturedFrame current) {
+        if (!regionCapture || area == null || screenSize == null) {
+            return null;
+        }
+        Rectangle screen = new Rectangle(screenSize);
+        Rectangle region = area.intersection(screen);
+        if (current != null) {
+            region = region.isEmpty() ? current.getBounds() : region.union(current.getBounds());
+        }
+        if (region.isEmpty() || region.equals(screen)) {
+            return null;
+        }
+        return region;
+    }
+
+    /**
+     * Returns the frame held for the current tick without capturing, or null.
+     * No reference is added, so only its metadata may be read.
+     */
+    public synchronized CapturedFrame peekFrame() {
+        return frame;
+    }
+
+    /**
+     * Builds an ObjectCollection that searches the given images in the given
+     * frame, or on the live screen if the frame is null. The collection must
+     * be used while the caller holds its reference to the frame.
+     */
+    public static ObjectCollection collectionFor(CapturedFrame frame, StateImage... images) {
+        ObjectCollection.Builder builder = new ObjectCollection.Builder().withImages(images);
+        if (frame != null) {
+            builder.withScenes(frame.getScene());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the bounding box of the search regions of the given images' patterns,
+     * or null if none of them has one yet and the whole screen is searched.
+     * Regions relative to another of the images are resolved against its last
+     * match, see {@link SearchRegionResolver}.
+     */
+    public static Rectangle searchArea(StateImage... images) {
+        Rectangle union = null;
+        for (StateImage image : images) {
+            StateImage anchor = SearchRegionResolver.anchorOf(image, images);
+            for (Pattern pattern : image.getPatterns()) {
+                for (Region region : SearchRegionResolver.regionsForSearch(image, pattern, anchor)) {
+                    Rectangle rect = new Rectangle(region.x(), region.y(), region.w(), region.h());
+                    union = union == null ? rect : union.union(rect);
+                }
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Whether the frames are a replayed recording (see
+     * {@link ReplayCaptureProvider}): state checks and finds must search the
+     * frames of the broker, since the desktop is not what they show, and input
+     * is recorded instead of sent.
+     */
+    public boolean isReplaying() {
+        if (FrameworkSettings.mock) {
+            return false;
+        }
+        ScreenCaptureProvider provider = captureProviders.getProvider();
+        return provider != null && provider.isReplay();
+    }
+
+    /**
+     * Number of screen captures taken.
+     */
+    public long getCaptureCount() {
+        return captures.get();
+    }
+
+    /**
+     * Number of requests served from an existing frame instead of a capture.
+     */
+    public long getReuseCount() {
+        return reuses.get();
+    }
+
+    /**
+     * Number of captures that returned a frame the broker already stored.
+     */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * Number of captures kept outside the ring because every slot was in use.
+     */
+    public long getRingMissCount() {
+        return ringMisses.get();
+    }
+
+    /**
+     * Pixel memory held by the frame ring, in bytes.
+     */
+    public synchronized long getRingBytes() {
+        return ring != null ? ring.allocatedBytes() : 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.claude.automator.capture;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed number of preallocated frame buffers that captures are copied into.
+ *
+ * <p>
+ * Each slot owns one {@code int[]} raster large enough for the whole screen
+ * and a {@code TYPE_INT_RGB} image over it, which the matchers read without
+ * conversion. A slot is handed out as a {@link CapturedFrame} and is only
+ * written again once every reference to that frame has been released, so once
+ * all slots exist the steady state allocates no frame memory for the matchers.
+ * {@link FrameBroker} only stores frames that {@code StateImageMatcher} alone
+ * searches; a Brobot find on a pooled frame copies it, see
+ * {@link CapturedFrame#getScene()}. If every slot is still referenced,
+ * {@link #store} returns null and the caller keeps the capture as it is.
+ * </p>
+ *
+ * <p>
+ * Capturing threads are serialized by {@link FrameBroker}; releases may come
+ * from any thread.
+ * </p>
+ */
+final class FrameRing {
+
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+
+    private final Slot[] slots;
+    private int next;
+
+    FrameRing(int size) {
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Copies the capture into the next free slot.
+     *
+     * @param region     screen area the capture shows, or null for the whole
+     *                   screen
+     * @param screenSize size of the whole screen, or null for the capture size
+     * @return a frame backed by the slot with one reference held by the caller,
+     * or null if every slot is still referenced
+     */
+    synchronized CapturedFrame store(BufferedImage capture, long sequence, long capturedAtNanos, Rectangle region,
+                                     Dimension screenSize) {
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[(next + i) % slots.length];
+            if (slot.references.compareAndSet(0, 1)) {
+                next = (next + i + 1) % slots.length;
+                BufferedImage image = slot.write(capture);
+                return new CapturedFrame(image, sequence, capturedAtNanos, region, screenSize, slot);
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * Pixel memory held by all slots, in bytes.
+     */
+    synchronized long allocatedBytes() {
+        long bytes = 0;
+        for (Slot slot : slots) {
+            bytes += slot.pixels.length * 4L;
+        }
+        return bytes;
+    }
+
+    /**
+     * One frame buffer and the number of references to the frame it holds.
+     */
+    static final class Slot {
+
+        private final AtomicInteger references = new AtomicInteger();
+        private int[] pixels = new int[0];
+        // View of the current width and height, rebuilt only when they change
+        private BufferedImage image;
+
+        void retain() {
+            if (references.getAndIncrement() <= 0) {
+                references.getAndDecrement();
+                throw new IllegalStateException("Frame was already released");
+            }
+        }
+
+        void release() {
+            if (references.decrementAndGet() < 0) {
+                references.incrementAndGet();
+                throw new IllegalStateException("Frame released more often than retained");
+            }
+        }
+
+        int references() {
+            return references.get();
+        }
+
+        private BufferedImage write(BufferedImage capture) {
+            int width = capture.getWidth();
+            int height = capture.getHeight();
+            if (pixels.length < width * height) {
+                pixels = new int[width * height];
+                image = null;
+            }
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, width * height),
+                        width, height, width, RGB.getMasks(), null);
+                image = new BufferedImage(RGB, raster, false, null);
+            }
+            copy(capture, pixels, width, height);
+            return image;
+        }
+    }
+
+    /**
+     * Copies the capture's RGB values into {@code pixels} with a stride of
+     * {@code width}. Int rasters, including sub-images of full captures, are
+     * copied row by row; other types are converted by
+     * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+     */
+    static void copy(BufferedImage capture, int[] pixels, int width, int height) {
+        IntPixels source = IntPixels.of(capture);
+        if (source != null) {
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(source.data(), source.index(0, y), pixels, y * width, width);
+            }
+            return;
+        }
+        capture.getRGB(0, 0, width, height, pixels, 0, width);
+    }
+}
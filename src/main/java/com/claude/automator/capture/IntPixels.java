@@ -0,0 +1,50 @@
+package com.claude.automator.capture;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Direct view of the pixels of an int RGB image.
+ *
+ * <p>
+ * Screen captures are {@code TYPE_INT_RGB} images, whose pixels can be read
+ * straight from the backing array instead of through
+ * {@link BufferedImage#getRGB(int, int)}. Sub-images share the array of the
+ * full capture and start at an offset into it, which {@link #index(int, int)}
+ * accounts for.
+ * </p>
+ *
+ * @param data   the backing array, pixels as {@code 0x??RRGGBB}
+ * @param origin index of the image's pixel (0, 0)
+ * @param stride array elements per image row
+ */
+public record IntPixels(int[] data, int origin, int stride) {
+
+    /**
+     * Returns the pixels of an int RGB or ARGB image, or null if the image
+     * stores them differently and has to be read through {@code getRGB}.
+     */
+    public static IntPixels of(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        int type = image.getType();
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && raster.getDataBuffer() instanceof DataBufferInt buffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel model) {
+            int stride = model.getScanlineStride();
+            // A sub-image's raster is translated by its position in the parent
+            int origin = buffer.getOffset() - raster.getSampleModelTranslateY() * stride
+                    - raster.getSampleModelTranslateX();
+            return new IntPixels(buffer.getData(), origin, stride);
+        }
+        return null;
+    }
+
+    /**
+     * Index of the image's pixel (x, y) in {@link #data()}.
+     */
+    public int index(int x, int y) {
+        return origin + y * stride + x;
+    }
+}
@@ -0,0 +1,436 @@
+package com.claude.automator.capture;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Plays a recording as the screen: a directory of PNGs in file name order,
+ * or a video file decoded by FFmpeg.
+ *
+ * <p>
+ * With {@code claude.automator.capture.provider=replay}, every capture of
+ * {@link FrameBroker} comes from {@code claude.automator.capture.replay.source},
+ * e.g. to benchmark change detection and matching on recorded sessions or to
+ * run the monitoring in headless CI. While replaying
+ * ({@link FrameBroker#isReplaying()}), the monitoring tick checks the required
+ * states in the replayed frame instead of through StateAwareScheduler, Brobot
+ * finds search the frame as a Scene, diagnostics save the frame instead of
+ * capturing the desktop, and the clicks, typing and mouse moves of the
+ * transitions are recorded by {@code ReplayInput} instead of sent. The
+ * provider is only available when named explicitly, so a startup benchmark
+ * never consumes frames.
+ * </p>
+ *
+ * <p>
+ * In {@code fast} mode the recording moves one frame per monitoring tick
+ * ({@link FrameBroker#beginTick()}), and every capture within a tick, e.g.
+ * after {@link FrameBroker#invalidate()} or of a larger region, returns the
+ * same frame. A run is therefore deterministic per tick and as fast as the
+ * ticks allow; a vanish stream evaluating frames between ticks sees the frame
+ * of the current tick. In {@code realtime} mode the recording plays at its own
+ * pace from the first capture on, PNGs at
+ * {@code claude.automator.capture.replay.frame-rate}, and a capture returns
+ * the last frame whose time has come. At the end the recording starts again
+ * if {@code claude.automator.capture.replay.loop} is set, and otherwise keeps
+ * showing its last frame; either way the frames per second achieved are
+ * logged.
+ * </p>
+ */
+@Component
+@Slf4j
+public class ReplayCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "replay";
+    public static final String FAST = "fast";
+
+    @Value("${claude.automator.capture.provider:" + CaptureProviderSelector.AUTO + "}")
+    private String configuredProvider = CaptureProviderSelector.AUTO;
+
+    // Directory of PNGs or a video file, empty to disable
+    @Value("${claude.automator.capture.replay.source:}")
+    private String source = "";
+
+    @Value("${claude.automator.capture.replay.mode:" + FAST + "}")
+    private String mode = FAST;
+
+    // Pace of PNG sequences in realtime mode; videos use their timestamps
+    @Value("${claude.automator.capture.replay.frame-rate:10}")
+    private double frameRate = 10;
+
+    @Value("${claude.automator.capture.replay.loop:false}")
+    private boolean loop;
+
+    private final LongSupplier nanoClock;
+
+    private Recording recording;
+    private boolean finished;
+    private boolean tickPending;
+    private long startNanos;
+    private long framesShown;
+    private long framesServed;
+
+    public ReplayCaptureProvider() {
+        this.nanoClock = System::nanoTime;
+    }
+
+    /**
+     * Creates a provider outside Spring, e.g. for a benchmark.
+     */
+    public ReplayCaptureProvider(String source, String mode, double frameRate, boolean loop) {
+        this(source, mode, frameRate, loop, System::nanoTime);
+    }
+
+    /**
+     * Creates a provider whose realtime mode follows the given clock.
+     */
+    ReplayCaptureProvider(String source, String mode, double frameRate, boolean loop, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.configuredProvider = NAME;
+        this.source = source;
+        this.mode = mode;
+        this.frameRate = frameRate;
+        this.loop = loop;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return NAME.equalsIgnoreCase(configuredProvider.trim()) && !source.isBlank() && new File(source).exists();
+    }
+
+    @Override
+    public boolean isReplay() {
+        return true;
+    }
+
+    @Override
+    public synchronized BufferedImage capture() throws IOException {
+        if (recording == null) {
+            open();
+        }
+        if (!recording.hasFrame()) {
+            advance();
+        } else if (!FAST.equalsIgnoreCase(mode.trim())) {
+            catchUp();
+        } else if (tickPending) {
+            advance();
+        }
+        tickPending = false;
+        framesServed++;
+        return recording.image();
+    }
+
+    /**
+     * In fast mode, moves the next capture to the next frame.
+     */
+    @Override
+    public synchronized void beginTick() {
+        tickPending = true;
+    }
+
+    /**
+     * Moves to the last frame whose timestamp is not after the elapsed time.
+     * The last frame is shown for one more frame interval before a loop.
+     */
+    private void catchUp() throws IOException {
+        while (!finished) {
+            long elapsed = elapsedMicros();
+            long next = recording.nextTimestampMicros();
+            if (next >= 0 && next > elapsed) {
+                return;
+            }
+            if (next < 0 && loop && elapsed < recording.timestampMicros() + frameIntervalMicros()) {
+                return;
+            }
+            // Looping reopens the recording and restarts the clock
+            advance();
+            if (next < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Average time between the frames shown so far.
+     */
+    private long frameIntervalMicros() {
+        return framesShown > 1 ? recording.timestampMicros() / (framesShown - 1) : 0;
+    }
+
+    /**
+     * Video frames are decoded into one reused buffer.
+     */
+    @Override
+    public synchronized boolean reusesImages() {
+        return recording == null || recording instanceof VideoRecording;
+    }
+
+    /**
+     * Starts the recording from its first frame again.
+     */
+    public synchronized void rewind() throws IOException {
+        closeRecording();
+        finished = false;
+    }
+
+    /**
+     * Whether the recording has ended without looping.
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Number of distinct frames shown since the recording was opened.
+     */
+    public synchronized long getFramesShown() {
+        return framesShown;
+    }
+
+    private void open() throws IOException {
+        File file = new File(source);
+        recording = file.isDirectory() ? new PngRecording(file, frameRate) : new VideoRecording(file);
+        startNanos = nanoClock.getAsLong();
+        framesShown = 0;
+        framesServed = 0;
+        log.info("Replaying {} ({} mode{})", file, mode, loop ? ", looping" : "");
+    }
+
+    private void advance() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (recording.next()) {
+            framesShown++;
+            return;
+        }
+        logThroughput();
+        if (!loop || framesShown == 0) {
+            // Keep showing the last frame
+            finished = true;
+            if (!recording.hasFrame()) {
+                throw new IOException("Recording " + source + " has no frames");
+            }
+            return;
+        }
+        closeRecording();
+        open();
+        advance();
+    }
+
+    private long elapsedMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(nanoClock.getAsLong() - startNanos);
+    }
+
+    private void logThroughput() {
+        double seconds = (nanoClock.getAsLong() - startNanos) / 1e9;
+        log.info("Replay of {} ended: {} frames in {} captures over {} s, {} frames per second", source,
+                framesShown, framesServed, String.format("%.1f", seconds),
+                String.format("%.1f", framesShown / Math.max(seconds, 1e-9)));
+    }
+
+    private void closeRecording() throws IOException {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * A recording read front to back.
+     */
+    private interface Recording extends AutoCloseable {
+
+        /**
+         * Moves to the next frame.
+         *
+         * @return false at the end, keeping the current frame
+         */
+        boolean next() throws IOException;
+
+        boolean hasFrame();
+
+        /**
+         * When the current frame is shown, relative to the first.
+         */
+        long timestampMicros();
+
+        /**
+         * When the next frame is shown, relative to the first, or -1 at the
+         * end. May read the next frame ahead.
+         */
+        long nextTimestampMicros() throws IOException;
+
+        BufferedImage image();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * PNG files of a directory in file name order, at a fixed frame rate.
+     */
+    private static final class PngRecording implements Recording {
+
+        private final File[] files;
+        private final double frameRate;
+        private int index = -1;
+        private BufferedImage image;
+
+        PngRecording(File directory, double frameRate) throws IOException {
+            File[] pngs = directory.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+            if (pngs == null) {
+                throw new IOException("Cannot list " + directory);
+            }
+            Arrays.sort(pngs, Comparator.comparing(File::getName));
+            this.files = pngs;
+            this.frameRate = frameRate;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (index + 1 >= files.length) {
+                return false;
+            }
+            BufferedImage read = ImageIO.read(files[index + 1]);
+            if (read == null) {
+                throw new IOException("Not a readable image: " + files[index + 1]);
+            }
+            index++;
+            image = read;
+            return true;
+        }
+
+        @Override
+        public boolean hasFrame() {
+            return image != null;
+        }
+
+        @Override
+        public long timestampMicros() {
+            return timestampOf(index);
+        }
+
+        @Override
+        public long nextTimestampMicros() {
+            return index + 1 < files.length ? timestampOf(index + 1) : -1;
+        }
+
+        private long timestampOf(int frame) {
+            return (long) (frame * 1_000_000L / frameRate);
+        }
+
+        @Override
+        public BufferedImage image() {
+            return image;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Video frames in decoding order, with their presentation timestamps. The
+     * next frame is decoded ahead into a second buffer when its timestamp is
+     * asked for.
+     */
+    private static final class VideoRecording implements Recording {
+
+        private final FFmpegFrameGrabber grabber;
+        private BufferedImage image;
+        private long firstTimestamp = -1;
+        private long timestamp;
+
+        private BufferedImage ahead;
+        private long aheadTimestamp;
+        // Whether ahead holds the next frame, and whether the video has ended
+        private boolean aheadRead;
+        private boolean ended;
+
+        VideoRecording(File video) throws IOException {
+            grabber = new FFmpegFrameGrabber(video);
+            grabber.setPixelFormat(avutil.AV_PIX_FMT_BGR0);
+            grabber.start();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!aheadRead && !readAhead()) {
+                return false;
+            }
+            BufferedImage previous = image;
+            image = ahead;
+            ahead = previous;
+            timestamp = aheadTimestamp;
+            aheadRead = false;
+            return true;
+        }
+
+        @Override
+        public long nextTimestampMicros() throws IOException {
+            return aheadRead || readAhead() ? aheadTimestamp : -1;
+        }
+
+        private boolean readAhead() throws IOException {
+            if (ended) {
+                return false;
+            }
+            Frame frame = grabber.grabImage();
+            if (frame == null || frame.image == null) {
+                ended = true;
+                return false;
+            }
+            if (ahead == null || ahead.getWidth() != frame.imageWidth || ahead.getHeight() != frame.imageHeight) {
+                ahead = new BufferedImage(frame.imageWidth, frame.imageHeight, BufferedImage.TYPE_INT_RGB);
+            }
+            FfmpegStreamCaptureProvider.copyBgr0((ByteBuffer) frame.image[0], frame.imageStride, frame.imageWidth,
+                    frame.imageHeight, ((DataBufferInt) ahead.getRaster().getDataBuffer()).getData());
+            if (firstTimestamp < 0) {
+                firstTimestamp = frame.timestamp;
+            }
+            aheadTimestamp = frame.timestamp - firstTimestamp;
+            aheadRead = true;
+            return true;
+        }
+
+        @Override
+        public boolean hasFrame() {
+            return image != null;
+        }
+
+        @Override
+        public long timestampMicros() {
+            return timestamp;
+        }
+
+        @Override
+        public BufferedImage image() {
+            return image;
+        }
+
+        @Override
+        public void close() throws IOException {
+            grabber.close();
+        }
+    }
+}
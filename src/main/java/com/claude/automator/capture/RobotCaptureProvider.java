@@ -0,0 +1,55 @@
+package com.claude.automator.capture;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures the default screen with {@link Robot#createScreenCapture}.
+ */
+@Component
+public class RobotCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "robot";
+
+    private Robot robot;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !GraphicsEnvironment.isHeadless();
+    }
+
+    @Override
+    public BufferedImage capture() throws AWTException {
+        return robot().createScreenCapture(screenBounds());
+    }
+
+    @Override
+    public BufferedImage capture(Rectangle region) throws AWTException {
+        Rectangle screen = screenBounds();
+        Rectangle area = new Rectangle(screen.x + region.x, screen.y + region.y, region.width, region.height)
+                .intersection(screen);
+        return area.isEmpty() ? null : robot().createScreenCapture(area);
+    }
+
+    private static Rectangle screenBounds() {
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration().getBounds();
+    }
+
+    private synchronized Robot robot() throws AWTException {
+        if (robot == null) {
+            robot = new Robot();
+        }
+        return robot;
+    }
+}
@@ -0,0 +1,97 @@
+package com.claude.automator.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * One way of capturing the whole screen.
+ *
+ * <p>
+ * Implementations wrap the capture paths the application can use: SikuliX,
+ * {@code java.awt.Robot}, JavaCV FFmpeg (one-shot and streaming), Brobot's
+ * configured capture service, and the replay of a recording.
+ * {@link CaptureProviderSelector} benchmarks them at startup and
+ * {@link FrameBroker} captures through the one it picks. Implementations must
+ * be thread-safe.
+ * </p>
+ */
+public interface ScreenCaptureProvider {
+
+    /**
+     * Provider name used in {@code claude.automator.capture.provider}.
+     */
+    String getName();
+
+    /**
+     * Whether this provider can run in the current environment at all, e.g.
+     * false for Robot on a headless JVM.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Captures the whole screen.
+     *
+     * @return the capture, or null if nothing was captured
+     * @throws Exception if the underlying capture fails
+     */
+    BufferedImage capture() throws Exception;
+
+    /**
+     * Called by {@link FrameBroker#beginTick()} when a monitoring tick starts.
+     * Live providers ignore it; a replay moves to the next recorded frame.
+     */
+    default void beginTick() {
+    }
+
+    /**
+     * Whether the frames come from a recording instead of the desktop. The
+     * application then searches only the frames of {@link FrameBroker} and
+     * records its input instead of sending it, see {@link FrameBroker#isReplaying()}.
+     */
+    default boolean isReplay() {
+        return false;
+    }
+
+    /**
+     * Whether the images returned by a capture are overwritten by a later
+     * one, e.g. the buffers of a streaming grabber. {@link FrameBroker} then
+     * copies a capture it cannot copy into its frame ring.
+     */
+    default boolean reusesImages() {
+        return false;
+    }
+
+    /**
+     * Number of the frame the last capture returned, for providers that hand
+     * out the frames of a running stream: two captures with the same number
+     * returned the same frame, which {@link FrameBroker} then does not store
+     * again. 0 if the provider cannot tell, e.g. because every capture grabs
+     * the screen anew.
+     */
+    default long getFrameSequence() {
+        return 0;
+    }
+
+    /**
+     * Captures one area of the screen, in the coordinates of
+     * {@link #capture()}. Providers that can grab a region directly override
+     * this; the default returns a sub-image of a full capture, which
+     * {@link FrameBroker} copies into its frame ring, so it saves memory for
+     * the rest of the tick but not capture time.
+     *
+     * @return the capture, or null if nothing was captured
+     */
+    default BufferedImage capture(Rectangle region) throws Exception {
+        BufferedImage screen = capture();
+        if (screen == null) {
+            return null;
+        }
+        Rectangle clipped = region.intersection(new Rectangle(screen.getWidth(), screen.getHeight()));
+        if (clipped.isEmpty()) {
+            return null;
+        }
+        return screen.getSubimage(clipped.x, clipped.y, clipped.width, clipped.height);
+    }
+}
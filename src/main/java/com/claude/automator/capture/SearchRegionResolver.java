@@ -0,0 +1,89 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.element.SearchRegionOnObject;
+import io.github.jspinak.brobot.model.match.Match;
+import io.github.jspinak.brobot.model.state.StateImage;
+
+import java.util.List;
+
+/**
+ * Resolves the search regions of a pattern the way a Brobot find does,
+ * including regions declared relative to another object.
+ *
+ * <p>
+ * {@link Pattern#getRegionsForSearch()} only knows the pattern's own regions
+ * and returns the whole screen when there are none. An image with a
+ * {@link SearchRegionOnObject}, like ClaudeIcon next to ClaudePrompt, is
+ * searched by Brobot in the first last match of the target object, moved and
+ * grown by the adjustments. Code that searches frames outside Brobot, and the
+ * {@link FrameBroker} deciding which area to capture, resolve regions here so
+ * they search the same small area. Like Brobot, a fixed pattern that has
+ * already been found is searched at its fixed region, and without a match of
+ * the target the pattern's own regions are used.
+ * </p>
+ */
+public final class SearchRegionResolver {
+
+    private SearchRegionResolver() {
+    }
+
+    /**
+     * Returns the regions to search the pattern of the image in.
+     *
+     * @param anchor the object the image's search region is relative to, or
+     *               null if it has none or it is unknown
+     */
+    public static List<Region> regionsForSearch(StateImage image, Pattern pattern, StateImage anchor) {
+        boolean fixedFound = pattern.isFixed() && pattern.getSearchRegions() != null
+                && pattern.getSearchRegions().getFixedRegion() != null
+                && pattern.getSearchRegions().getFixedRegion().isDefined();
+        if (!fixedFound && anchor != null) {
+            Region relative = relativeRegion(image.getSearchRegionOnObject(), anchor);
+            if (relative != null) {
+                return List.of(relative);
+            }
+        }
+        return pattern.getRegionsForSearch();
+    }
+
+    /**
+     * Returns the image among the candidates that the search region of the
+     * image is declared relative to, or null.
+     */
+    public static StateImage anchorOf(StateImage image, StateImage... candidates) {
+        SearchRegionOnObject onObject = image.getSearchRegionOnObject();
+        if (onObject == null || onObject.getTargetObjectName() == null) {
+            return null;
+        }
+        for (StateImage candidate : candidates) {
+            if (candidate != image && onObject.getTargetObjectName().equals(candidate.getName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first last match of the anchor with the adjustments applied, or
+     * null if the anchor has not been found.
+     */
+    static Region relativeRegion(SearchRegionOnObject onObject, StateImage anchor) {
+        List<Match> matches = anchor.getLastMatchesFound();
+        if (onObject == null || matches == null || matches.isEmpty() || matches.get(0).getRegion() == null) {
+            return null;
+        }
+        Region target = matches.get(0).getRegion();
+        MatchAdjustmentOptions adjustments = onObject.getAdjustments();
+        if (adjustments == null) {
+            return new Region(target.x(), target.y(), target.w(), target.h());
+        }
+        return new Region(
+                target.x() + adjustments.getAddX(),
+                target.y() + adjustments.getAddY(),
+                target.w() + adjustments.getAddW(),
+                target.h() + adjustments.getAddH());
+    }
+}
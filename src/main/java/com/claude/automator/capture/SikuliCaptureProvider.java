@@ -0,0 +1,49 @@
+package com.claude.automator.capture;
+
+import org.sikuli.script.Screen;
+import org.sikuli.script.ScreenImage;
+import org.springframework.stereotype.Component;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures the primary screen with SikuliX {@link Screen#capture()}.
+ */
+@Component
+public class SikuliCaptureProvider implements ScreenCaptureProvider {
+
+    public static final String NAME = "sikuli";
+
+    private Screen screen;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !GraphicsEnvironment.isHeadless();
+    }
+
+    @Override
+    public BufferedImage capture() {
+        ScreenImage image = screen().capture();
+        return image != null ? image.getImage() : null;
+    }
+
+    @Override
+    public BufferedImage capture(Rectangle region) {
+        ScreenImage image = screen().capture(region);
+        return image != null ? image.getImage() : null;
+    }
+
+    private synchronized Screen screen() {
+        if (screen == null) {
+            screen = new Screen();
+        }
+        return screen;
+    }
+}
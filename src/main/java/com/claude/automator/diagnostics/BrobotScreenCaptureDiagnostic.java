@@ -1,5 +1,6 @@
 package com.claude.automator.diagnostics;
 
+import com.claude.automator.capture.CapturedFrame;
 import lombok.extern.slf4j.Slf4j;
 import org.sikuli.script.Screen;
 import org.sikuli.script.ScreenImage;
@@ -55,6 +56,23 @@ public class BrobotScreenCaptureDiagnostic {
         }
     }
     
+    /**
+     * Saves the shared frame of the current tick - the image the finds actually
+     * searched - instead of taking a new capture.
+     */
+    public void saveFrame(CapturedFrame frame, String context) {
+        if (frame == null) {
+            log.info("No shared frame to save for {}", context);
+            return;
+        }
+        try {
+            String filename = saveScreenshot(frame.getImage(), context + "_frame" + frame.getSequence());
+            log.info("Shared frame {} saved to: {}", frame, filename);
+        } catch (IOException e) {
+            log.error("Failed to save shared frame", e);
+        }
+    }
+    
     /**
      * Captures using SikuliX Screen.capture() method - exactly how Brobot does it
      */
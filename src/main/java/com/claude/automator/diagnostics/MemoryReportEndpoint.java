@@ -0,0 +1,26 @@
+package com.claude.automator.diagnostics;
+
+import com.claude.automator.automation.ContinuousModeMaintenance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the per-subsystem memory report used to verify
+ * that continuous monitoring keeps heap and disk usage flat.
+ */
+@Component
+@Endpoint(id = "memoryreport")
+@RequiredArgsConstructor
+public class MemoryReportEndpoint {
+
+    private final ContinuousModeMaintenance maintenance;
+
+    @ReadOperation
+    public Map<String, Object> memoryReport() {
+        return maintenance.memoryReport();
+    }
+}
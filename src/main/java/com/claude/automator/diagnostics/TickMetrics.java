@@ -0,0 +1,213 @@
+package com.claude.automator.diagnostics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records where the time of each monitoring tick goes.
+ *
+ * <p>
+ * A tick is opened with {@link #startTick()} and closed with
+ * {@link #finishTick(long)}. In between, {@link #enter(Phase)} marks the start
+ * of a phase; the time until the next {@code enter} or the end of the tick is
+ * charged to that phase. A phase may be entered several times per tick, its
+ * times are added up and recorded once when the tick finishes. The open tick
+ * is bound to the calling thread, so {@code enter} is a no-op on threads
+ * without a tick (for example the streaming vanish detector).
+ * </p>
+ *
+ * <p>
+ * Ticks that take longer than their budget are counted as overruns and logged
+ * with their phase breakdown. A summary of all histograms is logged every
+ * {@code claude.automator.metrics.summary-interval} seconds and is available
+ * from the {@code tickmetrics} actuator endpoint.
+ * </p>
+ */
+@Component
+@Slf4j
+public class TickMetrics {
+
+    public enum Phase {
+        CAPTURE, REGION_RESOLUTION, CHANGE_DETECTION, MATCH, STATE_UPDATE, LOGGING
+    }
+
+    @Value("${claude.automator.metrics.summary-interval:60}")
+    private int summaryIntervalSeconds;
+
+    private final Map<Phase, LatencyHistogram> phaseHistograms = new EnumMap<>(Phase.class);
+    private final LatencyHistogram tickHistogram = new LatencyHistogram();
+    private final AtomicLong overruns = new AtomicLong();
+    private final ThreadLocal<TickTimer> currentTick = new ThreadLocal<>();
+
+    private ScheduledExecutorService summaryLogger;
+
+    public TickMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseHistograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    @PostConstruct
+    void startSummaryLogging() {
+        if (summaryIntervalSeconds <= 0) {
+            return;
+        }
+        summaryLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tick-metrics-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryLogger.scheduleAtFixedRate(this::logSummary,
+                summaryIntervalSeconds, summaryIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stopSummaryLogging() {
+        if (summaryLogger != null) {
+            summaryLogger.shutdownNow();
+        }
+    }
+
+    /**
+     * Opens a tick on the calling thread.
+     */
+    public void startTick() {
+        currentTick.set(new TickTimer(System.nanoTime()));
+    }
+
+    /**
+     * Charges the time from now on to the given phase.
+     */
+    public void enter(Phase phase) {
+        TickTimer tick = currentTick.get();
+        if (tick != null) {
+            tick.enter(phase, System.nanoTime());
+        }
+    }
+
+    /**
+     * Closes the tick of the calling thread and records its phase times.
+     *
+     * @param budgetNanos the time the tick may take before it counts as an overrun
+     */
+    public void finishTick(long budgetNanos) {
+        TickTimer tick = currentTick.get();
+        if (tick == null) {
+            return;
+        }
+        currentTick.remove();
+
+        long now = System.nanoTime();
+        tick.enter(null, now);
+        long total = now - tick.startNanos;
+        tickHistogram.record(total);
+        for (Phase phase : Phase.values()) {
+            if (tick.entered[phase.ordinal()]) {
+                phaseHistograms.get(phase).record(tick.phaseNanos[phase.ordinal()]);
+            }
+        }
+
+        if (total > budgetNanos) {
+            long overrunCount = overruns.incrementAndGet();
+            log.warn("Tick overran its {} ms budget: {} ms {} (overrun #{})",
+                    TimeUnit.NANOSECONDS.toMillis(budgetNanos), TimeUnit.NANOSECONDS.toMillis(total),
+                    tick.breakdown(), overrunCount);
+        }
+    }
+
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    public LatencyHistogram getHistogram(Phase phase) {
+        return phaseHistograms.get(phase);
+    }
+
+    public LatencyHistogram getTickHistogram() {
+        return tickHistogram;
+    }
+
+    /**
+     * Approximate heap used by the histograms; constant for the whole run.
+     */
+    public long footprintBytes() {
+        return (phaseHistograms.size() + 1) * LatencyHistogram.footprintBytes();
+    }
+
+    /**
+     * Returns the tick and per-phase histograms plus the overrun count.
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("ticks", tickHistogram.summary());
+        summary.put("overruns", overruns.get());
+        Map<String, Object> phases = new LinkedHashMap<>();
+        phaseHistograms.forEach((phase, histogram) -> phases.put(phase.name(), histogram.summary()));
+        summary.put("phases", phases);
+        return summary;
+    }
+
+    void logSummary() {
+        if (tickHistogram.getCount() == 0) {
+            return;
+        }
+        log.info("Tick latency: {} overruns={}", tickHistogram.summary(), overruns.get());
+        phaseHistograms.forEach((phase, histogram) -> {
+            if (histogram.getCount() > 0) {
+                log.info("  {}: {}", phase, histogram.summary());
+            }
+        });
+    }
+
+    /**
+     * Phase times of one open tick. Only used by the thread that opened it.
+     */
+    private static final class TickTimer {
+        private final long startNanos;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private final boolean[] entered = new boolean[Phase.values().length];
+        private Phase current;
+        private long currentSince;
+
+        private TickTimer(long startNanos) {
+            this.startNanos = startNanos;
+            this.currentSince = startNanos;
+        }
+
+        private void enter(Phase phase, long now) {
+            if (current != null) {
+                phaseNanos[current.ordinal()] += now - currentSince;
+            }
+            if (phase != null) {
+                entered[phase.ordinal()] = true;
+            }
+            current = phase;
+            currentSince = now;
+        }
+
+        private String breakdown() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Phase phase : Phase.values()) {
+                if (entered[phase.ordinal()]) {
+                    if (sb.length() > 1) {
+                        sb.append(", ");
+                    }
+                    sb.append(phase).append('=')
+                            .append(TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()])).append("ms");
+                }
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
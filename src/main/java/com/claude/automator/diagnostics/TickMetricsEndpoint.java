@@ -0,0 +1,29 @@
+package com.claude.automator.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the monitoring tick histograms.
+ *
+ * <p>
+ * Available as {@code /actuator/tickmetrics} when a web server is running, and
+ * over JMX otherwise (see the management properties in application.properties).
+ * </p>
+ */
+@Component
+@Endpoint(id = "tickmetrics")
+@RequiredArgsConstructor
+public class TickMetricsEndpoint {
+
+    private final TickMetrics tickMetrics;
+
+    @ReadOperation
+    public Map<String, Object> tickMetrics() {
+        return tickMetrics.summary();
+    }
+}
@@ -0,0 +1,108 @@
+package com.claude.automator.matching;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-place iterative radix-2 complex FFT of one power-of-two length, with its
+ * twiddle factors and bit reversal permutation precomputed.
+ *
+ * <p>
+ * Instances are immutable and shared between threads through
+ * {@link #ofLength(int)}. Transforms are unscaled in both directions: a forward
+ * and an inverse transform multiply the data by the length.
+ * </p>
+ */
+final class Fft {
+
+    private static final Map<Integer, Fft> INSTANCES = new ConcurrentHashMap<>();
+
+    final int length;
+    // Twiddles of each butterfly stage stored contiguously: the stage of span
+    // 2h starts at index h - 1
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    private Fft(int length) {
+        this.length = length;
+        cos = new double[Math.max(1, length - 1)];
+        sin = new double[Math.max(1, length - 1)];
+        for (int half = 1; half < length; half <<= 1) {
+            for (int k = 0; k < half; k++) {
+                double angle = -Math.PI * k / half;
+                cos[half - 1 + k] = Math.cos(angle);
+                sin[half - 1 + k] = Math.sin(angle);
+            }
+        }
+        reversed = new int[length];
+        int bits = Integer.numberOfTrailingZeros(length);
+        for (int i = 0; i < length; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * Returns the transform of the given length, which must be a power of two.
+     */
+    static Fft ofLength(int length) {
+        if (length < 1 || Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("FFT length must be a power of two: " + length);
+        }
+        return INSTANCES.computeIfAbsent(length, Fft::new);
+    }
+
+    /**
+     * Smallest power of two of at least {@code n}.
+     */
+    static int paddedLength(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Transforms {@code re[0..length)} and {@code im[0..length)} in place.
+     *
+     * @param inverse uses conjugate twiddles, without the 1/length scaling
+     */
+    void transform(double[] re, double[] im, boolean inverse) {
+        for (int i = 0; i < length; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        double direction = inverse ? -1 : 1;
+        // The first stage only adds and subtracts neighbours
+        for (int a = 0; a + 1 < length; a += 2) {
+            double tr = re[a + 1];
+            double ti = im[a + 1];
+            re[a + 1] = re[a] - tr;
+            im[a + 1] = im[a] - ti;
+            re[a] += tr;
+            im[a] += ti;
+        }
+        for (int half = 2; half < length; half <<= 1) {
+            int size = half << 1;
+            int twiddles = half - 1;
+            for (int start = 0; start < length; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[twiddles + k];
+                    double wi = direction * sin[twiddles + k];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
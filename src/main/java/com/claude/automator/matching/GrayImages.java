@@ -0,0 +1,66 @@
+package com.claude.automator.matching;
+
+import com.claude.automator.capture.IntPixels;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Converts image areas to luminance planes (0-255, stored as floats) without
+ * allocating.
+ *
+ * <p>
+ * Screen captures are {@code TYPE_INT_RGB} images, whose pixels are read
+ * straight from the backing int array. Other image types go through
+ * {@link BufferedImage#getRGB(int, int)}, which is slower but still writes
+ * into the caller's buffer.
+ * </p>
+ */
+final class GrayImages {
+
+    private GrayImages() {
+    }
+
+    /**
+     * Writes the luminance (0-255) of the area into {@code gray}, row by row
+     * with a stride of {@code area.width}. Floats hold these values exactly
+     * and are what the {@link RowKernel}s operate on.
+     */
+    static void toGray(BufferedImage image, Rectangle area, float[] gray) {
+        IntPixels direct = IntPixels.of(image);
+        if (direct != null) {
+            int[] pixels = direct.data();
+            for (int y = 0; y < area.height; y++) {
+                int row = direct.index(area.x, area.y + y);
+                int out = y * area.width;
+                for (int x = 0; x < area.width; x++) {
+                    gray[out + x] = luminance(pixels[row + x]);
+                }
+            }
+            return;
+        }
+        for (int y = 0; y < area.height; y++) {
+            int out = y * area.width;
+            for (int x = 0; x < area.width; x++) {
+                gray[out + x] = luminance(image.getRGB(area.x + x, area.y + y));
+            }
+        }
+    }
+
+    /**
+     * Returns a new luminance array of the whole image.
+     */
+    static float[] toGray(BufferedImage image) {
+        float[] gray = new float[image.getWidth() * image.getHeight()];
+        toGray(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()), gray);
+        return gray;
+    }
+
+    static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        // ITU-R BT.601 weights in 8-bit fixed point
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+}
@@ -0,0 +1,204 @@
+package com.claude.automator.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Predicts which pattern of a multi-pattern StateImage is most likely to
+ * match next.
+ *
+ * <p>
+ * Pattern names are split into an animation frame and a scale group: a
+ * trailing two or three digit suffix such as {@code -80} names the scale group,
+ * the rest names the frame. {@code claude-icon-3-80} is frame
+ * {@code claude-icon-3} in scale group {@code 80}, {@code claude-icon-3} is the
+ * same frame in the default group.
+ * </p>
+ *
+ * <p>
+ * The predictor learns a first-order Markov chain over frames from the
+ * sequence of hits and remembers the scale group of the last hit.
+ * {@link #searchOrder()} lists the patterns of the winning scale group first,
+ * ordered by how often each frame followed the last matched frame, then the
+ * other groups in the same frame order. Without history the frames after the
+ * last match are tried in declaration order, which follows the animation cycle.
+ * </p>
+ *
+ * <p>
+ * Transition counts are halved once a row reaches {@value #MAX_ROW_TOTAL}, so
+ * the chain follows changes in animation speed or polling rate. Not
+ * thread-safe by itself; all methods are synchronized.
+ * </p>
+ */
+public class IconFramePredictor {
+
+    private static final Pattern SCALE_SUFFIX = Pattern.compile("^(.*)-(\\d{2,3})$");
+    static final int MAX_ROW_TOTAL = 1000;
+
+    private final int patternCount;
+    private final int[] frameOf;
+    private final int[] groupOf;
+    // patternAt[group][frame], or -1 if that combination has no pattern
+    private final int[][] patternAt;
+    private final int[][] transitions;
+    private final int[] rowTotals;
+
+    private int lastFrame = -1;
+    private int winningGroup;
+
+    private long searches;
+    private long attempts;
+    private long hits;
+
+    public IconFramePredictor(List<String> patternNames) {
+        patternCount = patternNames.size();
+        frameOf = new int[patternCount];
+        groupOf = new int[patternCount];
+
+        Map<String, Integer> frames = new LinkedHashMap<>();
+        Map<String, Integer> groups = new LinkedHashMap<>();
+        for (int i = 0; i < patternCount; i++) {
+            String name = baseName(patternNames.get(i));
+            Matcher scaled = SCALE_SUFFIX.matcher(name);
+            String frame = scaled.matches() ? scaled.group(1) : name;
+            String group = scaled.matches() ? scaled.group(2) : "";
+            frameOf[i] = frames.computeIfAbsent(frame, k -> frames.size());
+            groupOf[i] = groups.computeIfAbsent(group, k -> groups.size());
+        }
+
+        patternAt = new int[groups.size()][frames.size()];
+        for (int[] row : patternAt) {
+            Arrays.fill(row, -1);
+        }
+        for (int i = patternCount - 1; i >= 0; i--) {
+            // The first declaration wins if a name appears twice
+            patternAt[groupOf[i]][frameOf[i]] = i;
+        }
+        transitions = new int[frames.size()][frames.size()];
+        rowTotals = new int[frames.size()];
+    }
+
+    /**
+     * Returns every pattern index, most likely match first.
+     */
+    public synchronized int[] searchOrder() {
+        List<Integer> frameOrder = frameOrder();
+        int[] order = new int[patternCount];
+        int n = 0;
+        n = appendGroup(order, n, winningGroup, frameOrder);
+        for (int group = 0; group < patternAt.length; group++) {
+            if (group != winningGroup) {
+                n = appendGroup(order, n, group, frameOrder);
+            }
+        }
+        // Duplicate names are tried last, in declaration order
+        boolean[] listed = new boolean[patternCount];
+        for (int i = 0; i < n; i++) {
+            listed[order[i]] = true;
+        }
+        for (int i = 0; i < patternCount; i++) {
+            if (!listed[i]) {
+                order[n++] = i;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Records that the pattern at the given index matched after the given
+     * number of patterns were tried.
+     */
+    public synchronized void recordHit(int patternIndex, int tried) {
+        int frame = frameOf[patternIndex];
+        if (lastFrame >= 0) {
+            transitions[lastFrame][frame]++;
+            if (++rowTotals[lastFrame] >= MAX_ROW_TOTAL) {
+                decay(lastFrame);
+            }
+        }
+        lastFrame = frame;
+        winningGroup = groupOf[patternIndex];
+        searches++;
+        attempts += tried;
+        hits++;
+    }
+
+    /**
+     * Records a search in which no pattern matched. The last frame is kept, as
+     * the icon usually comes back where the animation left off.
+     */
+    public synchronized void recordMiss(int tried) {
+        searches++;
+        attempts += tried;
+    }
+
+    /**
+     * Average number of patterns tried per search.
+     */
+    public synchronized double getAverageAttempts() {
+        return searches == 0 ? 0 : (double) attempts / searches;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    private List<Integer> frameOrder() {
+        int frameCount = transitions.length;
+        List<Integer> order = new ArrayList<>(frameCount);
+        for (int frame = 0; frame < frameCount; frame++) {
+            order.add(frame);
+        }
+        if (lastFrame < 0) {
+            return order;
+        }
+        int[] counts = transitions[lastFrame];
+        int successor = (lastFrame + 1) % frameCount;
+        order.sort(Comparator
+                .comparingInt((Integer frame) -> -counts[frame])
+                .thenComparingInt(frame -> Math.floorMod(frame - successor, frameCount)));
+        return order;
+    }
+
+    private int appendGroup(int[] order, int n, int group, List<Integer> frameOrder) {
+        for (int frame : frameOrder) {
+            int index = patternAt[group][frame];
+            if (index >= 0) {
+                order[n++] = index;
+            }
+        }
+        return n;
+    }
+
+    private void decay(int frame) {
+        int total = 0;
+        for (int next = 0; next < transitions[frame].length; next++) {
+            transitions[frame][next] /= 2;
+            total += transitions[frame][next];
+        }
+        rowTotals[frame] = total;
+    }
+
+    /**
+     * The name of the pattern a pre-scaled copy was made from, e.g.
+     * {@code claude-icon-3} for {@code working/claude-icon-3-80.png}, or null
+     * if the name has no scale suffix.
+     */
+    static String scaledCopySource(String name) {
+        Matcher scaled = SCALE_SUFFIX.matcher(baseName(name));
+        return scaled.matches() ? scaled.group(1) : null;
+    }
+
+    static String baseName(String name) {
+        String base = name == null ? "" : name;
+        base = base.substring(Math.max(base.lastIndexOf('/'), base.lastIndexOf('\\')) + 1);
+        int dot = base.lastIndexOf('.');
+        return dot > 0 ? base.substring(0, dot) : base;
+    }
+}
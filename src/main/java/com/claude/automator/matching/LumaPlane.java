@@ -0,0 +1,111 @@
+package com.claude.automator.matching;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * A reusable luminance plane with integral images of its values and their
+ * squares, so the sum and sum of squares of any window cost four lookups.
+ *
+ * <p>
+ * Values are integers stored as floats: 0-255 at full resolution and the
+ * unnormalized 2x2 sums at downsampled levels. Normalized cross-correlation
+ * is invariant to that scale, and floats hold the sums exactly. Buffers only
+ * grow, so reloading a plane of the same or smaller size allocates nothing.
+ * </p>
+ */
+final class LumaPlane {
+
+    float[] pixels = new float[0];
+    long[] sum = new long[0];
+    long[] sumSq = new long[0];
+    int width;
+    int height;
+
+    /**
+     * Loads the luminance of an image area.
+     */
+    void load(BufferedImage image, Rectangle area) {
+        resize(area.width, area.height);
+        GrayImages.toGray(image, area, pixels);
+        buildIntegrals();
+    }
+
+    /**
+     * Loads a copy of the given values.
+     */
+    void load(float[] values, int valuesWidth, int valuesHeight) {
+        resize(valuesWidth, valuesHeight);
+        System.arraycopy(values, 0, pixels, 0, valuesWidth * valuesHeight);
+        buildIntegrals();
+    }
+
+    /**
+     * Loads the source plane at half resolution, each pixel being the sum of
+     * a 2x2 block. An odd last row or column is dropped.
+     */
+    void downsample(LumaPlane source) {
+        resize(source.width / 2, source.height / 2);
+        for (int y = 0; y < height; y++) {
+            int top = 2 * y * source.width;
+            int bottom = top + source.width;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int sx = 2 * x;
+                pixels[out + x] = source.pixels[top + sx] + source.pixels[top + sx + 1]
+                        + source.pixels[bottom + sx] + source.pixels[bottom + sx + 1];
+            }
+        }
+        buildIntegrals();
+    }
+
+    long windowSum(int x, int y, int w, int h) {
+        int integralWidth = width + 1;
+        int a = y * integralWidth + x;
+        int c = a + h * integralWidth;
+        return sum[c + w] - sum[a + w] - sum[c] + sum[a];
+    }
+
+    long windowSumSq(int x, int y, int w, int h) {
+        int integralWidth = width + 1;
+        int a = y * integralWidth + x;
+        int c = a + h * integralWidth;
+        return sumSq[c + w] - sumSq[a + w] - sumSq[c] + sumSq[a];
+    }
+
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        if (pixels.length < width * height) {
+            pixels = new float[width * height];
+        }
+        int integralSize = (width + 1) * (height + 1);
+        if (sum.length < integralSize) {
+            sum = new long[integralSize];
+            sumSq = new long[integralSize];
+        }
+    }
+
+    private void buildIntegrals() {
+        int integralWidth = width + 1;
+        for (int x = 0; x <= width; x++) {
+            sum[x] = 0;
+            sumSq[x] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            long rowSum = 0;
+            long rowSumSq = 0;
+            int above = y * integralWidth;
+            int current = above + integralWidth;
+            sum[current] = 0;
+            sumSq[current] = 0;
+            for (int x = 0; x < width; x++) {
+                long value = (long) pixels[y * width + x];
+                rowSum += value;
+                rowSumSq += value * value;
+                sum[current + x + 1] = sum[above + x + 1] + rowSum;
+                sumSq[current + x + 1] = sumSq[above + x + 1] + rowSumSq;
+            }
+        }
+    }
+}
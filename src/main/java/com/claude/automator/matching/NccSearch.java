@@ -0,0 +1,497 @@
+package com.claude.automator.matching;
+
+import java.util.Arrays;
+
+/**
+ * Scans window positions of a {@link LumaPlane} and scores each with the
+ * normalized cross-correlation against a {@link PreparedTemplate}.
+ *
+ * <p>
+ * One instance per thread: it owns the row buffers. Scores are reported to a
+ * {@link ScoreSink} so callers can keep the best position or the best few
+ * without allocating.
+ * </p>
+ *
+ * <p>
+ * Each row of window positions goes through a rejection cascade before any
+ * correlation: windows without contrast, and with a {@link WindowPrefilter}
+ * windows whose mean or contrast is far from the template's, are dropped
+ * using the integral images alone. The surviving windows of a row are
+ * correlated run by run, bridging short gaps, so the kernels keep working on
+ * contiguous positions, and rows without survivors are skipped entirely.
+ * </p>
+ *
+ * <p>
+ * The correlation itself stops early. Every {@value #CHECK_ROWS} template
+ * rows, each window gets an upper bound of its final score: the partial sum so
+ * far plus the largest contribution the remaining rows could make (by
+ * Cauchy-Schwarz, from the template's row tail norms and the window's
+ * remaining deviation, itself from the integral images). Windows whose bound
+ * is below {@link ScoreSink#threshold()} are abandoned, and runs are narrowed
+ * to the windows still alive. The sink raises its threshold as it finds
+ * better matches, so the cost follows the number of near-matches rather than
+ * area times template size.
+ * </p>
+ *
+ * <p>
+ * Several templates of the same size can be scanned in one pass. Window
+ * statistics are then computed once per position, and every template is
+ * correlated against a row of windows before moving to the next row, so the
+ * pixels of that row are read from cache instead of memory for all but the
+ * first template.
+ * </p>
+ *
+ * <p>
+ * Masked templates (see {@link PreparedTemplate}) are scanned one at a time.
+ * Their window statistics are summed over the opaque runs from per-row
+ * prefix sums, and the correlation visits those runs only, so
+ * the work per window follows the opaque area. The early termination bound
+ * still holds: the deviation of the remaining rows of the whole window is at
+ * least that of their opaque pixels.
+ * </p>
+ */
+final class NccSearch {
+
+    /**
+     * Receives the score of every window that may still clear its threshold.
+     */
+    interface ScoreSink {
+
+        void accept(int x, int y, double score);
+
+        /**
+         * Lowest score still of interest; windows that cannot reach it are
+         * not scored to completion. May rise during a scan.
+         */
+        double threshold();
+    }
+
+    private static final int MIN_GAP = 16;
+    private static final int CHUNK = 64;
+    static final int CHECK_ROWS = 4;
+    // Float sums are not exact; never abandon a window that might tie the threshold
+    private static final double BOUND_SLACK = 1e-4;
+
+    private float[] cross = new float[0];
+    private double[] windowMeans = new double[0];
+    private double[] windowVariances = new double[0];
+    private double[] windowNorms = new double[0];
+    // Statistics of masked windows, from per-row prefix sums
+    private long[] maskedSums = new long[0];
+    private long[] maskedSumSqs = new long[0];
+    private int[] rowSums = new int[0];
+    private int[] rowSumSqs = new int[0];
+
+    private final PreparedTemplate[] singleTemplate = new PreparedTemplate[1];
+    private final ScoreSink[] singleSink = new ScoreSink[1];
+
+    /**
+     * Scores the window origins in {@code [x0, x1] x [y0, y1]}, clipped to the
+     * positions where the template fits in the plane.
+     *
+     * @param prefilter rejects windows before correlation, or null to score
+     *                  every window with contrast
+     */
+    void scan(LumaPlane plane, PreparedTemplate template, int x0, int y0, int x1, int y1,
+              RowKernel kernel, WindowPrefilter prefilter, ScoreSink sink) {
+        if (template.isMasked()) {
+            scanMasked(plane, template, x0, y0, x1, y1, kernel, prefilter, sink);
+            return;
+        }
+        singleTemplate[0] = template;
+        singleSink[0] = sink;
+        scan(plane, singleTemplate, singleSink, 1, x0, y0, x1, y1, kernel, prefilter);
+    }
+
+    /**
+     * Scores the same window origins against the first {@code count}
+     * templates in one pass, reporting the scores of {@code templates[k]} to
+     * {@code sinks[k]}. All templates must have the same size and be
+     * unmasked.
+     */
+    void scan(LumaPlane plane, PreparedTemplate[] templates, ScoreSink[] sinks, int count,
+              int x0, int y0, int x1, int y1, RowKernel kernel, WindowPrefilter prefilter) {
+        int tw = templates[0].width;
+        int th = templates[0].height;
+        int fromX = Math.max(0, x0);
+        int fromY = Math.max(0, y0);
+        int toX = Math.min(plane.width - tw, x1);
+        int toY = Math.min(plane.height - th, y1);
+        if (fromX > toX || fromY > toY) {
+            return;
+        }
+
+        int positions = toX - fromX + 1;
+        grow(positions);
+        int n = tw * th;
+
+        for (int y = fromY; y <= toY; y++) {
+            // Window statistics only depend on the size, so all templates share them
+            boolean any = false;
+            for (int i = 0; i < positions; i++) {
+                int x = fromX + i;
+                long windowSum = plane.windowSum(x, y, tw, th);
+                double windowVariance = plane.windowSumSq(x, y, tw, th) - (double) windowSum * windowSum / n;
+                windowMeans[i] = (double) windowSum / n;
+                windowVariances[i] = windowVariance;
+                any |= windowVariance >= 1e-6;
+            }
+            if (!any) {
+                continue;
+            }
+            for (int k = 0; k < count; k++) {
+                scanRow(plane, templates[k], fromX, y, positions, kernel, prefilter, sinks[k]);
+            }
+        }
+    }
+
+    /**
+     * Scores one row of windows against one template, using the window
+     * statistics of the row.
+     */
+    private void scanRow(LumaPlane plane, PreparedTemplate template, int fromX, int y, int positions,
+                         RowKernel kernel, WindowPrefilter prefilter, ScoreSink sink) {
+        int n = template.width * template.height;
+        // A negative norm marks a rejected or abandoned window
+        boolean any = false;
+        for (int i = 0; i < positions; i++) {
+            double windowVariance = windowVariances[i];
+            if (windowVariance < 1e-6
+                    || (prefilter != null && !prefilter.accepts(template, windowMeans[i] * n, windowVariance, n))) {
+                windowNorms[i] = -1;
+                continue;
+            }
+            windowNorms[i] = Math.sqrt(windowVariance * template.variance);
+            any = true;
+        }
+        if (!any) {
+            return;
+        }
+        correlateSurvivors(plane, template, fromX, y, positions, kernel, sink);
+    }
+
+    /**
+     * Scores the window origins of a masked template, computing the window
+     * statistics over its opaque pixels.
+     */
+    private void scanMasked(LumaPlane plane, PreparedTemplate template, int x0, int y0, int x1, int y1,
+                            RowKernel kernel, WindowPrefilter prefilter, ScoreSink sink) {
+        int fromX = Math.max(0, x0);
+        int fromY = Math.max(0, y0);
+        int toX = Math.min(plane.width - template.width, x1);
+        int toY = Math.min(plane.height - template.height, y1);
+        if (fromX > toX || fromY > toY) {
+            return;
+        }
+
+        int positions = toX - fromX + 1;
+        grow(positions);
+        int n = template.opaque;
+        int th = template.height;
+        int[] runStarts = template.runStarts;
+        int[] runXs = template.runXs;
+        int[] runLengths = template.runLengths;
+
+        int stride = plane.width + 1;
+        buildRowPrefixes(plane, fromY, toY + th);
+
+        for (int y = fromY; y <= toY; y++) {
+            // Run by run over the whole row of windows, so each pass reads the prefixes sequentially
+            Arrays.fill(maskedSums, 0, positions, 0);
+            Arrays.fill(maskedSumSqs, 0, positions, 0);
+            for (int j = 0; j < th; j++) {
+                int row = (y + j) * stride + fromX;
+                for (int r = runStarts[j]; r < runStarts[j + 1]; r++) {
+                    addRunSums(row + runXs[r], runLengths[r], positions);
+                }
+            }
+            boolean any = false;
+            for (int i = 0; i < positions; i++) {
+                long windowSum = maskedSums[i];
+                double windowVariance = maskedSumSqs[i] - (double) windowSum * windowSum / n;
+                windowMeans[i] = (double) windowSum / n;
+                if (windowVariance < 1e-6
+                        || (prefilter != null && !prefilter.accepts(template, windowSum, windowVariance, n))) {
+                    windowNorms[i] = -1;
+                    continue;
+                }
+                windowNorms[i] = Math.sqrt(windowVariance * template.variance);
+                any = true;
+            }
+            if (any) {
+                correlateSurvivors(plane, template, fromX, y, positions, kernel, sink);
+            }
+        }
+    }
+
+    /**
+     * Fills the prefix sums of the values and their squares along each row
+     * in {@code [fromY, toY)}, with a leading 0 per row, so a run of any
+     * length costs two reads per sum. Rows of at most 32k pixels fit an int.
+     */
+    private void buildRowPrefixes(LumaPlane plane, int fromY, int toY) {
+        int stride = plane.width + 1;
+        if (rowSums.length < plane.height * stride) {
+            rowSums = new int[plane.height * stride];
+            rowSumSqs = new int[plane.height * stride];
+        }
+        for (int y = fromY; y < toY; y++) {
+            int in = y * plane.width;
+            int out = y * stride;
+            int sum = 0;
+            int sumSq = 0;
+            rowSums[out] = 0;
+            rowSumSqs[out] = 0;
+            for (int x = 0; x < plane.width; x++) {
+                int value = (int) plane.pixels[in + x];
+                sum += value;
+                sumSq += value * value;
+                rowSums[out + x + 1] = sum;
+                rowSumSqs[out + x + 1] = sumSq;
+            }
+        }
+    }
+
+    /**
+     * Adds the sums of the {@code length} pixels from prefix index
+     * {@code start} to the statistics of {@code positions} consecutive
+     * windows.
+     */
+    private void addRunSums(int start, int length, int positions) {
+        int end = start + length;
+        for (int i = 0; i < positions; i++) {
+            maskedSums[i] += rowSums[end + i] - rowSums[start + i];
+            maskedSumSqs[i] += rowSumSqs[end + i] - rowSumSqs[start + i];
+        }
+    }
+
+    /**
+     * Correlates the windows of row {@code y} that have a norm, in runs.
+     */
+    private void correlateSurvivors(LumaPlane plane, PreparedTemplate template, int fromX, int y, int positions,
+                                    RowKernel kernel, ScoreSink sink) {
+        int start = 0;
+        while (start < positions) {
+            if (windowNorms[start] < 0) {
+                start++;
+                continue;
+            }
+            // Bridge short gaps: restarting the kernel costs more than correlating a few rejected windows
+            int end = start + 1;
+            int gap = 0;
+            while (end + gap < positions && gap < MIN_GAP) {
+                if (windowNorms[end + gap] >= 0) {
+                    end += gap + 1;
+                    gap = 0;
+                } else {
+                    gap++;
+                }
+            }
+            for (int chunk = start; chunk < end; chunk += CHUNK) {
+                correlate(plane, template, fromX, y, chunk, Math.min(end, chunk + CHUNK), kernel, sink);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Correlates the windows {@code [lo, hi)} of row {@code y}, abandoning
+     * those that cannot reach the sink's threshold, and reports the rest.
+     */
+    private void correlate(LumaPlane plane, PreparedTemplate template, int fromX, int y, int lo, int hi,
+                           RowKernel kernel, ScoreSink sink) {
+        int tw = template.width;
+        int th = template.height;
+        float[] values = template.values;
+        float[] pixels = plane.pixels;
+        int width = plane.width;
+        int[] runStarts = template.runStarts;
+
+        // cross[k] belongs to window lo + k; the template is zero-mean, so the
+        // window mean cancels out of the numerator
+        Arrays.fill(cross, 0, hi - lo, 0f);
+        for (int j = 0; j < th; j++) {
+            int row = (y + j) * width + fromX + lo;
+            if (runStarts == null) {
+                kernel.correlateRow(values, j * tw, tw, pixels, row, cross, hi - lo);
+            } else {
+                // Transparent values are 0, so only the opaque runs contribute
+                for (int r = runStarts[j]; r < runStarts[j + 1]; r++) {
+                    int x = template.runXs[r];
+                    kernel.correlateRow(values, j * tw + x, template.runLengths[r], pixels, row + x, cross, hi - lo);
+                }
+            }
+
+            int done = j + 1;
+            if (done % CHECK_ROWS != 0 || done == th) {
+                continue;
+            }
+            double threshold = sink.threshold() - BOUND_SLACK;
+            int remainingRows = th - done;
+            int remaining = tw * remainingRows;
+            double tailSum = template.rowTailSums[done];
+            double tailNorm = template.rowTailNorms[done];
+            for (int i = lo; i < hi; i++) {
+                if (windowNorms[i] < 0) {
+                    continue;
+                }
+                // Remaining numerator = sum t*(w - mean) + mean * sum t over the remaining rows
+                int x = fromX + i;
+                double mean = windowMeans[i];
+                double deviationSq = plane.windowSumSq(x, y + done, tw, remainingRows)
+                        - 2 * mean * plane.windowSum(x, y + done, tw, remainingRows)
+                        + remaining * mean * mean;
+                double bound = (cross[i - lo] + mean * tailSum + tailNorm * Math.sqrt(Math.max(0, deviationSq)))
+                        / windowNorms[i];
+                if (bound < threshold) {
+                    windowNorms[i] = -1;
+                }
+            }
+            int newLo = lo;
+            while (newLo < hi && windowNorms[newLo] < 0) {
+                newLo++;
+            }
+            while (hi > newLo && windowNorms[hi - 1] < 0) {
+                hi--;
+            }
+            if (newLo == hi) {
+                return;
+            }
+            if (newLo > lo) {
+                System.arraycopy(cross, newLo - lo, cross, 0, hi - newLo);
+                lo = newLo;
+            }
+        }
+
+        for (int i = lo; i < hi; i++) {
+            if (windowNorms[i] >= 0) {
+                sink.accept(fromX + i, y, cross[i - lo] / windowNorms[i]);
+            }
+        }
+    }
+
+    private void grow(int positions) {
+        if (windowNorms.length < positions) {
+            cross = new float[Math.min(positions, CHUNK)];
+            windowMeans = new double[positions];
+            windowVariances = new double[positions];
+            windowNorms = new double[positions];
+            maskedSums = new long[positions];
+            maskedSumSqs = new long[positions];
+        }
+    }
+
+    /**
+     * Keeps the highest score of at least the minimum.
+     */
+    static final class BestScore implements ScoreSink {
+
+        int x;
+        int y;
+        double score;
+        private double minScore;
+
+        /**
+         * Forgets the best score; windows scoring below {@code minScore} may
+         * be abandoned.
+         */
+        void reset(double minScore) {
+            this.minScore = minScore;
+            score = -1;
+        }
+
+        @Override
+        public void accept(int x, int y, double score) {
+            if (score > this.score) {
+                this.x = x;
+                this.y = y;
+                this.score = score;
+            }
+        }
+
+        @Override
+        public double threshold() {
+            return Math.max(minScore, score);
+        }
+    }
+
+    /**
+     * Keeps the best few positions of at least a minimum score, at most one
+     * per neighbourhood so a single strong peak does not fill every slot.
+     * Once full, the weakest kept score is the threshold: a window scoring
+     * lower could not replace anything.
+     */
+    static final class TopScores implements ScoreSink {
+
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+        double[] scores = new double[0];
+        int size;
+        private int capacity;
+        private int radiusX;
+        private int radiusY;
+        private double minScore;
+
+        /**
+         * @param capacity number of positions to keep
+         * @param radiusX  positions closer than this horizontally and
+         *                 vertically count as the same neighbourhood
+         */
+        void reset(double minScore, int capacity, int radiusX, int radiusY) {
+            this.minScore = minScore;
+            this.capacity = capacity;
+            this.radiusX = radiusX;
+            this.radiusY = radiusY;
+            size = 0;
+            if (xs.length < capacity) {
+                xs = new int[capacity];
+                ys = new int[capacity];
+                scores = new double[capacity];
+            }
+        }
+
+        @Override
+        public void accept(int x, int y, double score) {
+            if (score < minScore) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (Math.abs(xs[i] - x) <= radiusX && Math.abs(ys[i] - y) <= radiusY) {
+                    if (score > scores[i]) {
+                        set(i, x, y, score);
+                    }
+                    return;
+                }
+            }
+            if (size < capacity) {
+                set(size++, x, y, score);
+                return;
+            }
+            int weakest = weakest();
+            if (score > scores[weakest]) {
+                set(weakest, x, y, score);
+            }
+        }
+
+        @Override
+        public double threshold() {
+            return size < capacity ? minScore : Math.max(minScore, scores[weakest()]);
+        }
+
+        private int weakest() {
+            int weakest = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] < scores[weakest]) {
+                    weakest = i;
+                }
+            }
+            return weakest;
+        }
+
+        private void set(int i, int x, int y, double score) {
+            xs[i] = x;
+            ys[i] = y;
+            scores[i] = score;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.claude.automator.matching;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pure-Java {@link TemplateMatcher} using normalized cross-correlation on
+ * luminance.
+ *
+ * <p>
+ * For the small patterns of this application (25x25 icons, short prompt
+ * glyphs) the fixed cost of a SikuliX find, native Mat allocation and JNI
+ * calls, dominates the actual correlation. This backend avoids both:
+ * </p>
+ * <ul>
+ * <li>each template is converted once to zero-mean luminance and cached with
+ * its norm</li>
+ * <li>the searched area is converted into a per-thread {@link LumaPlane}
+ * together with integral images of the values and their squares, so the
+ * window mean and variance at every offset cost four lookups each</li>
+ * <li>workspaces only grow, so a steady stream of finds allocates nothing</li>
+ * <li>the correlation runs through a {@link RowKernel}, one template row against
+ * a whole row of window positions, with the Vector API when available (see
+ * {@link RowKernels})</li>
+ * <li>with {@code claude.automator.matching.prefilter.enabled}, windows whose
+ * mean luminance or contrast is far from the template's are rejected from the
+ * integral images before they are correlated (see {@link WindowPrefilter})</li>
+ * <li>windows are abandoned part way once they cannot beat the best score so
+ * far, or the similarity threshold; {@link #matchAll} keeps a running top-k
+ * bound instead (see {@link NccSearch})</li>
+ * <li>{@link #matchEach} loads the area once and scans all templates of the
+ * same size in a single pass over it, e.g. the ClaudeIcon animation frames
+ * in their shared region</li>
+ * <li>templates of at least {@code claude.automator.matching.fft.min-pattern-area}
+ * pixels are correlated through the frequency domain instead (see
+ * {@link FftCorrelator}), whose cost does not grow with the template</li>
+ * <li>with {@code claude.automator.matching.mask.enabled}, transparent pixels
+ * of ARGB patterns are ignored: only the opaque ones are scored, from a sparse
+ * index of their runs, so non-rectangular icons match on any background and
+ * cost in proportion to their opaque area. Masked patterns are always
+ * correlated spatially, one at a time, without the shared pass of
+ * {@link #matchEach}, the FFT path or the pyramid, so a search is usually
+ * slower than unmasked. It is off by default and worth enabling only when the
+ * background behind a pattern's transparent pixels changes</li>
+ * </ul>
+ *
+ * <p>
+ * The score is the correlation coefficient of the template and the window, the
+ * same measure as OpenCV's {@code TM_CCOEFF_NORMED}, computed on luminance
+ * instead of per colour channel. Windows without contrast score 0.
+ * </p>
+ */
+@Component
+public class NccTemplateMatcher implements TemplateMatcher {
+
+    public static final String NAME = "ncc";
+
+    static final int DEFAULT_FFT_MIN_AREA = 10000;
+
+    // BufferedImage uses identity equality, so pattern images map to their preparation
+    private final Map<BufferedImage, PreparedTemplate> templates =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    @Value("${claude.automator.matching.ncc.kernel:auto}")
+    private String kernelMode;
+
+    @Value("${claude.automator.matching.prefilter.enabled:true}")
+    private boolean prefilterEnabled;
+
+    @Value("${claude.automator.matching.prefilter.max-mean-difference:48}")
+    private double maxMeanDifference;
+
+    @Value("${claude.automator.matching.prefilter.max-contrast-ratio:2.5}")
+    private double maxContrastRatio;
+
+    @Value("${claude.automator.matching.fft.min-pattern-area:" + DEFAULT_FFT_MIN_AREA + "}")
+    private int fftMinArea = DEFAULT_FFT_MIN_AREA;
+
+    @Value("${claude.automator.matching.mask.enabled:false}")
+    private boolean masking;
+
+    private RowKernel kernel;
+    private WindowPrefilter prefilter;
+
+    public NccTemplateMatcher() {
+        this(RowKernels.scalar());
+    }
+
+    public NccTemplateMatcher(RowKernel kernel) {
+        this(kernel, null);
+    }
+
+    /**
+     * @param prefilter rejects windows before correlation, or null for a
+     *                  plain NCC search
+     */
+    public NccTemplateMatcher(RowKernel kernel, WindowPrefilter prefilter) {
+        this(kernel, prefilter, DEFAULT_FFT_MIN_AREA);
+    }
+
+    /**
+     * @param fftMinArea template area in pixels from which the FFT path is
+     *                   used; transparent pixels are scored like any other
+     */
+    public NccTemplateMatcher(RowKernel kernel, WindowPrefilter prefilter, int fftMinArea) {
+        this(kernel, prefilter, fftMinArea, false);
+    }
+
+    /**
+     * @param masking whether transparent pixels of patterns are ignored
+     */
+    public NccTemplateMatcher(RowKernel kernel, WindowPrefilter prefilter, int fftMinArea, boolean masking) {
+        this.kernel = kernel;
+        this.prefilter = prefilter;
+        this.fftMinArea = fftMinArea;
+        this.masking = masking;
+    }
+
+    @PostConstruct
+    void initKernel() {
+        kernel = RowKernels.select(kernelMode);
+        prefilter = prefilterEnabled ? new WindowPrefilter(maxMeanDifference, maxContrastRatio) : null;
+    }
+
+    public RowKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * The window prefilter, or null if every window is correlated.
+     */
+    public WindowPrefilter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * Whether the template is scored through its opaque pixels only, which
+     * the pyramid backend cannot do at its coarse levels.
+     */
+    boolean usesMask(BufferedImage template) {
+        return prepared(template).isMasked();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void prepare(BufferedImage template) {
+        prepared(template);
+    }
+
+    @Override
+    public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        if (area.width < tw || area.height < th) {
+            return null;
+        }
+
+        PreparedTemplate prepared = prepared(template);
+        Workspace workspace = workspaces.get();
+        workspace.plane.load(scene, area);
+        workspace.best.reset(minScore);
+        scan(workspace, prepared, workspace.best, false);
+
+        if (workspace.best.score < minScore) {
+            return null;
+        }
+        return new TemplateMatch(area.x + workspace.best.x, area.y + workspace.best.y, tw, th,
+                Math.min(1.0, workspace.best.score));
+    }
+
+    @Override
+    public boolean isSinglePass() {
+        return true;
+    }
+
+    @Override
+    public TemplateMatch[] matchEach(BufferedImage scene, Rectangle area, List<BufferedImage> templates,
+                                     double minScore) {
+        int count = templates.size();
+        TemplateMatch[] matches = new TemplateMatch[count];
+        Workspace workspace = workspaces.get();
+        workspace.plane.load(scene, area);
+        workspace.grow(count);
+
+        boolean[] scanned = new boolean[count];
+        boolean transformed = false;
+        for (int first = 0; first < count; first++) {
+            BufferedImage template = templates.get(first);
+            if (scanned[first] || area.width < template.getWidth() || area.height < template.getHeight()) {
+                continue;
+            }
+            // One pass per template size; masked templates have their own window statistics
+            int group = 0;
+            boolean masked = prepared(template).isMasked();
+            for (int i = first; i < count && !(masked && group == 1); i++) {
+                BufferedImage candidate = templates.get(i);
+                if (!scanned[i] && candidate.getWidth() == template.getWidth()
+                        && candidate.getHeight() == template.getHeight()
+                        && prepared(candidate).isMasked() == masked) {
+                    scanned[i] = true;
+                    workspace.groupIndices[group] = i;
+                    workspace.groupTemplates[group] = prepared(candidate);
+                    workspace.bests[group].reset(minScore);
+                    group++;
+                }
+            }
+            if (masked) {
+                workspace.search.scan(workspace.plane, workspace.groupTemplates[0], 0, 0, area.width, area.height,
+                        kernel, prefilter, workspace.bests[0]);
+            } else if (template.getWidth() * template.getHeight() < fftMinArea) {
+                workspace.search.scan(workspace.plane, workspace.groupTemplates, workspace.bests, group,
+                        0, 0, area.width, area.height, kernel, prefilter);
+            } else {
+                // Large templates share the transform of the area
+                for (int g = 0; g < group; g++) {
+                    transformed = scan(workspace, workspace.groupTemplates[g], workspace.bests[g], transformed);
+                }
+            }
+            for (int g = 0; g < group; g++) {
+                NccSearch.BestScore best = workspace.bests[g];
+                if (best.score >= minScore) {
+                    matches[workspace.groupIndices[g]] = new TemplateMatch(area.x + best.x, area.y + best.y,
+                            template.getWidth(), template.getHeight(), Math.min(1.0, best.score));
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<TemplateMatch> matchAll(BufferedImage scene, Rectangle area, BufferedImage template,
+                                        double minScore, int maxMatches) {
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        if (area.width < tw || area.height < th || maxMatches < 1) {
+            return List.of();
+        }
+
+        PreparedTemplate prepared = prepared(template);
+        Workspace workspace = workspaces.get();
+        workspace.plane.load(scene, area);
+        NccSearch.TopScores top = workspace.top;
+        // Overlapping windows are one match
+        top.reset(minScore, maxMatches, tw - 1, th - 1);
+        scan(workspace, prepared, top, false);
+
+        List<TemplateMatch> matches = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            matches.add(new TemplateMatch(area.x + top.xs[i], area.y + top.ys[i], tw, th,
+                    Math.min(1.0, top.scores[i])));
+        }
+        matches.sort(Comparator.comparingDouble(TemplateMatch::score).reversed());
+        return matches;
+    }
+
+    /**
+     * Scores the whole loaded plane against the template, through the FFT
+     * path for large unmasked templates.
+     *
+     * @param transformed whether the plane's transform is already loaded
+     */
+    private boolean scan(Workspace workspace, PreparedTemplate prepared, NccSearch.ScoreSink sink,
+                         boolean transformed) {
+        LumaPlane plane = workspace.plane;
+        if (prepared.isMasked() || prepared.width * prepared.height < fftMinArea) {
+            workspace.search.scan(plane, prepared, 0, 0, plane.width, plane.height, kernel, prefilter, sink);
+            return transformed;
+        }
+        if (!transformed) {
+            workspace.fft.load(plane);
+        }
+        workspace.fft.scan(plane, prepared, prefilter, sink);
+        return true;
+    }
+
+    private PreparedTemplate prepared(BufferedImage template) {
+        return templates.computeIfAbsent(template, image -> new PreparedTemplate(image, masking));
+    }
+
+    private static final class Workspace {
+        final LumaPlane plane = new LumaPlane();
+        final NccSearch search = new NccSearch();
+        final NccSearch.BestScore best = new NccSearch.BestScore();
+        final NccSearch.TopScores top = new NccSearch.TopScores();
+        final FftCorrelator fft = new FftCorrelator();
+        // Per-template state of a matchEach pass
+        int[] groupIndices = new int[0];
+        PreparedTemplate[] groupTemplates = new PreparedTemplate[0];
+        NccSearch.BestScore[] bests = new NccSearch.BestScore[0];
+
+        void grow(int count) {
+            if (bests.length >= count) {
+                return;
+            }
+            groupIndices = new int[count];
+            groupTemplates = new PreparedTemplate[count];
+            NccSearch.BestScore[] grown = Arrays.copyOf(bests, count);
+            for (int i = bests.length; i < count; i++) {
+                grown[i] = new NccSearch.BestScore();
+            }
+            bests = grown;
+        }
+    }
+}
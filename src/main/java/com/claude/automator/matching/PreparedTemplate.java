@@ -0,0 +1,188 @@
+package com.claude.automator.matching;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Zero-mean luminance of a template, its mean and its sum of squares, computed
+ * once per pattern image (and per pyramid level).
+ *
+ * <p>
+ * A masked template only scores its opaque pixels (alpha of at least
+ * {@value #ALPHA_THRESHOLD}): the mean and sum of squares are taken over those
+ * pixels, transparent values are 0, and the opaque pixels are indexed as
+ * horizontal runs so a search can visit them and nothing else. Templates
+ * without transparent pixels are never masked.
+ * </p>
+ */
+final class PreparedTemplate {
+
+    static final int ALPHA_THRESHOLD = 128;
+
+    final float[] values;
+    final int width;
+    final int height;
+    final double mean;
+    final double variance;
+    // Value units per luminance level: 1 at full resolution, 4 per 2x2 reduction
+    final double unit;
+    // Sum and norm of the values in rows j and below, for the early termination bound
+    final double[] rowTailSums;
+    final double[] rowTailNorms;
+    // Number of scored pixels: the opaque ones of a masked template, else all
+    final int opaque;
+    // Opaque pixels of a masked template as runs of runLengths[r] pixels from
+    // runXs[r], those of row j being runStarts[j] to runStarts[j + 1]; null
+    // when unmasked
+    final int[] runStarts;
+    final int[] runXs;
+    final int[] runLengths;
+    // Transform for the FFT path, for the padded size it was last used with
+    volatile FftCorrelator.Spectrum spectrum;
+
+    PreparedTemplate(BufferedImage template) {
+        this(template, false);
+    }
+
+    /**
+     * @param masking whether transparent pixels of the template are ignored
+     */
+    PreparedTemplate(BufferedImage template, boolean masking) {
+        this(GrayImages.toGray(template), template.getWidth(), template.getHeight(), 1,
+                masking ? opaquePixels(template) : null);
+    }
+
+    PreparedTemplate(float[] gray, int width, int height) {
+        this(gray, width, height, 1, null);
+    }
+
+    private PreparedTemplate(float[] gray, int width, int height, double unit, boolean[] mask) {
+        this.width = width;
+        this.height = height;
+        this.unit = unit;
+        int n = width * height;
+        int opaque = n;
+        if (mask != null) {
+            opaque = 0;
+            for (boolean scored : mask) {
+                opaque += scored ? 1 : 0;
+            }
+            // Fully opaque is unmasked; fully transparent has nothing to score, so score everything
+            if (opaque == n || opaque == 0) {
+                mask = null;
+                opaque = n;
+            }
+        }
+        this.opaque = opaque;
+
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            if (mask == null || mask[i]) {
+                mean += gray[i];
+            }
+        }
+        mean /= opaque;
+        this.mean = mean;
+
+        values = new float[n];
+        double sumSq = 0;
+        for (int i = 0; i < n; i++) {
+            if (mask == null || mask[i]) {
+                values[i] = (float) (gray[i] - mean);
+                sumSq += values[i] * values[i];
+            }
+        }
+        // A flat template correlates with nothing; keep the division defined
+        variance = Math.max(sumSq, 1e-6);
+
+        rowTailSums = new double[height + 1];
+        rowTailNorms = new double[height + 1];
+        double tailSumSq = 0;
+        for (int y = height - 1; y >= 0; y--) {
+            double rowSum = 0;
+            for (int x = 0; x < width; x++) {
+                float value = values[y * width + x];
+                rowSum += value;
+                tailSumSq += value * value;
+            }
+            rowTailSums[y] = rowTailSums[y + 1] + rowSum;
+            rowTailNorms[y] = Math.sqrt(tailSumSq);
+        }
+
+        if (mask == null) {
+            runStarts = null;
+            runXs = null;
+            runLengths = null;
+            return;
+        }
+        int runs = 0;
+        for (int i = 0; i < n; i++) {
+            if (mask[i] && (i % width == 0 || !mask[i - 1])) {
+                runs++;
+            }
+        }
+        runStarts = new int[height + 1];
+        runXs = new int[runs];
+        runLengths = new int[runs];
+        int run = 0;
+        for (int y = 0; y < height; y++) {
+            runStarts[y] = run;
+            int x = 0;
+            while (x < width) {
+                if (!mask[y * width + x]) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && mask[y * width + x]) {
+                    x++;
+                }
+                runXs[run] = start;
+                runLengths[run] = x - start;
+                run++;
+            }
+        }
+        runStarts[height] = run;
+    }
+
+    boolean isMasked() {
+        return runLengths != null;
+    }
+
+    /**
+     * Which pixels are opaque, or null if the image has no alpha channel.
+     */
+    private static boolean[] opaquePixels(BufferedImage template) {
+        if (!template.getColorModel().hasAlpha()) {
+            return null;
+        }
+        int width = template.getWidth();
+        boolean[] mask = new boolean[width * template.getHeight()];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = template.getRGB(i % width, i / width) >>> 24 >= ALPHA_THRESHOLD;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns this template's luminance at half resolution as 2x2 sums, the
+     * same reduction as {@link LumaPlane#downsample(LumaPlane)}. The mask is
+     * not carried over.
+     */
+    PreparedTemplate downsample() {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        float[] half = new float[halfWidth * halfHeight];
+        float blockMean = (float) (4 * mean);
+        for (int y = 0; y < halfHeight; y++) {
+            int top = 2 * y * width;
+            int bottom = top + width;
+            for (int x = 0; x < halfWidth; x++) {
+                int sx = 2 * x;
+                // Adding the mean back gives the 2x2 sums of luminance
+                half[y * halfWidth + x] = values[top + sx] + values[top + sx + 1]
+                        + values[bottom + sx] + values[bottom + sx + 1] + blockMean;
+            }
+        }
+        return new PreparedTemplate(half, halfWidth, halfHeight, 4 * unit, null);
+    }
+}
@@ -0,0 +1,167 @@
+package com.claude.automator.matching;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Coarse-to-fine {@link TemplateMatcher} for large search regions.
+ *
+ * <p>
+ * The searched area and the template are reduced by 2x2 block sums to up to
+ * {@code claude.automator.matching.pyramid.levels} coarser levels. The
+ * coarsest level is searched exhaustively with NCC, keeping the best few
+ * candidates that score at least {@code minScore - coarse-margin}; each
+ * candidate is then refined at full resolution in a small window around its
+ * position. Each level has a quarter of the pixels of the one above, so with
+ * two levels the exhaustive part of the search costs about 1/256 of a full
+ * resolution search, e.g. for ClaudePrompt's quarter-screen region.
+ * </p>
+ *
+ * <p>
+ * Template pyramids are computed once per pattern image (at startup via
+ * {@link #prepare(BufferedImage)}). Fewer levels are used when a template
+ * would shrink below {@value #MIN_COARSE_SIZE} pixels, and areas too small to
+ * benefit are searched at full resolution directly. Search buffers are per
+ * thread and reused, and the window prefilter is shared with
+ * {@link NccTemplateMatcher}; at coarse levels its mean tolerance is scaled to
+ * the 2x2 sums. Patterns masked by {@link NccTemplateMatcher} are searched
+ * at full resolution by it.
+ * </p>
+ */
+@Component
+public class PyramidTemplateMatcher implements TemplateMatcher {
+
+    public static final String NAME = "pyramid";
+
+    static final int MIN_COARSE_SIZE = 6;
+    private static final int CANDIDATES = 4;
+
+    private final NccTemplateMatcher fullResolution;
+
+    // BufferedImage uses identity equality, so pattern images map to their pyramids
+    private final Map<BufferedImage, PreparedTemplate[]> pyramids =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Value("${claude.automator.matching.pyramid.levels:2}")
+    private int maxLevels = 2;
+
+    // Coarse levels blur the template, so candidates may score lower there
+    @Value("${claude.automator.matching.pyramid.coarse-margin:0.2}")
+    private double coarseMargin = 0.2;
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> new Workspace(maxLevels));
+
+    public PyramidTemplateMatcher(NccTemplateMatcher fullResolution) {
+        this.fullResolution = fullResolution;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void prepare(BufferedImage template) {
+        pyramidFor(template);
+    }
+
+    @Override
+    public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        if (area.width < tw || area.height < th) {
+            return null;
+        }
+
+        PreparedTemplate[] pyramid = pyramidFor(template);
+        int levels = usableLevels(pyramid, area);
+        // Coarse levels would blend transparent pixels into the opaque ones
+        if (levels == 0 || fullResolution.usesMask(template)) {
+            return fullResolution.match(scene, area, template, minScore);
+        }
+
+        Workspace workspace = workspaces.get();
+        RowKernel kernel = fullResolution.getKernel();
+        WindowPrefilter prefilter = fullResolution.getPrefilter();
+        workspace.planes[0].load(scene, area);
+        for (int level = 1; level <= levels; level++) {
+            workspace.planes[level].downsample(workspace.planes[level - 1]);
+        }
+
+        // Exhaustive search at the coarsest level
+        LumaPlane coarse = workspace.planes[levels];
+        NccSearch.TopScores candidates = workspace.candidates;
+        candidates.reset(minScore - coarseMargin, CANDIDATES, 1, 1);
+        workspace.search.scan(coarse, pyramid[levels], 0, 0, coarse.width, coarse.height, kernel,
+                prefilter, candidates);
+
+        // Refine each candidate at full resolution around its scaled position
+        int scale = 1 << levels;
+        NccSearch.BestScore best = workspace.best;
+        best.reset(minScore);
+        for (int i = 0; i < candidates.size; i++) {
+            int x = candidates.xs[i] * scale;
+            int y = candidates.ys[i] * scale;
+            workspace.search.scan(workspace.planes[0], pyramid[0], x - scale, y - scale, x + scale, y + scale,
+                    kernel, prefilter, best);
+        }
+
+        if (best.score < minScore) {
+            return null;
+        }
+        return new TemplateMatch(area.x + best.x, area.y + best.y, tw, th, Math.min(1.0, best.score));
+    }
+
+    private PreparedTemplate[] pyramidFor(BufferedImage template) {
+        return pyramids.computeIfAbsent(template, image -> {
+            PreparedTemplate[] pyramid = new PreparedTemplate[maxLevels + 1];
+            pyramid[0] = new PreparedTemplate(image);
+            for (int level = 1; level <= maxLevels; level++) {
+                PreparedTemplate previous = pyramid[level - 1];
+                if (previous.width / 2 < MIN_COARSE_SIZE || previous.height / 2 < MIN_COARSE_SIZE) {
+                    break;
+                }
+                pyramid[level] = previous.downsample();
+            }
+            return pyramid;
+        });
+    }
+
+    /**
+     * Number of coarse levels worth using: the template must exist at that
+     * level and the area must be at least four template sizes wide or high,
+     * otherwise a full resolution search is cheaper than the extra passes.
+     */
+    private static int usableLevels(PreparedTemplate[] pyramid, Rectangle area) {
+        PreparedTemplate template = pyramid[0];
+        if (area.width < 4 * template.width && area.height < 4 * template.height) {
+            return 0;
+        }
+        int levels = 0;
+        while (levels + 1 < pyramid.length && pyramid[levels + 1] != null) {
+            levels++;
+        }
+        return levels;
+    }
+
+    private static final class Workspace {
+
+        final LumaPlane[] planes;
+        final NccSearch search = new NccSearch();
+        final NccSearch.TopScores candidates = new NccSearch.TopScores();
+        final NccSearch.BestScore best = new NccSearch.BestScore();
+
+        Workspace(int levels) {
+            planes = new LumaPlane[levels + 1];
+            for (int i = 0; i < planes.length; i++) {
+                planes[i] = new LumaPlane();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.claude.automator.matching;
+
+/**
+ * Arithmetic core of the NCC matcher: correlates one template row with one
+ * scene row at many adjacent window positions at once.
+ *
+ * <p>
+ * Working across window positions instead of along the template row keeps
+ * every lane busy without a horizontal reduction per row, which matters for
+ * rows as short as the 25 pixels of the ClaudeIcon patterns.
+ * </p>
+ *
+ * @see RowKernels
+ */
+public interface RowKernel {
+
+    /**
+     * Adds the correlation of the template row to {@code out}: for every
+     * {@code k} in {@code [0, count)},
+     * {@code out[k] += sum(template[templateOffset + i] * scene[sceneOffset + k + i])}
+     * over {@code i} in {@code [0, width)}.
+     */
+    void correlateRow(float[] template, int templateOffset, int width,
+                      float[] scene, int sceneOffset, float[] out, int count);
+
+    /**
+     * Kernel name used in {@code claude.automator.matching.ncc.kernel}.
+     */
+    String getName();
+}
@@ -0,0 +1,54 @@
+package com.claude.automator.matching;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Selects the {@link RowKernel} for {@code claude.automator.matching.ncc.kernel}.
+ *
+ * <p>
+ * {@code vector} needs the incubating Vector API, i.e. a JVM started with
+ * {@code --add-modules jdk.incubator.vector} (bootRun and the tests add it).
+ * Without the module, {@code auto} and {@code vector} fall back to the scalar
+ * kernel.
+ * </p>
+ */
+@Slf4j
+public final class RowKernels {
+
+    public static final String AUTO = "auto";
+    public static final String VECTOR = "vector";
+    public static final String SCALAR = "scalar";
+
+    private RowKernels() {
+    }
+
+    public static RowKernel scalar() {
+        return ScalarRowKernel.INSTANCE;
+    }
+
+    /**
+     * Returns the kernel for the given mode, falling back to the scalar kernel
+     * if the Vector API is unavailable.
+     */
+    public static RowKernel select(String mode) {
+        if (SCALAR.equalsIgnoreCase(mode)) {
+            return scalar();
+        }
+        if (!AUTO.equalsIgnoreCase(mode) && !VECTOR.equalsIgnoreCase(mode)) {
+            log.warn("Unknown NCC kernel '{}', expected auto, vector or scalar", mode);
+        }
+        if (!vectorApiAvailable()) {
+            if (VECTOR.equalsIgnoreCase(mode)) {
+                log.warn("Vector API not available (start the JVM with --add-modules jdk.incubator.vector), "
+                        + "using the scalar NCC kernel");
+            }
+            return scalar();
+        }
+        log.info("Using the Vector API NCC kernel with {} float lanes", VectorRowKernel.lanes());
+        return new VectorRowKernel();
+    }
+
+    public static boolean vectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
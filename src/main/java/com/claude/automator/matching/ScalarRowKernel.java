@@ -0,0 +1,29 @@
+package com.claude.automator.matching;
+
+/**
+ * Plain Java {@link RowKernel}, used when the Vector API is not available.
+ */
+final class ScalarRowKernel implements RowKernel {
+
+    static final ScalarRowKernel INSTANCE = new ScalarRowKernel();
+
+    private ScalarRowKernel() {
+    }
+
+    @Override
+    public void correlateRow(float[] template, int templateOffset, int width,
+                             float[] scene, int sceneOffset, float[] out, int count) {
+        for (int i = 0; i < width; i++) {
+            float t = template[templateOffset + i];
+            int base = sceneOffset + i;
+            for (int k = 0; k < count; k++) {
+                out[k] += t * scene[base + k];
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return RowKernels.SCALAR;
+    }
+}
@@ -0,0 +1,126 @@
+package com.claude.automator.matching;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses the scales at which the patterns of one StateImage are searched.
+ *
+ * <p>
+ * Instead of pre-scaled pattern copies ({@code claude-icon-1-80.png}), each
+ * source pattern is resampled to every scale of a configured range. Until a
+ * display has a match the whole range is searched, starting at 100% and moving
+ * outwards. The winning scale is then remembered for that display and searched
+ * alone, so a steady state costs one template per pattern. After
+ * {@code rescanMisses} consecutive misses at the remembered scale it is
+ * dropped and the next search covers the whole range again, which picks up a
+ * DPI change without a restart. Images that leave the screen as expected,
+ * like ClaudeIcon when Claude stops working, would add up misses across their
+ * visits, so callers restart the count with {@link #resetMisses()} whenever
+ * the image's state is entered or left.
+ * </p>
+ *
+ * <p>
+ * Displays are identified by the caller, by capture size in
+ * {@link StateImageMatcher}. Patterns whose name marks them as a pre-scaled
+ * copy of another pattern of the same image are reported by
+ * {@link #isScaledCopy(int)} and skipped, as the range already covers them.
+ * All methods are synchronized.
+ * </p>
+ */
+public class ScaleSelector {
+
+    private final int[] sweep;
+    private final int rescanMisses;
+    private final boolean[] scaledCopies;
+
+    private final Map<String, Integer> winningScale = new HashMap<>();
+    private final Map<String, Integer> missesAtScale = new HashMap<>();
+
+    /**
+     * @param scales       scales in percent, e.g. 75 to 125
+     * @param rescanMisses consecutive misses after which the whole range is
+     *                     searched again
+     * @param patternNames pattern names of the image, in declaration order
+     */
+    public ScaleSelector(int[] scales, int rescanMisses, List<String> patternNames) {
+        this.sweep = sweepOrder(scales);
+        this.rescanMisses = Math.max(1, rescanMisses);
+
+        Set<String> names = new HashSet<>();
+        for (String name : patternNames) {
+            names.add(IconFramePredictor.baseName(name));
+        }
+        scaledCopies = new boolean[patternNames.size()];
+        for (int i = 0; i < scaledCopies.length; i++) {
+            String source = IconFramePredictor.scaledCopySource(patternNames.get(i));
+            scaledCopies[i] = source != null && names.contains(source);
+        }
+    }
+
+    /**
+     * Whether the pattern at the index is a pre-scaled copy of another
+     * pattern of the image.
+     */
+    public boolean isScaledCopy(int patternIndex) {
+        return scaledCopies[patternIndex];
+    }
+
+    /**
+     * Scales to search on the given display, in percent, most likely first.
+     */
+    public synchronized int[] scalesFor(String display) {
+        Integer scale = winningScale.get(display);
+        return scale != null ? new int[] {scale} : sweep.clone();
+    }
+
+    public synchronized void recordHit(String display, int scale) {
+        winningScale.put(display, scale);
+        missesAtScale.remove(display);
+    }
+
+    public synchronized void recordMiss(String display) {
+        if (!winningScale.containsKey(display)) {
+            return;
+        }
+        if (missesAtScale.merge(display, 1, Integer::sum) >= rescanMisses) {
+            winningScale.remove(display);
+            missesAtScale.remove(display);
+        }
+    }
+
+    /**
+     * Restarts the count of consecutive misses on every display, keeping the
+     * remembered scales.
+     */
+    public synchronized void resetMisses() {
+        missesAtScale.clear();
+    }
+
+    /**
+     * The remembered scale of the display, or null while it is unknown.
+     */
+    public synchronized Integer getWinningScale(String display) {
+        return winningScale.get(display);
+    }
+
+    /**
+     * Sorts the scales by their distance from 100%, smaller scales first on a
+     * tie, as high DPI displays capture patterns smaller more often than larger.
+     */
+    static int[] sweepOrder(int[] scales) {
+        return Arrays.stream(scales)
+                .distinct()
+                .boxed()
+                .sorted((a, b) -> {
+                    int byDistance = Integer.compare(Math.abs(a - 100), Math.abs(b - 100));
+                    return byDistance != 0 ? byDistance : Integer.compare(a, b);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
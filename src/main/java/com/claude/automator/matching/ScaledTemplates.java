@@ -0,0 +1,56 @@
+package com.claude.automator.matching;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Resampled copies of pattern images, created once per scale.
+ *
+ * <p>
+ * The backends cache their template preparation by image identity, so every
+ * scale of a pattern must always be the same BufferedImage instance. Scaling
+ * uses the same bilinear interpolation as the retired
+ * {@code ScaleAndTestPatterns} tool, so results match the hand-made copies.
+ * </p>
+ */
+final class ScaledTemplates {
+
+    private final Map<BufferedImage, Map<Integer, BufferedImage>> scaled =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Returns the template resized to the given percentage, or the template
+     * itself at 100%. Returns null if the scaled template would be smaller
+     * than 2x2 pixels.
+     */
+    BufferedImage get(BufferedImage template, int scalePercent) {
+        if (scalePercent == 100) {
+            return template;
+        }
+        Map<Integer, BufferedImage> byScale = scaled.computeIfAbsent(template, t -> new HashMap<>());
+        synchronized (byScale) {
+            return byScale.computeIfAbsent(scalePercent, percent -> resize(template, percent));
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int scalePercent) {
+        int width = Math.round(source.getWidth() * scalePercent / 100f);
+        int height = Math.round(source.getHeight() * scalePercent / 100f);
+        if (width < 2 || height < 2) {
+            return null;
+        }
+        int type = source.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : source.getType();
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+}
@@ -0,0 +1,50 @@
+package com.claude.automator.matching;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sikuli.script.Finder;
+import org.sikuli.script.Match;
+import org.sikuli.script.Pattern;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link TemplateMatcher} backed by the SikuliX Finder, i.e. the same OpenCV
+ * template matching Brobot uses for its finds.
+ */
+@Component
+@Slf4j
+public class SikuliTemplateMatcher implements TemplateMatcher {
+
+    public static final String NAME = "sikuli";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+        if (area.width < template.getWidth() || area.height < template.getHeight()) {
+            return null;
+        }
+
+        // getSubimage shares the raster, so cropping does not copy the frame
+        BufferedImage searched = scene.getSubimage(area.x, area.y, area.width, area.height);
+        Finder finder = new Finder(searched);
+        try {
+            finder.find(new Pattern(template).similar(minScore));
+            if (!finder.hasNext()) {
+                return null;
+            }
+            Match match = finder.next();
+            return new TemplateMatch(area.x + match.x, area.y + match.y, match.w, match.h, match.getScore());
+        } catch (RuntimeException e) {
+            log.debug("SikuliX find failed: {}", e.getMessage());
+            return null;
+        } finally {
+            finder.destroy();
+        }
+    }
+}
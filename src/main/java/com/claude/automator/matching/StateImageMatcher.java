@@ -0,0 +1,558 @@
+package com.claude.automator.matching;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.SearchRegionResolver;
+import io.github.jspinak.brobot.action.ActionResult;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.match.Match;
+import io.github.jspinak.brobot.model.state.StateImage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds a multi-pattern StateImage in a captured frame, trying the pattern
+ * most likely to match first and stopping at the first confident hit.
+ *
+ * <p>
+ * Brobot searches the patterns of a StateImage in declaration order on every
+ * find. For an animated image like ClaudeIcon, with four frames plus their
+ * 80% copies, the matching pattern is usually far down that list. Each
+ * StateImage gets an {@link IconFramePredictor} that learns the animation
+ * cycle and the winning scale variant, so on average one or two patterns are
+ * searched instead of all eight. With multi-scale matching the copies are
+ * skipped and the predictor orders the four frames, each searched at its
+ * remembered scale.
+ * </p>
+ *
+ * <p>
+ * With {@code claude.automator.matching.parallel.enabled=true} every pattern
+ * and search area is matched as its own task on a fork-join pool, submitted in
+ * predicted order. The result is the same hit a sequential search would
+ * return: the best-ranked task to clear the similarity threshold wins, even if
+ * a lower-ranked one finished first. A hit cancels only the tasks ranked below
+ * it; tasks that are already running finish their current match, since a
+ * template match cannot be interrupted.
+ * </p>
+ *
+ * <p>
+ * With multi-scale matching each source pattern is searched over a range of
+ * scales instead of relying on pre-scaled copies, which are skipped. A
+ * {@link ScaleSelector} per image remembers the winning scale for each display
+ * (capture size), so after the first hit only that scale is searched.
+ * {@code claude.automator.matching.multiscale.enabled} is {@code auto} by
+ * default, which uses it only for images with a pure-Java backend: until a
+ * scale wins, a SikuliX image would need one {@code Finder} call per pattern
+ * and scale on every miss. {@code true} uses it for every image.
+ * </p>
+ *
+ * <p>
+ * With {@code claude.automator.matching.single-pass.enabled=true} and a
+ * backend that supports it (NCC), a miss of the predicted pattern is followed
+ * by a single pass over the search area for all remaining patterns, instead
+ * of one pass each.
+ * </p>
+ *
+ * <p>
+ * The matching backend of each image comes from the
+ * {@link TemplateMatcherRegistry}.
+ * </p>
+ *
+ * <p>
+ * Search regions are resolved like a Brobot find resolves them, see
+ * {@link SearchRegionResolver}: an image whose region is declared relative to
+ * another image passed to the same {@link #prepare} call, like ClaudeIcon next
+ * to ClaudePrompt, is searched next to that image's last match.
+ * </p>
+ *
+ * <p>
+ * A hit updates the StateImage like a Brobot find would: its
+ * {@code lastMatchesFound} is replaced and, for fixed patterns, the fixed
+ * search region is set to the match. No ActionHistory snapshot is recorded,
+ * and a miss is not retried within the find; the next tick searches again.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StateImageMatcher {
+
+    private final TemplateMatcherRegistry matchers;
+
+    @Value("${claude.automator.matching.parallel.enabled:false}")
+    private boolean parallel;
+
+    // 0 uses one thread per available processor
+    @Value("${claude.automator.matching.parallel.threads:0}")
+    private int parallelThreads;
+
+    @Value("${claude.automator.matching.single-pass.enabled:true}")
+    private boolean singlePass;
+
+    // "auto" (all but SikuliX images), "true" or "false"
+    @Value("${claude.automator.matching.multiscale.enabled:auto}")
+    private String multiScale;
+
+    @Value("${claude.automator.matching.multiscale.min-scale:0.75}")
+    private double minScale;
+
+    @Value("${claude.automator.matching.multiscale.max-scale:1.25}")
+    private double maxScale;
+
+    @Value("${claude.automator.matching.multiscale.step:0.05}")
+    private double scaleStep;
+
+    @Value("${claude.automator.matching.multiscale.rescan-misses:20}")
+    private int rescanMisses;
+
+    private ForkJoinPool matchPool;
+    private int[] scales = {100};
+    private final ScaledTemplates scaledTemplates = new ScaledTemplates();
+
+    // Keyed by instance: monitoring sessions own images with the same patterns
+    private final Map<StateImage, IconFramePredictor> predictors =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Map<StateImage, ScaleSelector> scaleSelectors =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+    // Image whose last match an image's search region is relative to
+    private final Map<StateImage, StateImage> anchors =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @PostConstruct
+    void initScales() {
+        if (multiScale != null && !"false".equalsIgnoreCase(multiScale)) {
+            scales = scaleRange(minScale, maxScale, scaleStep);
+            log.info("Multi-scale matching over {}%", Arrays.toString(ScaleSelector.sweepOrder(scales)));
+        }
+    }
+
+    @PostConstruct
+    void initMatchPool() {
+        if (parallel) {
+            int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+            matchPool = new ForkJoinPool(threads);
+            log.info("Parallel pattern matching enabled with {} threads", threads);
+        }
+    }
+
+    @PreDestroy
+    void shutdownMatchPool() {
+        if (matchPool != null) {
+            matchPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Searches the image's patterns in predicted order within their search
+     * regions of the frame.
+     *
+     * @return the first match scoring at least {@code similarity}
+     */
+    public Optional<Match> findFirst(StateImage image, CapturedFrame frame, double similarity) {
+        List<Pattern> patterns = image.getPatterns();
+        if (matchPool != null && patterns.size() > 1) {
+            return findFirstParallel(image, frame, similarity);
+        }
+        IconFramePredictor predictor = predictorFor(image);
+        ScaleSelector scaleSelector = scaleSelectorFor(image);
+        TemplateMatcher templateMatcher = matchers.matcherFor(image);
+        BufferedImage scene = frame.getImage();
+        String display = display(frame);
+
+        List<Attempt> attempts = attempts(image, predictor, scaleSelector, display);
+        // With a single-pass backend only the predicted template is searched alone, the rest together
+        int alone = singlePass && templateMatcher.isSinglePass() && attempts.size() > 2 ? 1 : attempts.size();
+
+        int tried = 0;
+        for (Attempt attempt : attempts.subList(0, alone)) {
+            Pattern pattern = patterns.get(attempt.patternIndex());
+            tried++;
+            for (Rectangle area : searchAreas(image, pattern, frame)) {
+                TemplateMatch found = templateMatcher.match(scene, area, attempt.template(), similarity);
+                if (found != null) {
+                    recordHit(predictor, scaleSelector, display, attempt, tried);
+                    log.debug("{} matched {} at {}% ({}) after {} templates, {} on average",
+                            image.getName(), pattern.getName(), attempt.scale(),
+                            String.format("%.3f", found.score()), tried,
+                            String.format("%.2f", predictor.getAverageAttempts()));
+                    return Optional.of(apply(image, pattern, found, frame));
+                }
+            }
+        }
+        if (alone < attempts.size()) {
+            List<Attempt> rest = attempts.subList(alone, attempts.size());
+            tried += rest.size();
+            Candidate candidate = matchTogether(templateMatcher, frame, image, rest, similarity);
+            if (candidate != null) {
+                Attempt attempt = candidate.attempt();
+                Pattern pattern = patterns.get(attempt.patternIndex());
+                recordHit(predictor, scaleSelector, display, attempt, tried);
+                log.debug("{} matched {} at {}% ({}) in a single pass over {} templates", image.getName(),
+                        pattern.getName(), attempt.scale(), String.format("%.3f", candidate.match().score()),
+                        rest.size());
+                return Optional.of(apply(image, pattern, candidate.match(), frame));
+            }
+        }
+        recordMiss(predictor, scaleSelector, display, tried);
+        return Optional.empty();
+    }
+
+    /**
+     * Searches the attempts with one {@link TemplateMatcher#matchEach} call per
+     * search area, and returns the first attempt in order that matched.
+     */
+    private Candidate matchTogether(TemplateMatcher templateMatcher, CapturedFrame frame,
+                                    StateImage image, List<Attempt> attempts, double similarity) {
+        List<Pattern> patterns = image.getPatterns();
+        Map<Rectangle, List<Attempt>> byArea = new LinkedHashMap<>();
+        for (Attempt attempt : attempts) {
+            for (Rectangle area : searchAreas(image, patterns.get(attempt.patternIndex()), frame)) {
+                byArea.computeIfAbsent(area, a -> new ArrayList<>()).add(attempt);
+            }
+        }
+        for (Map.Entry<Rectangle, List<Attempt>> entry : byArea.entrySet()) {
+            List<Attempt> areaAttempts = entry.getValue();
+            TemplateMatch[] found = templateMatcher.matchEach(frame.getImage(), entry.getKey(),
+                    areaAttempts.stream().map(Attempt::template).toList(), similarity);
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] != null) {
+                    return new Candidate(areaAttempts.get(i), found[i]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Matches every attempt and search area as its own task, ranked in
+     * predicted order, and returns the best-ranked hit. A hit cancels the
+     * tasks ranked below it only; the result is known once every task ranked
+     * above the best hit so far has missed.
+     */
+    private Optional<Match> findFirstParallel(StateImage image, CapturedFrame frame, double similarity) {
+        List<Pattern> patterns = image.getPatterns();
+        IconFramePredictor predictor = predictorFor(image);
+        ScaleSelector scaleSelector = scaleSelectorFor(image);
+        TemplateMatcher templateMatcher = matchers.matcherFor(image);
+        BufferedImage scene = frame.getImage();
+        String display = display(frame);
+
+        // Rank of the best hit so far; tasks ranked below it need not run
+        AtomicInteger bestRank = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicInteger tried = new AtomicInteger();
+        CompletionService<Candidate> completion = new ExecutorCompletionService<>(matchPool);
+        List<Future<Candidate>> tasks = new ArrayList<>();
+        for (Attempt attempt : attempts(image, predictor, scaleSelector, display)) {
+            Pattern pattern = patterns.get(attempt.patternIndex());
+            for (Rectangle area : searchAreas(image, pattern, frame)) {
+                int rank = tasks.size();
+                tasks.add(completion.submit(() -> {
+                    // Cancelled fork-join tasks may still start, so check first
+                    if (bestRank.get() < rank) {
+                        return null;
+                    }
+                    tried.incrementAndGet();
+                    TemplateMatch match = templateMatcher.match(scene, area, attempt.template(), similarity);
+                    return match != null ? new Candidate(attempt, match) : null;
+                }));
+            }
+        }
+
+        Candidate best = null;
+        try {
+            boolean[] done = new boolean[tasks.size()];
+            // Lowest rank still running
+            int open = 0;
+            while (open < Math.min(bestRank.get(), tasks.size())) {
+                Future<Candidate> task = completion.take();
+                int rank = tasks.indexOf(task);
+                done[rank] = true;
+                Candidate candidate = result(image, task);
+                if (candidate != null && rank < bestRank.get()) {
+                    best = candidate;
+                    bestRank.set(rank);
+                    tasks.subList(rank + 1, tasks.size()).forEach(lower -> lower.cancel(false));
+                }
+                while (open < done.length && done[open]) {
+                    open++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            bestRank.set(-1);
+            tasks.forEach(task -> task.cancel(false));
+        }
+        if (best != null) {
+            Attempt attempt = best.attempt();
+            Pattern pattern = patterns.get(attempt.patternIndex());
+            recordHit(predictor, scaleSelector, display, attempt, tried.get());
+            log.debug("{} matched {} at {}% ({}) in parallel, {} of {} tasks ran", image.getName(),
+                    pattern.getName(), attempt.scale(), String.format("%.3f", best.match().score()),
+                    tried.get(), tasks.size());
+            return Optional.of(apply(image, pattern, best.match(), frame));
+        }
+        recordMiss(predictor, scaleSelector, display, tried.get());
+        return Optional.empty();
+    }
+
+    /**
+     * The candidate of a completed task, or null if it missed, was cancelled
+     * or failed.
+     */
+    private static Candidate result(StateImage image, Future<Candidate> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Parallel match of {} failed: {}", image.getName(), e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The templates to search, in order: for each scale (only the remembered
+     * one once known) every source pattern in predicted order.
+     */
+    private List<Attempt> attempts(StateImage image, IconFramePredictor predictor, ScaleSelector scaleSelector,
+                                   String display) {
+        List<Pattern> patterns = image.getPatterns();
+        int[] order = predictor.searchOrder();
+        if (scaleSelector == null) {
+            List<Attempt> attempts = new ArrayList<>(order.length);
+            for (int index : order) {
+                BufferedImage template = patterns.get(index).getBImage();
+                if (template != null) {
+                    attempts.add(new Attempt(index, template, 100));
+                }
+            }
+            return attempts;
+        }
+        int[] imageScales = scaleSelector.scalesFor(display);
+        List<Attempt> attempts = new ArrayList<>(order.length * imageScales.length);
+        for (int scale : imageScales) {
+            for (int index : order) {
+                BufferedImage template = patterns.get(index).getBImage();
+                if (template == null || scaleSelector.isScaledCopy(index)) {
+                    continue;
+                }
+                BufferedImage scaled = scaledTemplates.get(template, scale);
+                if (scaled != null) {
+                    attempts.add(new Attempt(index, scaled, scale));
+                }
+            }
+        }
+        return attempts;
+    }
+
+    private static void recordHit(IconFramePredictor predictor, ScaleSelector scaleSelector, String display,
+                                  Attempt attempt, int tried) {
+        predictor.recordHit(attempt.patternIndex(), tried);
+        if (scaleSelector != null) {
+            scaleSelector.recordHit(display, attempt.scale());
+        }
+    }
+
+    private static void recordMiss(IconFramePredictor predictor, ScaleSelector scaleSelector, String display,
+                                   int tried) {
+        predictor.recordMiss(tried);
+        if (scaleSelector != null) {
+            scaleSelector.recordMiss(display);
+        }
+    }
+
+    // Captures of different displays, or of one display at another DPI, differ in size
+    private static String display(CapturedFrame frame) {
+        Dimension screen = frame.getScreenSize();
+        return screen.width + "x" + screen.height;
+    }
+
+    private record Attempt(int patternIndex, BufferedImage template, int scale) {
+    }
+
+    private record Candidate(Attempt attempt, TemplateMatch match) {
+    }
+
+    /**
+     * Like {@link #findFirst}, wrapped in an ActionResult for code that
+     * otherwise works with Brobot finds.
+     */
+    public ActionResult find(StateImage image, CapturedFrame frame, double similarity) {
+        ActionResult result = new ActionResult();
+        findFirst(image, frame, similarity).ifPresent(result::add);
+        result.setSuccess(!result.getMatchList().isEmpty());
+        return result;
+    }
+
+    /**
+     * Whether the image is configured for a specific matching backend.
+     */
+    public boolean hasBackendOverride(StateImage image) {
+        return matchers.hasOverride(image);
+    }
+
+    /**
+     * Lets the configured backend precompute its template data for every
+     * pattern of the given images, at every scale in multi-scale mode.
+     */
+    public void prepare(StateImage... images) {
+        for (StateImage image : images) {
+            StateImage anchor = SearchRegionResolver.anchorOf(image, images);
+            if (anchor != null) {
+                anchors.put(image, anchor);
+            }
+            TemplateMatcher templateMatcher = matchers.matcherFor(image);
+            ScaleSelector scaleSelector = scaleSelectorFor(image);
+            List<Pattern> patterns = image.getPatterns();
+            for (int index = 0; index < patterns.size(); index++) {
+                BufferedImage template = patterns.get(index).getBImage();
+                if (template == null) {
+                    continue;
+                }
+                if (scaleSelector == null) {
+                    templateMatcher.prepare(template);
+                } else if (!scaleSelector.isScaledCopy(index)) {
+                    for (int scale : scales) {
+                        BufferedImage scaled = scaledTemplates.get(template, scale);
+                        if (scaled != null) {
+                            templateMatcher.prepare(scaled);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the predictor of the given image, creating it on first use.
+     */
+    public IconFramePredictor predictorFor(StateImage image) {
+        return predictors.computeIfAbsent(image, img -> new IconFramePredictor(
+                img.getPatterns().stream().map(Pattern::getName).toList()));
+    }
+
+    /**
+     * Returns the scale selector of the given image, or null if multi-scale
+     * matching is disabled for it.
+     */
+    public ScaleSelector scaleSelectorFor(StateImage image) {
+        if (!isMultiScale(image)) {
+            return null;
+        }
+        return scaleSelectors.computeIfAbsent(image, img -> new ScaleSelector(scales, rescanMisses,
+                img.getPatterns().stream().map(Pattern::getName).toList()));
+    }
+
+    /**
+     * Whether the image is searched over the scale range: always with
+     * {@code true}, in {@code auto} mode unless its backend is SikuliX.
+     */
+    boolean isMultiScale(StateImage image) {
+        if (multiScale == null || "false".equalsIgnoreCase(multiScale)) {
+            return false;
+        }
+        if ("auto".equalsIgnoreCase(multiScale)) {
+            return !SikuliTemplateMatcher.NAME.equals(matchers.matcherFor(image).getName());
+        }
+        return Boolean.parseBoolean(multiScale);
+    }
+
+    /**
+     * Restarts the miss count towards a rescan of the scale range for the
+     * images, on a state change. Does nothing without multi-scale matching.
+     */
+    public void resetScaleMisses(StateImage... images) {
+        for (StateImage image : images) {
+            ScaleSelector scaleSelector = scaleSelectorFor(image);
+            if (scaleSelector != null) {
+                scaleSelector.resetMisses();
+            }
+        }
+    }
+
+    /**
+     * The scales from {@code min} to {@code max} in steps of {@code step}, in
+     * whole percent. 100% is always included.
+     */
+    static int[] scaleRange(double min, double max, double step) {
+        int from = (int) Math.round(Math.min(min, max) * 100);
+        int to = (int) Math.round(Math.max(min, max) * 100);
+        int stepPercent = Math.max(1, (int) Math.round(step * 100));
+        TreeSet<Integer> range = new TreeSet<>();
+        range.add(100);
+        for (int scale = from; scale <= to; scale += stepPercent) {
+            if (scale > 0) {
+                range.add(scale);
+            }
+        }
+        return range.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private Match apply(StateImage image, Pattern pattern, TemplateMatch found, CapturedFrame frame) {
+        // Matches are in image coordinates, a region frame starts at its bounds
+        Rectangle bounds = frame.getBounds();
+        Region region = new Region(found.x() + bounds.x, found.y() + bounds.y, found.width(), found.height());
+        Match match = new Match.Builder()
+                .setRegion(region)
+                .setSimScore(found.score())
+                .setName(image.getName())
+                .setStateObjectData(image)
+                .build();
+        image.setLastMatchesFound(new ArrayList<>(List.of(match)));
+        if (pattern.isFixed() && pattern.getSearchRegions() != null) {
+            pattern.getSearchRegions().setFixedRegion(region);
+        }
+        return match;
+    }
+
+    /**
+     * The resolved search regions of the image's pattern clipped to the frame,
+     * in image coordinates.
+     */
+    List<Rectangle> searchAreas(StateImage image, Pattern pattern, CapturedFrame frame) {
+        return searchAreas(SearchRegionResolver.regionsForSearch(image, pattern, anchors.get(image)), frame);
+    }
+
+    /**
+     * The search regions clipped to the frame, in image coordinates, or the
+     * whole frame if there are none.
+     */
+    static List<Rectangle> searchAreas(List<Region> regions, CapturedFrame frame) {
+        if (regions == null || regions.isEmpty()) {
+            return List.of(new Rectangle(0, 0, frame.getWidth(), frame.getHeight()));
+        }
+        List<Rectangle> areas = new ArrayList<>(regions.size());
+        for (Region region : regions) {
+            Rectangle area = frame.toImageArea(new Rectangle(region.x(), region.y(), region.w(), region.h()));
+            if (!area.isEmpty()) {
+                areas.add(area);
+            }
+        }
+        return areas;
+    }
+}
@@ -0,0 +1,14 @@
+package com.claude.automator.matching;
+
+import java.awt.Rectangle;
+
+/**
+ * Location and similarity score of one template in a scene, in scene
+ * coordinates.
+ */
+public record TemplateMatch(int x, int y, int width, int height, double score) {
+
+    public Rectangle bounds() {
+        return new Rectangle(x, y, width, height);
+    }
+}
@@ -0,0 +1,74 @@
+package com.claude.automator.matching;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Searches one template in one area of a captured frame.
+ *
+ * <p>
+ * Implementations must be thread-safe: monitoring sessions and the streaming
+ * vanish detector match concurrently.
+ * </p>
+ */
+public interface TemplateMatcher {
+
+    /**
+     * Backend name used in {@code claude.automator.matching.backend.*}.
+     */
+    String getName();
+
+    /**
+     * Returns the best match of the template inside the area, or null if no
+     * location scores at least {@code minScore}.
+     *
+     * @param scene    the full frame
+     * @param area     the part of the frame to search, already clipped to it
+     * @param template the pattern image
+     * @param minScore similarity threshold between 0 and 1
+     */
+    TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore);
+
+    /**
+     * Returns the best match of each template inside the area, or null at
+     * the index of templates with no location scoring at least
+     * {@code minScore}. Backends that can share work between templates
+     * searching the same area override this; the default matches them one by
+     * one.
+     */
+    default TemplateMatch[] matchEach(BufferedImage scene, Rectangle area, List<BufferedImage> templates,
+                                      double minScore) {
+        TemplateMatch[] matches = new TemplateMatch[templates.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = match(scene, area, templates.get(i), minScore);
+        }
+        return matches;
+    }
+
+    /**
+     * Whether {@link #matchEach} searches all templates in one pass over the
+     * area, making it cheaper than separate matches.
+     */
+    default boolean isSinglePass() {
+        return false;
+    }
+
+    /**
+     * Returns up to {@code maxMatches} non-overlapping matches scoring at least
+     * {@code minScore}, best first, for ALL and EACH style searches. Backends
+     * that only know the best match return at most that one.
+     */
+    default List<TemplateMatch> matchAll(BufferedImage scene, Rectangle area, BufferedImage template,
+                                         double minScore, int maxMatches) {
+        TemplateMatch best = match(scene, area, template, minScore);
+        return best == null || maxMatches < 1 ? List.of() : List.of(best);
+    }
+
+    /**
+     * Precomputes whatever the backend derives from a template, so the first
+     * find does not pay for it. Called for every pattern at startup.
+     */
+    default void prepare(BufferedImage template) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.claude.automator.matching;
+
+import io.github.jspinak.brobot.model.state.StateImage;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses the {@link TemplateMatcher} backend for each StateImage.
+ *
+ * <p>
+ * The default backend is set with
+ * {@code claude.automator.matching.backend.default}; single images can use a
+ * different one with {@code claude.automator.matching.backend.overrides}, a
+ * list of {@code ImageName:backend} entries:
+ * </p>
+ *
+ * <pre>
+ * claude.automator.matching.backend.default=sikuli
+ * claude.automator.matching.backend.overrides=ClaudeIcon:ncc
+ * </pre>
+ *
+ * <p>
+ * An override for {@code ClaudeIcon} also applies to the session copies
+ * named {@code <session>-ClaudeIcon}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateMatcherRegistry {
+
+    private final List<TemplateMatcher> backends;
+
+    @Value("${claude.automator.matching.backend.default:sikuli}")
+    private String defaultBackendName;
+
+    @Value("${claude.automator.matching.backend.overrides:}")
+    private List<String> overrideDefinitions;
+
+    private final Map<String, TemplateMatcher> backendsByName = new LinkedHashMap<>();
+    private final Map<String, TemplateMatcher> overrides = new LinkedHashMap<>();
+    private TemplateMatcher defaultBackend;
+
+    @PostConstruct
+    void initBackends() {
+        for (TemplateMatcher backend : backends) {
+            backendsByName.put(backend.getName(), backend);
+        }
+
+        defaultBackend = backendsByName.get(defaultBackendName);
+        if (defaultBackend == null) {
+            log.warn("Unknown matching backend '{}', using {} (available: {})",
+                    defaultBackendName, SikuliTemplateMatcher.NAME, backendsByName.keySet());
+            defaultBackend = backendsByName.get(SikuliTemplateMatcher.NAME);
+        }
+
+        for (String definition : overrideDefinitions) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            String[] parts = definition.trim().split(":");
+            TemplateMatcher backend = parts.length == 2 ? backendsByName.get(parts[1].trim()) : null;
+            if (backend == null) {
+                log.error("Ignoring matching backend override '{}': expected ImageName:backend with one of {}",
+                        definition, backendsByName.keySet());
+                continue;
+            }
+            overrides.put(parts[0].trim(), backend);
+        }
+        log.info("Matching backend: {} by default, overrides {}", defaultBackend.getName(), overrides.keySet());
+    }
+
+    /**
+     * Returns the backend configured for the image.
+     */
+    public TemplateMatcher matcherFor(StateImage image) {
+        TemplateMatcher override = overrideFor(image.getName());
+        return override != null ? override : defaultBackend;
+    }
+
+    /**
+     * Whether the image has a backend override. Such images are searched
+     * through {@link StateImageMatcher} even where Brobot's find is used
+     * otherwise.
+     */
+    public boolean hasOverride(StateImage image) {
+        return overrideFor(image.getName()) != null;
+    }
+
+    private TemplateMatcher overrideFor(String name) {
+        if (name == null || overrides.isEmpty()) {
+            return null;
+        }
+        TemplateMatcher exact = overrides.get(name);
+        if (exact != null) {
+            return exact;
+        }
+        for (Map.Entry<String, TemplateMatcher> override : overrides.entrySet()) {
+            if (name.endsWith("-" + override.getKey())) {
+                return override.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the backend with the given name, or null.
+     */
+    public TemplateMatcher backend(String name) {
+        return backendsByName.get(name);
+    }
+}
@@ -0,0 +1,281 @@
+package com.claude.automator.matching;
+
+import com.claude.automator.capture.IntPixels;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link TemplateMatcher} that detects on luminance and verifies in colour.
+ *
+ * <p>
+ * Full colour matching correlates three channels at every window. Here the
+ * search runs on the luminance plane of {@link NccTemplateMatcher}, one value
+ * per pixel, with the threshold lowered by
+ * {@code claude.automator.matching.two-stage.detect-margin} (never below 0).
+ * The plane holds its 0-255 values as floats, four bytes per pixel like the
+ * packed RGB capture, so the saving is arithmetic, not memory traffic. The
+ * best non-overlapping candidates of that pass
+ * ({@code claude.automator.matching.two-stage.candidates}) are then compared
+ * with the original pattern in RGB, best first, until one passes; its colour
+ * score is the reported similarity. A window that has the right shape in the
+ * wrong colours, e.g. a grey ClaudeIcon placeholder instead of the orange
+ * icon, passes detection but fails verification.
+ * </p>
+ *
+ * <p>
+ * Detection costs one multiply-add per pattern pixel and window, verification
+ * three per pattern pixel and verified candidate. The total approaches a
+ * third of full colour matching when the search area holds many more windows
+ * than candidates get verified, which is the usual case; with a small area or
+ * a low threshold that lets many lookalikes through to verification the
+ * saving shrinks.
+ * </p>
+ *
+ * <p>
+ * The colour score is OpenCV's {@code TM_CCOEFF_NORMED} on three channels,
+ * the measure SikuliX reports, so thresholds carry over from the default
+ * backend. Patterns masked by {@link NccTemplateMatcher} are verified on their
+ * opaque pixels only. The window's rows are copied straight from the int
+ * raster of a screen capture; other image types go through
+ * {@link BufferedImage#getRGB}.
+ * </p>
+ */
+@Component
+public class TwoStageTemplateMatcher implements TemplateMatcher {
+
+    public static final String NAME = "two-stage";
+
+    private final NccTemplateMatcher detector;
+
+    // BufferedImage uses identity equality, so pattern images map to their colour values
+    private final Map<BufferedImage, ColorTemplate> colorTemplates =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ThreadLocal<int[]> windowBuffers = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Luminance scores a little differently from colour, so candidates may score lower there
+    @Value("${claude.automator.matching.two-stage.detect-margin:0.1}")
+    private double detectMargin = 0.1;
+
+    @Value("${claude.automator.matching.two-stage.candidates:4}")
+    private int candidates = 4;
+
+    public TwoStageTemplateMatcher(NccTemplateMatcher detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void prepare(BufferedImage template) {
+        detector.prepare(template);
+        colorTemplate(template);
+    }
+
+    /**
+     * Detects the candidates in one luminance pass and returns the first, in
+     * luminance order, that passes the colour check. The luminance best is
+     * usually the answer, so the others are rarely verified.
+     */
+    @Override
+    public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+        List<TemplateMatch> detected = detector.matchAll(scene, area, template, detectScore(minScore),
+                Math.max(1, candidates));
+        if (detected.isEmpty()) {
+            return null;
+        }
+        ColorTemplate color = colorTemplate(template);
+        for (TemplateMatch candidate : detected) {
+            TemplateMatch verified = verify(scene, candidate, color, minScore);
+            if (verified != null) {
+                return verified;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<TemplateMatch> matchAll(BufferedImage scene, Rectangle area, BufferedImage template,
+                                        double minScore, int maxMatches) {
+        if (maxMatches < 1) {
+            return List.of();
+        }
+        List<TemplateMatch> verified = verify(scene, area, template, minScore, Math.max(maxMatches, candidates));
+        return verified.size() > maxMatches ? verified.subList(0, maxMatches) : verified;
+    }
+
+    /**
+     * Detects up to {@code count} candidates on luminance and returns those
+     * whose colour score is at least {@code minScore}, best first.
+     */
+    private List<TemplateMatch> verify(BufferedImage scene, Rectangle area, BufferedImage template,
+                                       double minScore, int count) {
+        List<TemplateMatch> detected = detector.matchAll(scene, area, template, detectScore(minScore), count);
+        if (detected.isEmpty()) {
+            return List.of();
+        }
+        ColorTemplate color = colorTemplate(template);
+        List<TemplateMatch> verified = new ArrayList<>(detected.size());
+        for (TemplateMatch candidate : detected) {
+            TemplateMatch match = verify(scene, candidate, color, minScore);
+            if (match != null) {
+                verified.add(match);
+            }
+        }
+        verified.sort(Comparator.comparingDouble(TemplateMatch::score).reversed());
+        return verified;
+    }
+
+    /**
+     * Returns the candidate with its colour score, or null if that is below
+     * {@code minScore}.
+     */
+    private TemplateMatch verify(BufferedImage scene, TemplateMatch candidate, ColorTemplate color,
+                                 double minScore) {
+        double score = color.score(scene, candidate.x(), candidate.y(), windowBuffer(color));
+        if (score < minScore) {
+            return null;
+        }
+        return new TemplateMatch(candidate.x(), candidate.y(), candidate.width(), candidate.height(),
+                Math.min(1.0, score));
+    }
+
+    /**
+     * The luminance threshold for {@code minScore}; a negative one would let
+     * anti-correlated windows through to verification.
+     */
+    private double detectScore(double minScore) {
+        return Math.max(0, minScore - detectMargin);
+    }
+
+    private ColorTemplate colorTemplate(BufferedImage template) {
+        return colorTemplates.computeIfAbsent(template,
+                image -> new ColorTemplate(image, detector.usesMask(image)));
+    }
+
+    private int[] windowBuffer(ColorTemplate template) {
+        int[] buffer = windowBuffers.get();
+        if (buffer.length < template.width * template.height) {
+            buffer = new int[template.width * template.height];
+            windowBuffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Zero-mean RGB channels of a pattern and their sum of squares.
+     */
+    private static final class ColorTemplate {
+
+        final int width;
+        final int height;
+        // Interleaved r, g, b per pixel; 0 at pixels that are not scored
+        private final float[] values;
+        // Scored pixels, or null for all
+        private final boolean[] mask;
+        private final int scored;
+        private final double variance;
+
+        /**
+         * @param masked whether only opaque pixels are scored, as with
+         *               {@link PreparedTemplate}
+         */
+        ColorTemplate(BufferedImage template, boolean masked) {
+            width = template.getWidth();
+            height = template.getHeight();
+            int n = width * height;
+            int[] rgb = template.getRGB(0, 0, width, height, null, 0, width);
+            boolean[] mask = null;
+            int scored = n;
+            if (masked) {
+                mask = new boolean[n];
+                scored = 0;
+                for (int i = 0; i < n; i++) {
+                    mask[i] = rgb[i] >>> 24 >= PreparedTemplate.ALPHA_THRESHOLD;
+                    scored += mask[i] ? 1 : 0;
+                }
+            }
+            this.mask = mask;
+            this.scored = scored;
+
+            double[] means = new double[3];
+            for (int i = 0; i < n; i++) {
+                if (mask == null || mask[i]) {
+                    means[0] += (rgb[i] >> 16) & 0xFF;
+                    means[1] += (rgb[i] >> 8) & 0xFF;
+                    means[2] += rgb[i] & 0xFF;
+                }
+            }
+            for (int c = 0; c < 3; c++) {
+                means[c] /= scored;
+            }
+            values = new float[3 * n];
+            double sumSq = 0;
+            for (int i = 0; i < n; i++) {
+                if (mask == null || mask[i]) {
+                    for (int c = 0; c < 3; c++) {
+                        float value = (float) (((rgb[i] >> (16 - 8 * c)) & 0xFF) - means[c]);
+                        values[3 * i + c] = value;
+                        sumSq += value * value;
+                    }
+                }
+            }
+            // A flat template correlates with nothing; keep the division defined
+            variance = Math.max(sumSq, 1e-6);
+        }
+
+        /**
+         * Correlation coefficient over all three channels of the window at
+         * (x, y) of the scene, each channel centred on its own mean.
+         *
+         * @param buffer receives the window's pixels, at least width x height
+         */
+        double score(BufferedImage scene, int x, int y, int[] buffer) {
+            IntPixels direct = IntPixels.of(scene);
+            if (direct != null) {
+                for (int row = 0; row < height; row++) {
+                    System.arraycopy(direct.data(), direct.index(x, y + row), buffer, row * width, width);
+                }
+            } else {
+                scene.getRGB(x, y, width, height, buffer, 0, width);
+            }
+            long sumR = 0;
+            long sumG = 0;
+            long sumB = 0;
+            long sumSq = 0;
+            double cross = 0;
+            for (int i = 0; i < width * height; i++) {
+                if (mask != null && !mask[i]) {
+                    continue;
+                }
+                int r = (buffer[i] >> 16) & 0xFF;
+                int g = (buffer[i] >> 8) & 0xFF;
+                int b = buffer[i] & 0xFF;
+                sumR += r;
+                sumG += g;
+                sumB += b;
+                sumSq += r * r + g * g + b * b;
+                // The template channels are zero-mean, so the window means cancel out
+                cross += values[3 * i] * r + values[3 * i + 1] * g + values[3 * i + 2] * b;
+            }
+            double windowVariance = sumSq - ((double) sumR * sumR + (double) sumG * sumG + (double) sumB * sumB)
+                    / scored;
+            if (windowVariance < 1e-6) {
+                return 0;
+            }
+            return cross / Math.sqrt(windowVariance * variance);
+        }
+    }
+}
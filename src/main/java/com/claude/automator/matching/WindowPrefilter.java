@@ -0,0 +1,41 @@
+package com.claude.automator.matching;
+
+/**
+ * Rejects search windows whose luminance statistics are too far from the
+ * template's to be a match, before any correlation is computed.
+ *
+ * <p>
+ * A window's mean and variance come from the integral images of the
+ * {@link LumaPlane} at four lookups each, while its correlation costs one
+ * multiply-add per template pixel. A window is rejected if
+ * </p>
+ * <ul>
+ * <li>its mean luminance differs from the template's by more than
+ * {@code maxMeanDifference} levels (0-255), or</li>
+ * <li>its standard deviation is more than {@code maxContrastRatio} times
+ * larger or smaller than the template's.</li>
+ * </ul>
+ *
+ * <p>
+ * NCC alone is invariant to brightness and contrast; the prefilter gives that
+ * up for the screen patterns of this application, which are rendered with the
+ * same colours every time. Flat background windows fail the contrast test and
+ * cost nothing beyond the lookups.
+ * </p>
+ */
+public record WindowPrefilter(double maxMeanDifference, double maxContrastRatio) {
+
+    /**
+     * Whether a window with the given sum and sum of squared deviations, over
+     * {@code n} pixels, may match the template.
+     */
+    boolean accepts(PreparedTemplate template, double windowSum, double windowVariance, int n) {
+        double meanDifference = Math.abs(windowSum / n - template.mean);
+        if (meanDifference > maxMeanDifference * template.unit) {
+            return false;
+        }
+        double ratioSq = maxContrastRatio * maxContrastRatio;
+        double varianceRatio = windowVariance / template.variance;
+        return varianceRatio <= ratioSq && varianceRatio * ratioSq >= 1;
+    }
+}
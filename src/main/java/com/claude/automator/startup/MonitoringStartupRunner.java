@@ -1,6 +1,7 @@
 package com.claude.automator.startup;
 
 import com.claude.automator.automation.ClaudeMonitoringAutomation;
+import com.claude.automator.automation.MonitoringSessionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
@@ -17,6 +18,9 @@ import org.springframework.stereotype.Component;
  * <p>Using ApplicationRunner instead of @PostConstruct gives us better control
  * over the initialization order and ensures the monitoring starts after all
  * other initialization is complete.</p>
+ * 
+ * <p>When multi-session monitoring is enabled, the session manager monitors all
+ * configured windows instead of the single-window automation.</p>
  */
 @Component
 @Profile({"default", "windows", "linux"}) // Only run in production profiles
@@ -26,6 +30,7 @@ import org.springframework.stereotype.Component;
 public class MonitoringStartupRunner implements ApplicationRunner {
     
     private final ClaudeMonitoringAutomation monitoringAutomation;
+    private final MonitoringSessionManager sessionManager;
     
     @Override
     public void run(ApplicationArguments args) throws Exception {
@@ -35,8 +40,13 @@ public class MonitoringStartupRunner implements ApplicationRunner {
         // Add a small delay to ensure everything is fully initialized
         Thread.sleep(2000);
         
-        log.info("Initiating monitoring loop...");
-        monitoringAutomation.startMonitoring();
+        if (sessionManager.isEnabled()) {
+            log.info("Initiating multi-session monitoring...");
+            sessionManager.startMonitoring();
+        } else {
+            log.info("Initiating monitoring loop...");
+            monitoringAutomation.startMonitoring();
+        }
         
         log.info("Monitoring startup complete");
     }
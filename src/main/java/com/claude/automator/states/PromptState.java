@@ -25,6 +25,15 @@ import java.util.Collections;
 @Slf4j
 public class PromptState {
     
+    /**
+     * Pattern files for the Claude prompt. Shared with monitoring sessions
+     * that build their own ClaudePrompt instances.
+     */
+    public static final String[] PROMPT_PATTERNS = {
+        // Original patterns - regions now match capture resolution
+        "prompt/windows", "prompt/ffmpeg"
+    };
+    
     private final StateImage claudePrompt;
     private final StateString continueCommand;
     
@@ -48,10 +57,7 @@ public class PromptState {
         // The ActionHistory is required for mock mode finds to work
         // Using original patterns since regions are now in capture coordinate space
         claudePrompt = new StateImage.Builder()
-            .addPatterns(
-                // Original patterns - regions now match capture resolution
-                "prompt/windows", "prompt/ffmpeg"
-            )
+            .addPatterns(PROMPT_PATTERNS)
             .setName("ClaudePrompt")
             .setSearchRegionForAllPatterns(lowerLeftQuarter)
             .setFixedForAllPatterns(true)  // Mark all patterns as fixed
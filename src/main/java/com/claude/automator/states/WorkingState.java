@@ -27,6 +27,25 @@ import java.util.Collections;
 @Slf4j
 public class WorkingState {
     
+    /**
+     * Pattern files for the Claude icon animation. Shared with monitoring
+     * sessions that build their own ClaudeIcon instances.
+     */
+    public static final String[] ICON_PATTERNS = {
+        // Original patterns
+        "working/claude-icon-1", 
+        "working/claude-icon-2", 
+        "working/claude-icon-3", 
+        "working/claude-icon-4",
+        // 80% scaled patterns (pre-scaled to match 125% Windows scaling), searched by
+        // Brobot finds and by backends without multi-scale matching; images that use
+        // multi-scale matching in StateImageMatcher skip them
+        "working/claude-icon-1-80",
+        "working/claude-icon-2-80", 
+        "working/claude-icon-3-80",
+        "working/claude-icon-4-80"
+    };
+    
     private final StateImage claudeIcon;
     
     public WorkingState() {
@@ -34,18 +53,7 @@ public class WorkingState {
         // Do NOT set a fixed ActionHistory as it will override the SearchRegionOnObject
         
         claudeIcon = new StateImage.Builder()
-            .addPatterns(
-                // Original patterns
-                "working/claude-icon-1", 
-                "working/claude-icon-2", 
-                "working/claude-icon-3", 
-                "working/claude-icon-4",
-                // 80% scaled patterns (pre-scaled to match 125% Windows scaling)
-                "working/claude-icon-1-80",
-                "working/claude-icon-2-80", 
-                "working/claude-icon-3-80",
-                "working/claude-icon-4-80"
-            )
+            .addPatterns(ICON_PATTERNS)
             .setName("ClaudeIcon")
             .setHighlightColor("#0000FF")  // Blue color for icon highlighting
             .setFixedForAllPatterns(true)  // Enable fixed region optimization once found
@@ -1,5 +1,10 @@
 package com.claude.automator.transitions;
 
+import com.claude.automator.automation.FindResultCache;
+import com.claude.automator.automation.ReplayInput;
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.matching.StateImageMatcher;
 import com.claude.automator.states.PromptState;
 import com.claude.automator.states.WorkingState;
 import io.github.jspinak.brobot.action.Action;
@@ -9,11 +14,36 @@ import io.github.jspinak.brobot.action.basic.click.ClickOptions;
 import io.github.jspinak.brobot.action.basic.find.PatternFindOptions;
 import io.github.jspinak.brobot.action.basic.type.TypeOptions;
 import io.github.jspinak.brobot.annotations.Transition;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import io.github.jspinak.brobot.model.state.StateString;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 
 /**
  * Transition from Prompt state to Working state.
+ *
+ * <p>
+ * ClaudePrompt is searched in the frame of the current tick, the same way
+ * the monitoring tick searches it: through {@link StateImageMatcher} on the
+ * captured search area if it has a backend override, otherwise through a
+ * Brobot find on the full frame.
+ * </p>
+ *
+ * <p>
+ * {@link FindResultCache} is an aspect on Brobot's {@code Action}: the
+ * {@code Action} injected here, like every other in the application, is its
+ * proxy, so each {@code click}, {@code type} and {@code perform} passes
+ * through it and non-find actions clear the cache before they run. The
+ * {@link FindResultCache#invalidateForInput()} after each input step also
+ * drops what was cached while the input ran.
+ * </p>
+ *
+ * <p>
+ * While a recording is replayed, the click and the typing are recorded by
+ * {@link ReplayInput} instead of sent.
+ * </p>
  */
 @Slf4j
 @Transition(from = PromptState.class, to = WorkingState.class)
@@ -22,6 +52,14 @@ public class PromptToWorkingTransition {
 
     private final PromptState promptState;
     private final Action action;
+    private final FrameBroker frameBroker;
+    private final FindResultCache findResultCache;
+    private final StateImageMatcher stateImageMatcher;
+    private final ReplayInput replayInput;
+
+    // Used when ClaudePrompt has a matching backend override
+    @Value("${brobot.action.similarity:0.65}")
+    private double promptSimilarity;
 
     /**
      * Executes the transition from Prompt to Working state.
@@ -42,11 +80,23 @@ public class PromptToWorkingTransition {
             PatternFindOptions findOptions = new PatternFindOptions.Builder()
                     .build();
             
-            ObjectCollection findTarget = new ObjectCollection.Builder()
-                    .withImages(promptState.getClaudePrompt())
-                    .build();
-            
-            ActionResult findResult = action.perform(findOptions, findTarget);
+            // Reuse the match the monitoring tick found on this frame, otherwise
+            // search the frame of the current tick instead of capturing again.
+            // Only StateImageMatcher searches a region frame, Brobot needs the whole screen
+            StateImage prompt = promptState.getClaudePrompt();
+            boolean matcherFind = stateImageMatcher.hasBackendOverride(prompt);
+            ActionResult findResult;
+            try (CapturedFrame frame = frameBroker.currentFrame(matcherFind ? FrameBroker.searchArea(prompt) : null)) {
+                findResult = findResultCache.get(prompt, frame).orElse(null);
+                if (findResult != null) {
+                    log.info("Reusing ClaudePrompt match from {}", frame);
+                } else if (frame != null && matcherFind) {
+                    findResult = stateImageMatcher.find(prompt, frame, promptSimilarity);
+                } else {
+                    ObjectCollection findTarget = FrameBroker.collectionFor(frame, prompt);
+                    findResult = action.perform(findOptions, findTarget);
+                }
+            }
             log.info("Find result: success={}, matches={}, best score={}", 
                     findResult.isSuccess(), 
                     findResult.getMatchList().size(),
@@ -59,47 +109,11 @@ public class PromptToWorkingTransition {
                 return false;
             }
             
-            // Execute actions separately for better control and debugging
-            log.info("Step 2: Clicking on the found location...");
-            
-            // Click on the location where we found the prompt
-            ClickOptions clickOptions = new ClickOptions.Builder()
-                    .setPauseAfterEnd(0.5) // Pause after clicking
-                    .build();
-            
-            // Use the region from the find result for clicking
-            ObjectCollection clickTarget = new ObjectCollection.Builder()
-                    .withRegions(findResult.getMatchList().get(0).getRegion())
-                    .build();
-            
-            ActionResult clickResult = action.perform(clickOptions, clickTarget);
-            log.info("Click result: success={}", clickResult.isSuccess());
-            
-            if (!clickResult.isSuccess()) {
-                log.error("Failed to click on found region");
-                log.info("=== TRANSITION DEBUG: PromptToWorkingTransition.execute() END - FAILED (Click) ===");
-                return false;
-            }
-            
-            // Type the continue command
-            log.info("Step 3: Typing continue command...");
-            log.info("Command to type: '{}'", promptState.getContinueCommand().getString());
-            
-            TypeOptions typeOptions = new TypeOptions.Builder()
-                    .setPauseBeforeBegin(0.5) // Pause before typing
-                    .build();
-            
-            ObjectCollection typeTarget = new ObjectCollection.Builder()
-                    .withStrings(promptState.getContinueCommand())
-                    .build();
-            
-            ActionResult typeResult = action.perform(typeOptions, typeTarget);
-            log.info("Type result: success={}, text typed='{}'", 
-                    typeResult.isSuccess(), typeResult.getText());
-            
-            if (!typeResult.isSuccess()) {
-                log.error("Failed to type continue command");
-                log.info("=== TRANSITION DEBUG: PromptToWorkingTransition.execute() END - FAILED (Type) ===");
+            ContinueResult sent = sendContinue(findResult.getMatchList().get(0).getRegion(),
+                    promptState.getContinueCommand());
+            if (sent != ContinueResult.SENT) {
+                log.info("=== TRANSITION DEBUG: PromptToWorkingTransition.execute() END - FAILED ({}) ===",
+                        sent == ContinueResult.CLICK_FAILED ? "Click" : "Type");
                 return false;
             }
             
@@ -113,4 +127,69 @@ public class PromptToWorkingTransition {
             return false;
         }
     }
+
+    /**
+     * Outcome of {@link #sendContinue}, naming the step that failed.
+     */
+    public enum ContinueResult {
+        SENT, CLICK_FAILED, TYPE_FAILED
+    }
+
+    /**
+     * Clicks the prompt match and types the continue command.
+     * The monitoring sessions send their input through this method too,
+     * holding the Brobot lock while they do.
+     */
+    public ContinueResult sendContinue(Region promptMatch, StateString continueCommand) {
+        if (replayInput.isActive()) {
+            replayInput.record("click", promptMatch);
+            replayInput.record("type", continueCommand.getString());
+            findResultCache.invalidateForInput();
+            return ContinueResult.SENT;
+        }
+
+        // Execute actions separately for better control and debugging
+        log.info("Step 2: Clicking on the found location...");
+        
+        // Click on the location where we found the prompt
+        ClickOptions clickOptions = new ClickOptions.Builder()
+                .setPauseAfterEnd(0.5) // Pause after clicking
+                .build();
+        
+        ObjectCollection clickTarget = new ObjectCollection.Builder()
+                .withRegions(promptMatch)
+                .build();
+        
+        ActionResult clickResult = action.perform(clickOptions, clickTarget);
+        findResultCache.invalidateForInput();
+        log.info("Click result: success={}", clickResult.isSuccess());
+        
+        if (!clickResult.isSuccess()) {
+            log.error("Failed to click on found region");
+            return ContinueResult.CLICK_FAILED;
+        }
+        
+        // Type the continue command
+        log.info("Step 3: Typing continue command...");
+        log.info("Command to type: '{}'", continueCommand.getString());
+        
+        TypeOptions typeOptions = new TypeOptions.Builder()
+                .setPauseBeforeBegin(0.5) // Pause before typing
+                .build();
+        
+        ObjectCollection typeTarget = new ObjectCollection.Builder()
+                .withStrings(continueCommand)
+                .build();
+        
+        ActionResult typeResult = action.perform(typeOptions, typeTarget);
+        findResultCache.invalidateForInput();
+        log.info("Type result: success={}, text typed='{}'", 
+                typeResult.isSuccess(), typeResult.getText());
+        
+        if (!typeResult.isSuccess()) {
+            log.error("Failed to type continue command");
+            return ContinueResult.TYPE_FAILED;
+        }
+        return ContinueResult.SENT;
+    }
 }
\ No newline at end of file
@@ -19,7 +19,12 @@ import java.io.IOException;
 /**
  * Standalone application to scale patterns and test them.
  * Run this to create 80% scaled versions of all patterns.
+ *
+ * @deprecated StateImageMatcher searches every pattern over a scale range
+ * ({@code claude.automator.matching.multiscale.*}), so scaled copies no longer
+ * need to be created when the DPI changes.
  */
+@Deprecated
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.claude.automator", "io.github.jspinak.brobot"})
 @Slf4j
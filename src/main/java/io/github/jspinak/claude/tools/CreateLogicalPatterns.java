@@ -8,7 +8,11 @@ import java.io.File;
 /**
  * Creates logical resolution versions of patterns by scaling them by 0.8
  * This matches the 125% DPI scaling (1920x1080 physical -> 1536x864 logical)
+ *
+ * @deprecated Multi-scale matching ({@code claude.automator.matching.multiscale.*})
+ * covers 80% patterns without separate files.
  */
+@Deprecated
 public class CreateLogicalPatterns {
     
     public static void main(String[] args) throws Exception {
@@ -0,0 +1,208 @@
+package io.github.jspinak.claude.tools;
+
+import com.claude.automator.matching.NccTemplateMatcher;
+import com.claude.automator.matching.PyramidTemplateMatcher;
+import com.claude.automator.matching.RowKernel;
+import com.claude.automator.matching.RowKernels;
+import com.claude.automator.matching.SikuliTemplateMatcher;
+import com.claude.automator.matching.TemplateMatch;
+import com.claude.automator.matching.TemplateMatcher;
+import com.claude.automator.matching.TwoStageTemplateMatcher;
+import com.claude.automator.matching.WindowPrefilter;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.WorkingState;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the template matching backends on the ClaudeIcon and ClaudePrompt
+ * patterns.
+ *
+ * <p>
+ * Usage: {@code ./gradlew runMatcherBenchmark -Pargs="scene.png x y w h [icon|prompt]"}.
+ * Without arguments two synthetic 1920x1080 scenes are used: the first icon
+ * pattern pasted into an icon-sized search region, and the first prompt
+ * pattern pasted into the lower-left quarter, where the pyramid and FFT paths
+ * are meant to pay off. Every backend searches every pattern in the area; the
+ * report shows time and heap allocation per find.
+ * </p>
+ *
+ * <p>
+ * The backends are SikuliX, plain NCC with the scalar and the Vector API
+ * kernel, NCC with the window prefilter, NCC forced onto the FFT path, the
+ * pyramid and the two-stage backend. The last four use the fastest available
+ * kernel. Plain NCC never switches to the FFT, so each row measures one
+ * technique.
+ * </p>
+ */
+public class MatcherBenchmark {
+
+    private static final int ICON_WARMUP = 200;
+    private static final int ICON_ITERATIONS = 2000;
+    // A quarter-screen search costs milliseconds per find, even with the FFT
+    private static final int PROMPT_WARMUP = 3;
+    private static final int PROMPT_ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        List<Scenario> scenarios = new ArrayList<>();
+        if (args.length >= 5) {
+            boolean prompt = args.length >= 6 && "prompt".equalsIgnoreCase(args[5]);
+            BufferedImage scene = ImageIO.read(new File(args[0]));
+            Rectangle area = new Rectangle(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            scenarios.add(new Scenario(prompt ? "ClaudePrompt" : "ClaudeIcon", scene, area,
+                    loadPatterns(prompt ? PromptState.PROMPT_PATTERNS : WorkingState.ICON_PATTERNS),
+                    prompt ? PROMPT_WARMUP : ICON_WARMUP, prompt ? PROMPT_ITERATIONS : ICON_ITERATIONS));
+        } else {
+            // Same size as the ClaudeIcon search region next to the prompt
+            scenarios.add(synthetic("ClaudeIcon", WorkingState.ICON_PATTERNS, new Rectangle(100, 600, 58, 80),
+                    new Rectangle(110, 620, 25, 25), ICON_WARMUP, ICON_ITERATIONS));
+            // The lower-left quarter PromptState searches
+            scenarios.add(synthetic("ClaudePrompt", PromptState.PROMPT_PATTERNS, new Rectangle(0, 540, 960, 540),
+                    new Rectangle(300, 800, 200, 60), PROMPT_WARMUP, PROMPT_ITERATIONS));
+        }
+
+        Map<String, TemplateMatcher> backends = backends();
+        for (Scenario scenario : scenarios) {
+            if (scenario.templates().isEmpty()) {
+                System.out.println("No " + scenario.name() + " patterns found under images/");
+                continue;
+            }
+            run(scenario, backends);
+        }
+    }
+
+    private static Map<String, TemplateMatcher> backends() {
+        Map<String, TemplateMatcher> backends = new LinkedHashMap<>();
+        backends.put("sikuli", new SikuliTemplateMatcher());
+        backends.put("ncc-scalar", new NccTemplateMatcher(RowKernels.scalar(), null, Integer.MAX_VALUE));
+        RowKernel fastest = RowKernels.scalar();
+        if (RowKernels.vectorApiAvailable()) {
+            fastest = RowKernels.select(RowKernels.VECTOR);
+            backends.put("ncc-vector", new NccTemplateMatcher(fastest, null, Integer.MAX_VALUE));
+        } else {
+            System.out.println("Vector API not available, run with --add-modules jdk.incubator.vector");
+        }
+        // Same limits as the prefilter defaults in application.properties
+        backends.put("ncc-prefilter", new NccTemplateMatcher(fastest, new WindowPrefilter(48, 2.5),
+                Integer.MAX_VALUE));
+        backends.put("ncc-fft", new NccTemplateMatcher(fastest, null, 1));
+        backends.put(PyramidTemplateMatcher.NAME, new PyramidTemplateMatcher(
+                new NccTemplateMatcher(fastest, null, Integer.MAX_VALUE)));
+        backends.put(TwoStageTemplateMatcher.NAME, new TwoStageTemplateMatcher(
+                new NccTemplateMatcher(fastest, null, Integer.MAX_VALUE)));
+        return backends;
+    }
+
+    private static void run(Scenario scenario, Map<String, TemplateMatcher> backends) {
+        Rectangle area = scenario.area();
+        List<BufferedImage> templates = scenario.templates();
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("MATCHER BENCHMARK " + scenario.name() + ": " + templates.size() + " patterns, area "
+                + area.width + "x" + area.height + ", " + scenario.iterations() + " iterations");
+        System.out.println("=".repeat(80));
+        System.out.printf("%-14s %12s %14s %10s%n", "backend", "us/find", "bytes/find", "best");
+
+        for (Map.Entry<String, TemplateMatcher> backend : backends.entrySet()) {
+            TemplateMatcher matcher = backend.getValue();
+            try {
+                templates.forEach(matcher::prepare);
+                for (int i = 0; i < scenario.warmup(); i++) {
+                    matchAll(matcher, scenario.scene(), area, templates);
+                }
+            } catch (RuntimeException | LinkageError e) {
+                // SikuliX needs the OpenCV natives, which not every machine has
+                System.out.printf("%-14s unavailable: %s%n", backend.getKey(), e);
+                continue;
+            }
+
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            double best = 0;
+            for (int i = 0; i < scenario.iterations(); i++) {
+                best = matchAll(matcher, scenario.scene(), area, templates);
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            long finds = (long) scenario.iterations() * templates.size();
+            System.out.printf("%-14s %12.1f %14d %10.3f%n", backend.getKey(),
+                    elapsed / 1000.0 / finds, allocated / finds, best);
+        }
+    }
+
+    private static double matchAll(TemplateMatcher matcher, BufferedImage scene, Rectangle area,
+                                   List<BufferedImage> templates) {
+        double best = 0;
+        for (BufferedImage template : templates) {
+            TemplateMatch match = matcher.match(scene, area, template, 0.5);
+            if (match != null) {
+                best = Math.max(best, match.score());
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A noise scene with the first pattern, or a crop of the noise if there
+     * is none, pasted at {@code target}.
+     */
+    private static Scenario synthetic(String name, String[] patterns, Rectangle area, Rectangle target,
+                                      int warmup, int iterations) throws Exception {
+        BufferedImage scene = noise(1920, 1080);
+        List<BufferedImage> templates = loadPatterns(patterns);
+        if (templates.isEmpty()) {
+            templates.add(copy(scene.getSubimage(target.x, target.y, target.width, target.height)));
+        }
+        scene.getGraphics().drawImage(templates.get(0), target.x, target.y, null);
+        return new Scenario(name, scene, area, templates, warmup, iterations);
+    }
+
+    private static List<BufferedImage> loadPatterns(String[] patterns) throws Exception {
+        List<BufferedImage> templates = new ArrayList<>();
+        for (String pattern : patterns) {
+            File file = new File("images/" + pattern + ".png");
+            if (file.exists()) {
+                templates.add(ImageIO.read(file));
+            }
+        }
+        return templates;
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.getGraphics().drawImage(source, 0, 0, null);
+        return copy;
+    }
+
+    private record Scenario(String name, BufferedImage scene, Rectangle area, List<BufferedImage> templates,
+                            int warmup, int iterations) {
+    }
+}
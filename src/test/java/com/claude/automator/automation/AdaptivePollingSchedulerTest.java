@@ -0,0 +1,121 @@
+package com.claude.automator.automation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdaptivePollingScheduler and StateDwellTracker. Time is passed
+ * in explicitly, so no scheduler or screen is required.
+ */
+public class AdaptivePollingSchedulerTest {
+
+    private static final long MIN = 250;
+    private static final long MAX = 5000;
+    private static final long DEFAULT = 2000;
+
+    @Test
+    public void testDefaultIntervalWithoutHistory() {
+        AdaptivePollingScheduler scheduler = newScheduler();
+        assertEquals(DEFAULT, scheduler.recordPoll("Working", 0),
+                "Without recorded dwell times the default interval should be used");
+    }
+
+    @Test
+    public void testInitialStateDwellIsNotRecorded() {
+        StateDwellTracker tracker = new StateDwellTracker(10);
+        tracker.observe("Working", 0);
+        tracker.observe("Prompt", 30_000);
+        assertEquals(0, tracker.getDwellSamples("Working").length,
+                "The state seen at startup has an unknown entry time");
+
+        tracker.observe("Working", 31_000);
+        assertArrayEquals(new long[] { 1_000 }, tracker.getDwellSamples("Prompt"));
+    }
+
+    @Test
+    public void testHistoryIsBounded() {
+        StateDwellTracker tracker = new StateDwellTracker(3);
+        long now = 0;
+        tracker.observe("Prompt", now);
+        for (int i = 1; i <= 5; i++) {
+            tracker.observe("Working", now += 100);
+            tracker.observe("Prompt", now += i * 1_000);
+        }
+        assertArrayEquals(new long[] { 3_000, 4_000, 5_000 }, tracker.getDwellSamples("Working"),
+                "Only the most recent dwell times should be kept");
+    }
+
+    @Test
+    public void testPollsSlowlyFarFromExpectedEnd() {
+        AdaptivePollingScheduler scheduler = trainedScheduler(60_000);
+        long enteredAt = enterWorking(scheduler);
+
+        long delay = scheduler.recordPoll("Working", enteredAt + 1_000);
+        assertEquals(MAX, delay, "A minute before the expected end the maximum interval should be used");
+    }
+
+    @Test
+    public void testPollsFasterNearExpectedEnd() {
+        AdaptivePollingScheduler scheduler = trainedScheduler(60_000);
+        long enteredAt = enterWorking(scheduler);
+
+        long delay = scheduler.recordPoll("Working", enteredAt + 58_000);
+        assertEquals(1_000, delay, "Two seconds before the expected end the delay should be halved");
+
+        delay = scheduler.recordPoll("Working", enteredAt + 59_800);
+        assertEquals(MIN, delay, "Right before the expected end the minimum interval should be used");
+    }
+
+    @Test
+    public void testBacksOffWhenLongerThanEveryRecordedDwell() {
+        AdaptivePollingScheduler scheduler = trainedScheduler(60_000);
+        long enteredAt = enterWorking(scheduler);
+
+        assertEquals(MIN, scheduler.recordPoll("Working", enteredAt + 60_100));
+        assertEquals(2_000, scheduler.recordPoll("Working", enteredAt + 64_000),
+                "The delay should grow with the overrun");
+        assertEquals(MAX, scheduler.recordPoll("Working", enteredAt + 200_000));
+    }
+
+    @Test
+    public void testIsDueHonoursDelay() {
+        AdaptivePollingScheduler scheduler = newScheduler();
+        assertTrue(scheduler.isDue(0), "The first poll is always due");
+
+        scheduler.recordPoll("Prompt", 0);
+        assertFalse(scheduler.isDue(DEFAULT - 1));
+        assertTrue(scheduler.isDue(DEFAULT));
+    }
+
+    @Test
+    public void testRejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptivePollingScheduler(new StateDwellTracker(5), 1000, 500, 2000));
+    }
+
+    private AdaptivePollingScheduler newScheduler() {
+        return new AdaptivePollingScheduler(new StateDwellTracker(20), MIN, MAX, DEFAULT);
+    }
+
+    /**
+     * Returns a scheduler that has seen several Working phases of the given
+     * length, ending in the Prompt state.
+     */
+    private AdaptivePollingScheduler trainedScheduler(long workingDwell) {
+        AdaptivePollingScheduler scheduler = newScheduler();
+        long now = 0;
+        scheduler.recordPoll("Prompt", now);
+        for (int i = 0; i < AdaptivePollingScheduler.MIN_SAMPLES + 1; i++) {
+            scheduler.recordPoll("Working", now += 500);
+            scheduler.recordPoll("Prompt", now += workingDwell);
+        }
+        return scheduler;
+    }
+
+    private long enterWorking(AdaptivePollingScheduler scheduler) {
+        long enteredAt = 1_000_000;
+        scheduler.recordPoll("Working", enteredAt);
+        return enteredAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.claude.automator.automation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for serializing Brobot use across session threads.
+ */
+public class BrobotLockTest {
+
+    @Test
+    public void testSectionsOfConcurrentSessionsNeverOverlap() throws Exception {
+        BrobotLock lock = new BrobotLock();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                int session = i;
+                results.add(sessions.submit(() -> lock.call(() -> {
+                    maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    // Long enough for the other sessions to pile up at the lock
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inside.decrementAndGet();
+                    return session;
+                })));
+            }
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get(), "Each caller should get its own result");
+        }
+        assertEquals(1, maxInside.get(), "Only one session at a time may use Brobot");
+    }
+
+    @Test
+    public void testIsReentrant() {
+        BrobotLock lock = new BrobotLock();
+
+        assertFalse(lock.isHeldByCurrentThread());
+        boolean nested = lock.call(() -> lock.call(lock::isHeldByCurrentThread));
+
+        assertTrue(nested, "A locked section should be able to lock again");
+        assertFalse(lock.isHeldByCurrentThread(), "The lock should be released afterwards");
+    }
+}
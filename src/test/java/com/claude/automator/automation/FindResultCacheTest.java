@@ -0,0 +1,117 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.action.ActionResult;
+import io.github.jspinak.brobot.action.ActionType;
+import io.github.jspinak.brobot.action.ObjectCollection;
+import io.github.jspinak.brobot.action.basic.click.ClickOptions;
+import io.github.jspinak.brobot.action.basic.find.PatternFindOptions;
+import io.github.jspinak.brobot.action.basic.type.TypeOptions;
+import io.github.jspinak.brobot.model.element.Location;
+import io.github.jspinak.brobot.model.state.StateImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Spring tests for reusing find results within a tick and dropping them on
+ * input made through the proxied Action bean.
+ */
+@SpringJUnitConfig(FindResultCacheTest.Config.class)
+public class FindResultCacheTest {
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    @Import(FindResultCache.class)
+    static class Config {
+
+        @Bean
+        Action action() {
+            return mock(Action.class);
+        }
+
+        @Bean
+        FrameBroker frameBroker() {
+            return mock(FrameBroker.class);
+        }
+    }
+
+    @Autowired
+    private FindResultCache cache;
+
+    @Autowired
+    private Action action;
+
+    @Autowired
+    private FrameBroker frameBroker;
+
+    private final StateImage prompt = new StateImage.Builder().setName("ClaudePrompt").build();
+    private final CapturedFrame frame = new CapturedFrame(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), 7);
+
+    @BeforeEach
+    public void reset() {
+        cache.invalidate();
+        clearInvocations(frameBroker);
+    }
+
+    @Test
+    public void testResultIsServedForItsFrameWithinTick() {
+        cache.put(prompt, frame, found());
+
+        assertTrue(cache.get(prompt, frame).isPresent(), "The result should be reused on the same frame");
+        CapturedFrame next = new CapturedFrame(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), 8);
+        assertTrue(cache.get(prompt, next).isEmpty(), "A new frame should be searched again");
+
+        action.perform(new PatternFindOptions.Builder().build(), new ObjectCollection.Builder().build());
+        assertTrue(cache.get(prompt, frame).isPresent(), "A find should not drop cached results");
+        verify(frameBroker, never()).invalidate();
+    }
+
+    @Test
+    public void testClickDropsCachedResults() {
+        cache.put(prompt, frame, found());
+
+        action.perform(new ClickOptions.Builder().build(), new ObjectCollection.Builder().build());
+
+        assertTrue(cache.get(prompt, frame).isEmpty(), "A click should drop cached results");
+        verify(frameBroker).invalidate();
+    }
+
+    @Test
+    public void testTypeDropsCachedResults() {
+        cache.put(prompt, frame, found());
+
+        action.perform(new TypeOptions.Builder().build(), new ObjectCollection.Builder().build());
+
+        assertTrue(cache.get(prompt, frame).isEmpty(), "Typing should drop cached results");
+        verify(frameBroker).invalidate();
+    }
+
+    @Test
+    public void testMoveDropsCachedResults() {
+        cache.put(prompt, frame, found());
+
+        action.perform(ActionType.MOVE, new Location(960, 540));
+
+        assertTrue(cache.get(prompt, frame).isEmpty(), "A mouse move should drop cached results");
+        verify(frameBroker).invalidate();
+    }
+
+    private static ActionResult found() {
+        ActionResult result = new ActionResult();
+        result.setSuccess(true);
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.claude.automator.automation;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrameChangeDetector. No Spring context or screen is required.
+ */
+public class FrameChangeDetectorTest {
+
+    private static final Rectangle AREA = new Rectangle(0, 50, 100, 50);
+    private static final Set<String> PROMPT = Set.of("Prompt");
+
+    @Test
+    public void testFirstObservationAlwaysRuns() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        assertTrue(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT),
+                "Without a confirmed result the find must run");
+    }
+
+    @Test
+    public void testIdenticalFrameIsSkippedAfterConfirm() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        detector.confirm();
+
+        assertFalse(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT),
+                "An unchanged frame should be skipped");
+        assertEquals(1, detector.getSkippedTotal());
+    }
+
+    @Test
+    public void testChangeInsideAreaIsDetected() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        detector.confirm();
+
+        BufferedImage changed = frame(Color.DARK_GRAY);
+        changed.setRGB(70, 80, Color.WHITE.getRGB());
+        assertTrue(detector.hasChanged(changed, AREA, PROMPT), "A single changed pixel should be detected");
+    }
+
+    @Test
+    public void testChangeOutsideAreaIsIgnored() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        detector.confirm();
+
+        BufferedImage changed = frame(Color.DARK_GRAY);
+        changed.setRGB(10, 10, Color.WHITE.getRGB());
+        assertFalse(detector.hasChanged(changed, AREA, PROMPT),
+                "Changes outside the monitored area should not trigger a find");
+    }
+
+    @Test
+    public void testStateChangeForcesFind() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        detector.confirm();
+
+        assertTrue(detector.hasChanged(frame(Color.DARK_GRAY), AREA, Set.of("Working")),
+                "A different set of active states must always run the find");
+    }
+
+    @Test
+    public void testMaxSkippedTicksForcesFind() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 2);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        detector.confirm();
+
+        assertFalse(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT));
+        assertFalse(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT));
+        assertTrue(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT),
+                "The third unchanged tick should be forced to run");
+    }
+
+    @Test
+    public void testUnconfirmedObservationIsNotReused() {
+        FrameChangeDetector detector = new FrameChangeDetector(16, 10);
+        detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT);
+        // No confirm - e.g. the find threw an exception
+        assertTrue(detector.hasChanged(frame(Color.DARK_GRAY), AREA, PROMPT),
+                "Without confirm() the previous observation must not be trusted");
+    }
+
+    private BufferedImage frame(Color background) {
+        BufferedImage image = new BufferedImage(200, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        return image;
+    }
+}
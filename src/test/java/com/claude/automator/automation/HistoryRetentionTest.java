@@ -0,0 +1,76 @@
+package com.claude.automator.automation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the bounded-memory helpers of continuous mode.
+ */
+public class HistoryRetentionTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-10T12:00:00Z");
+
+    @TempDir
+    Path historyDir;
+
+    @Test
+    public void testExpiredFilesAreDeleted() throws IOException {
+        Path old = file("old.png", 100, NOW.minus(Duration.ofHours(30)));
+        Path recent = file("recent.png", 100, NOW.minus(Duration.ofHours(1)));
+
+        HistoryRetention.Usage usage = new HistoryRetention(historyDir, 10_000, Duration.ofHours(24)).enforce(NOW);
+
+        assertFalse(Files.exists(old), "Files older than the age limit should be deleted");
+        assertTrue(Files.exists(recent));
+        assertEquals(1, usage.deleted());
+        assertEquals(1, usage.files());
+        assertEquals(100, usage.bytes());
+    }
+
+    @Test
+    public void testOldestFilesAreDeletedOverBudget() throws IOException {
+        Path oldest = file("a/1.png", 400, NOW.minusSeconds(300));
+        Path middle = file("b/2.png", 400, NOW.minusSeconds(200));
+        Path newest = file("a/3.png", 400, NOW.minusSeconds(100));
+
+        HistoryRetention.Usage usage = new HistoryRetention(historyDir, 900, Duration.ofDays(1)).enforce(NOW);
+
+        assertFalse(Files.exists(oldest), "The oldest file should go first, across subdirectories");
+        assertTrue(Files.exists(middle));
+        assertTrue(Files.exists(newest));
+        assertEquals(800, usage.bytes());
+    }
+
+    @Test
+    public void testMissingDirectoryIsEmpty() {
+        HistoryRetention retention = new HistoryRetention(historyDir.resolve("missing"), 100, Duration.ofHours(1));
+        assertEquals(0, retention.enforce(NOW).files());
+    }
+
+    @Test
+    public void testTrimOldestKeepsNewest() {
+        List<Integer> snapshots = new ArrayList<>(List.of(1, 2, 3, 4, 5));
+        assertEquals(2, ContinuousModeMaintenance.trimOldest(snapshots, 3));
+        assertEquals(List.of(3, 4, 5), snapshots, "The newest entries should be kept in order");
+        assertEquals(0, ContinuousModeMaintenance.trimOldest(snapshots, 3));
+    }
+
+    private Path file(String name, int size, Instant modified) throws IOException {
+        Path path = historyDir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[size]);
+        Files.setLastModifiedTime(path, FileTime.from(modified));
+        return path;
+    }
+}
@@ -0,0 +1,169 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.automation.MonitoringSession.Phase;
+import com.claude.automator.automation.MonitoringSessionManager.WindowDefinition;
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.matching.StateImageMatcher;
+import com.claude.automator.matching.TemplateMatch;
+import com.claude.automator.matching.TemplateMatcher;
+import com.claude.automator.matching.TemplateMatcherRegistry;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.SharedSearchRegionStateImage;
+import com.claude.automator.states.WorkingState;
+import com.claude.automator.transitions.PromptToWorkingTransition;
+import com.claude.automator.transitions.PromptToWorkingTransition.ContinueResult;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for parsing session definitions, the area a tick captures and
+ * running the sessions of a tick in parallel.
+ */
+public class MonitoringSessionManagerTest {
+
+    @Test
+    public void testParsesWindowDefinition() {
+        WindowDefinition left = MonitoringSessionManager.parseWindow("left@0:0:960:1080");
+
+        assertEquals("left", left.name());
+        assertEquals(0, left.window().x());
+        assertEquals(0, left.window().y());
+        assertEquals(960, left.window().w());
+        assertEquals(1080, left.window().h());
+    }
+
+    @Test
+    public void testToleratesWhitespace() {
+        WindowDefinition right = MonitoringSessionManager.parseWindow(" right @ 960 : 0 : 960 : 1080");
+
+        assertEquals("right", right.name());
+        assertEquals(960, right.window().x(), "Spaces around numbers should be ignored");
+        assertEquals(1080, right.window().h());
+    }
+
+    @Test
+    public void testRejectsMalformedDefinitions() {
+        for (String definition : List.of("0:0:960:1080", "@0:0:960:1080", "left@0:0:960", "left@0:0:960:1080:1",
+                "left@a:0:960:1080", "left@0:0:0:1080")) {
+            assertThrows(IllegalArgumentException.class, () -> MonitoringSessionManager.parseWindow(definition),
+                    "Should reject '" + definition + "'");
+        }
+    }
+
+    @Test
+    public void testCapturesUnionOfSessionWindows() {
+        Rectangle area = MonitoringSessionManager.captureArea(List.of(
+                new Region(100, 50, 400, 300),
+                new Region(960, 0, 960, 1080)));
+
+        assertEquals(new Rectangle(100, 0, 1820, 1080), area,
+                "One capture should cover every session window");
+        assertNull(MonitoringSessionManager.captureArea(List.of()), "Without sessions the whole screen is captured");
+    }
+
+    @Test
+    public void testSessionFindsRunInParallelWithoutTheBrobotLock() throws Exception {
+        BufferedImage promptTemplate = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        BrobotLock brobotLock = new BrobotLock();
+        // Each prompt find waits until the other session's is running too, which a lock would prevent
+        CyclicBarrier bothSearching = new CyclicBarrier(2);
+        AtomicInteger overlapping = new AtomicInteger();
+        AtomicInteger locked = new AtomicInteger();
+        TemplateMatcher rendezvous = new TemplateMatcher() {
+            @Override
+            public String getName() {
+                return "rendezvous";
+            }
+
+            @Override
+            public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template,
+                                       double minScore) {
+                if (brobotLock.isHeldByCurrentThread()) {
+                    locked.incrementAndGet();
+                }
+                try {
+                    bothSearching.await(5, TimeUnit.SECONDS);
+                    overlapping.incrementAndGet();
+                } catch (Exception e) {
+                    return null;
+                }
+                return new TemplateMatch(area.x + 10, area.y + 10, 40, 20, 0.99);
+            }
+        };
+        TemplateMatcherRegistry registry = new TemplateMatcherRegistry(List.of(rendezvous));
+        ReflectionTestUtils.setField(registry, "defaultBackendName", "rendezvous");
+        ReflectionTestUtils.setField(registry, "overrideDefinitions", List.of());
+        ReflectionTestUtils.invokeMethod(registry, "initBackends");
+        StateImageMatcher matcher = new StateImageMatcher(registry);
+        ReflectionTestUtils.setField(matcher, "multiScale", "false");
+
+        Action action = mock(Action.class);
+        PromptToWorkingTransition promptToWorking = mock(PromptToWorkingTransition.class);
+        when(promptToWorking.sendContinue(any(), any())).thenReturn(ContinueResult.SENT);
+        FrameBroker frameBroker = mock(FrameBroker.class);
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(800, 300, BufferedImage.TYPE_INT_RGB), 1);
+        when(frameBroker.currentFrame(nullable(Rectangle.class))).thenReturn(frame);
+
+        List<MonitoringSession> sessions = List.of(
+                session("left", new Region(0, 0, 400, 300), promptTemplate, action, promptToWorking, matcher,
+                        brobotLock),
+                session("right", new Region(400, 0, 400, 300), promptTemplate, action, promptToWorking, matcher,
+                        brobotLock));
+        MonitoringSessionManager manager = new MonitoringSessionManager(action, mock(PromptState.class),
+                mock(WorkingState.class), frameBroker, mock(ContinuousModeMaintenance.class), matcher, brobotLock,
+                promptToWorking);
+        ReflectionTestUtils.setField(manager, "sessions", sessions);
+
+        try {
+            ReflectionTestUtils.invokeMethod(manager, "tick");
+        } finally {
+            manager.stopMonitoring();
+        }
+
+        assertEquals(2, overlapping.get(), "Both prompt finds should have run at the same time");
+        assertEquals(0, locked.get(), "Finds on the shared frame should not take the Brobot lock");
+        for (MonitoringSession session : sessions) {
+            assertEquals(Phase.WORKING, session.getPhase(), session.getName() + " should have sent continue");
+        }
+        verify(promptToWorking, times(2)).sendContinue(any(), any());
+        verifyNoInteractions(action);
+    }
+
+    private static MonitoringSession session(String name, Region window, BufferedImage promptTemplate,
+                                             Action action, PromptToWorkingTransition promptToWorking,
+                                             StateImageMatcher matcher, BrobotLock brobotLock) {
+        StateImage prompt = image(name + "-ClaudePrompt", promptTemplate, MonitoringSession.promptRegion(window));
+        StateImage icon = image(name + "-ClaudeIcon", new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB),
+                window);
+        matcher.prepare(prompt, icon);
+        return new MonitoringSession(name, window, action, promptToWorking, null,
+                MatchAdjustmentOptions.builder().setAddX(3).setAddY(10).setAddW(30).setAddH(55).build(),
+                0.85, 0.65, matcher, false, true, brobotLock, new FrameChangeDetector(32, 15), prompt, icon);
+    }
+
+    private static StateImage image(String name, BufferedImage template, Region region) {
+        Pattern pattern = new Pattern(template);
+        pattern.setName(name);
+        StateImage image = new StateImage.Builder().setName(name).addPattern(pattern).build();
+        SharedSearchRegionStateImage.updateSharedRegion(image, region);
+        return image;
+    }
+}
@@ -0,0 +1,117 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.automation.MonitoringSession.Phase;
+import com.claude.automator.capture.CapturedFrame;
+import com.claude.automator.matching.SikuliTemplateMatcher;
+import com.claude.automator.matching.StateImageMatcher;
+import com.claude.automator.matching.TemplateMatch;
+import com.claude.automator.matching.TemplateMatcher;
+import com.claude.automator.matching.TemplateMatcherRegistry;
+import com.claude.automator.states.SharedSearchRegionStateImage;
+import com.claude.automator.transitions.PromptToWorkingTransition;
+import com.claude.automator.transitions.PromptToWorkingTransition.ContinueResult;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the finds of a monitoring session on the shared frame.
+ */
+public class MonitoringSessionTest {
+
+    private final BufferedImage promptTemplate = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+    private final BufferedImage iconTemplate = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+    private final Set<BufferedImage> searched = ConcurrentHashMap.newKeySet();
+
+    // Finds the prompt at (20, 200) wherever it is searched, never the icon
+    private final TemplateMatcher fake = new TemplateMatcher() {
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+            searched.add(template);
+            return template == promptTemplate ? new TemplateMatch(20, 200, 40, 20, 0.99) : null;
+        }
+    };
+
+    private final Action action = mock(Action.class);
+    private final PromptToWorkingTransition promptToWorking = mock(PromptToWorkingTransition.class);
+
+    @BeforeEach
+    public void sendContinue() {
+        when(promptToWorking.sendContinue(any(), any())).thenReturn(ContinueResult.SENT);
+    }
+
+    @Test
+    public void testIconOverrideAloneSendsTheIconThroughTheMatcher() {
+        MonitoringSession session = session("left", matcher("ClaudePrompt:fake", "ClaudeIcon:fake"));
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), 1);
+
+        session.tick(frame);
+        assertEquals(Phase.WORKING, session.getPhase());
+        assertTrue(session.searchesRegionFrames(),
+                "With a ClaudeIcon override the icon check should search a region frame");
+
+        session.tick(frame);
+        assertTrue(searched.contains(iconTemplate), "The icon should be searched by its override backend");
+        assertEquals(Phase.PROMPT, session.getPhase(), "The missing icon should end the Working phase");
+        verifyNoInteractions(action);
+    }
+
+    @Test
+    public void testIconWithoutOverrideOrPredictionIsLeftToBrobot() {
+        MonitoringSession session = session("left", matcher("ClaudePrompt:fake"));
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), 1);
+
+        session.tick(frame);
+
+        assertEquals(Phase.WORKING, session.getPhase());
+        assertFalse(session.searchesRegionFrames(), "A Brobot icon find needs a full-screen frame");
+    }
+
+    private StateImageMatcher matcher(String... overrides) {
+        TemplateMatcherRegistry registry = new TemplateMatcherRegistry(List.of(new SikuliTemplateMatcher(), fake));
+        ReflectionTestUtils.setField(registry, "defaultBackendName", SikuliTemplateMatcher.NAME);
+        ReflectionTestUtils.setField(registry, "overrideDefinitions", List.of(overrides));
+        ReflectionTestUtils.invokeMethod(registry, "initBackends");
+        StateImageMatcher matcher = new StateImageMatcher(registry);
+        ReflectionTestUtils.setField(matcher, "multiScale", "false");
+        return matcher;
+    }
+
+    private MonitoringSession session(String name, StateImageMatcher matcher) {
+        Region window = new Region(0, 0, 400, 300);
+        StateImage prompt = image(name + "-ClaudePrompt", promptTemplate, MonitoringSession.promptRegion(window));
+        StateImage icon = image(name + "-ClaudeIcon", iconTemplate, window);
+        matcher.prepare(prompt, icon);
+        return new MonitoringSession(name, window, action, promptToWorking, null,
+                MatchAdjustmentOptions.builder().setAddX(3).setAddY(10).setAddW(30).setAddH(55).build(),
+                0.85, 0.65, matcher, false, false, new BrobotLock(), new FrameChangeDetector(32, 15), prompt, icon);
+    }
+
+    private static StateImage image(String name, BufferedImage template, Region region) {
+        Pattern pattern = new Pattern(template);
+        pattern.setName(name);
+        StateImage image = new StateImage.Builder().setName(name).addPattern(pattern).build();
+        SharedSearchRegionStateImage.updateSharedRegion(image, region);
+        return image;
+    }
+}
@@ -0,0 +1,189 @@
+package com.claude.automator.automation;
+
+import com.claude.automator.automation.MonitoringSession.Phase;
+import com.claude.automator.automation.ReplayInput.Step;
+import com.claude.automator.capture.CaptureProviderSelector;
+import com.claude.automator.capture.FrameBroker;
+import com.claude.automator.capture.ReplayCaptureProvider;
+import com.claude.automator.matching.NccTemplateMatcher;
+import com.claude.automator.matching.SikuliTemplateMatcher;
+import com.claude.automator.matching.StateImageMatcher;
+import com.claude.automator.matching.TemplateMatcherRegistry;
+import com.claude.automator.states.PromptState;
+import com.claude.automator.states.SharedSearchRegionStateImage;
+import com.claude.automator.states.WorkingState;
+import com.claude.automator.transitions.PromptToWorkingTransition;
+import io.github.jspinak.brobot.action.Action;
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.config.core.FrameworkSettings;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.state.StateImage;
+import io.github.jspinak.brobot.model.state.StateString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs monitoring ticks and the Prompt-to-Working transition on a replayed
+ * PNG recording, without a display: finds search the replayed frames and the
+ * input is recorded instead of sent.
+ */
+public class ReplayRunTest {
+
+    private static final Region WINDOW = new Region(0, 0, 200, 120);
+    private static final Region PROMPT_AT = new Region(20, 80, 30, 12);
+
+    private final BufferedImage promptTemplate = noise(30, 12, 1);
+    private final BufferedImage iconTemplate = noise(12, 12, 2);
+    private final StateString continueCommand = new StateString.Builder()
+            .setName("ContinueCommand")
+            .setString("continue\n")
+            .build();
+    private final Action action = mock(Action.class);
+
+    @TempDir
+    Path recording;
+
+    private boolean mock;
+    private FrameBroker frameBroker;
+    private StateImageMatcher matcher;
+    private ReplayInput replayInput;
+    private PromptToWorkingTransition promptToWorking;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mock = FrameworkSettings.mock;
+        FrameworkSettings.mock = false;
+        // The prompt, then Claude working on it, then the icon gone again
+        write("frame-000.png", false);
+        write("frame-001.png", true);
+        write("frame-002.png", false);
+
+        ReplayCaptureProvider replay = new ReplayCaptureProvider(recording.toString(), ReplayCaptureProvider.FAST,
+                10, false);
+        CaptureProviderSelector selector = new CaptureProviderSelector(List.of(replay));
+        ReflectionTestUtils.setField(selector, "providerName", ReplayCaptureProvider.NAME);
+        frameBroker = new FrameBroker();
+        ReflectionTestUtils.setField(frameBroker, "captureProviders", selector);
+        ReflectionTestUtils.setField(frameBroker, "stalenessMillis", 60000L);
+        ReflectionTestUtils.setField(frameBroker, "regionCapture", true);
+        ReflectionTestUtils.setField(frameBroker, "ringSlots", 3);
+
+        TemplateMatcherRegistry registry = new TemplateMatcherRegistry(
+                List.of(new SikuliTemplateMatcher(), new NccTemplateMatcher()));
+        ReflectionTestUtils.setField(registry, "defaultBackendName", SikuliTemplateMatcher.NAME);
+        ReflectionTestUtils.setField(registry, "overrideDefinitions",
+                List.of("ClaudePrompt:" + NccTemplateMatcher.NAME, "ClaudeIcon:" + NccTemplateMatcher.NAME));
+        ReflectionTestUtils.invokeMethod(registry, "initBackends");
+        matcher = new StateImageMatcher(registry);
+        ReflectionTestUtils.setField(matcher, "multiScale", "false");
+
+        replayInput = new ReplayInput(frameBroker);
+        PromptState promptState = mock(PromptState.class);
+        StateImage prompt = image("ClaudePrompt", promptTemplate, MonitoringSession.promptRegion(WINDOW));
+        matcher.prepare(prompt);
+        when(promptState.getClaudePrompt()).thenReturn(prompt);
+        when(promptState.getContinueCommand()).thenReturn(continueCommand);
+        promptToWorking = new PromptToWorkingTransition(promptState, action, frameBroker,
+                new FindResultCache(frameBroker), matcher, replayInput);
+        ReflectionTestUtils.setField(promptToWorking, "promptSimilarity", 0.65);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        FrameworkSettings.mock = mock;
+    }
+
+    @Test
+    public void testMonitoringAndTransitionRunOnTheRecording() {
+        assertTrue(frameBroker.isReplaying());
+        assertTrue(replayInput.isActive(), "Input should be recorded while replaying");
+
+        MonitoringSession session = session();
+        MonitoringSessionManager manager = new MonitoringSessionManager(action, mock(PromptState.class),
+                mock(WorkingState.class), frameBroker, mock(ContinuousModeMaintenance.class), matcher,
+                new BrobotLock(), promptToWorking);
+        ReflectionTestUtils.setField(manager, "sessions", List.of(session));
+
+        List<Phase> phases;
+        try {
+            phases = List.of(tick(manager, session), tick(manager, session), tick(manager, session));
+        } finally {
+            manager.stopMonitoring();
+        }
+
+        assertEquals(List.of(Phase.WORKING, Phase.WORKING, Phase.PROMPT), phases,
+                "The prompt should be answered, the icon seen and its vanish noticed, one frame per tick");
+
+        // The last frame stays on screen, with the prompt waiting again
+        frameBroker.beginTick();
+        assertTrue(promptToWorking.execute(), "The transition should find the prompt in the replayed frame");
+
+        List<Step> steps = replayInput.getSteps();
+        assertEquals(List.of("click", "type", "click", "type"), steps.stream().map(Step::action).toList());
+        assertEquals(String.valueOf(PROMPT_AT), steps.get(0).target(), "The session should click the prompt");
+        assertEquals(String.valueOf(PROMPT_AT), steps.get(2).target(), "The transition should click the prompt");
+        assertEquals("continue\n", steps.get(3).target());
+        verifyNoInteractions(action);
+    }
+
+    private MonitoringSession session() {
+        StateImage prompt = image("replay-ClaudePrompt", promptTemplate, MonitoringSession.promptRegion(WINDOW));
+        StateImage icon = image("replay-ClaudeIcon", iconTemplate, WINDOW);
+        matcher.prepare(prompt, icon);
+        return new MonitoringSession("replay", WINDOW, action, promptToWorking, continueCommand,
+                MatchAdjustmentOptions.builder().setAddX(3).setAddY(10).setAddW(30).setAddH(55).build(),
+                0.85, 0.65, matcher, false, true, new BrobotLock(), new FrameChangeDetector(32, 15), prompt, icon);
+    }
+
+    private static Phase tick(MonitoringSessionManager manager, MonitoringSession session) {
+        ReflectionTestUtils.invokeMethod(manager, "tick");
+        return session.getPhase();
+    }
+
+    private void write(String name, boolean working) throws IOException {
+        BufferedImage frame = new BufferedImage(WINDOW.w(), WINDOW.h(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < frame.getHeight(); y++) {
+            for (int x = 0; x < frame.getWidth(); x++) {
+                frame.setRGB(x, y, 0x303030);
+            }
+        }
+        frame.getGraphics().drawImage(promptTemplate, PROMPT_AT.x(), PROMPT_AT.y(), null);
+        if (working) {
+            frame.getGraphics().drawImage(iconTemplate, 40, 95, null);
+        }
+        ImageIO.write(frame, "png", recording.resolve(name).toFile());
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static StateImage image(String name, BufferedImage template, Region region) {
+        Pattern pattern = new Pattern(template);
+        pattern.setName(name);
+        StateImage image = new StateImage.Builder().setName(name).addPattern(pattern).build();
+        SharedSearchRegionStateImage.updateSharedRegion(image, region);
+        return image;
+    }
+}
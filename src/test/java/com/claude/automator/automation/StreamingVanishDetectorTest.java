@@ -0,0 +1,142 @@
+package com.claude.automator.automation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamingVanishDetector. The icon is simulated with a
+ * supplier, so no screen or Brobot context is required.
+ */
+public class StreamingVanishDetectorTest {
+
+    @Test
+    public void testSingleMissIsIgnored() {
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> true, () -> { }, 3, 10);
+        assertFalse(detector.onFrame(false, 100));
+        assertFalse(detector.onFrame(true, 200), "A hit should reset the run of misses");
+        assertFalse(detector.onFrame(false, 300));
+        assertFalse(detector.onFrame(false, 400));
+        assertTrue(detector.onFrame(false, 500), "The third consecutive miss should declare the icon gone");
+        assertEquals(300, detector.getFirstMissNanos(), "Latency is measured from the first miss of the final run");
+    }
+
+    @Test
+    public void testStreamCallsBackAfterConsecutiveMisses() throws InterruptedException {
+        AtomicInteger frames = new AtomicInteger();
+        CountDownLatch vanished = new CountDownLatch(1);
+
+        // Visible for 5 frames, then one flicker, visible again, then gone
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> {
+            int frame = frames.incrementAndGet();
+            return frame <= 5 || frame == 7;
+        }, vanished::countDown, 3, 200);
+
+        assertTrue(detector.start());
+        assertFalse(detector.start(), "A second start while streaming should be ignored");
+
+        assertTrue(vanished.await(5, TimeUnit.SECONDS), "The callback should run once the icon is gone");
+        assertEquals(10, frames.get(), "The callback should run on the third consecutive miss");
+        assertTrue(detector.isVanishPending());
+        assertEquals(0, detector.getVanishCount(), "The vanish counts once a tick has taken it");
+
+        assertEquals(StreamingVanishDetector.TickAction.VANISHED, detector.onMonitoringTick(true),
+                "The monitoring tick should receive the vanish");
+        assertFalse(detector.isVanishPending(), "The vanish should be handed out once");
+        assertEquals(1, detector.getVanishCount());
+        detector.shutdown();
+    }
+
+    @Test
+    public void testTickStartsStreamAndStopsItWhenWorkingEnds() throws InterruptedException {
+        CountDownLatch streaming = new CountDownLatch(1);
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> {
+            streaming.countDown();
+            return true;
+        }, () -> { }, 3, 200);
+
+        assertEquals(StreamingVanishDetector.TickAction.STREAMING, detector.onMonitoringTick(true));
+        assertTrue(streaming.await(5, TimeUnit.SECONDS), "Working should start the stream");
+        assertTrue(detector.isRunning());
+
+        assertEquals(StreamingVanishDetector.TickAction.IDLE, detector.onMonitoringTick(false));
+        assertFalse(detector.isRunning(), "Leaving Working should stop the stream");
+        detector.shutdown();
+    }
+
+    @Test
+    public void testVanishIsDiscardedWhenWorkingEndedMeanwhile() throws InterruptedException {
+        CountDownLatch vanished = new CountDownLatch(1);
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> false, vanished::countDown, 1, 200);
+
+        assertEquals(StreamingVanishDetector.TickAction.STREAMING, detector.onMonitoringTick(true));
+        assertTrue(vanished.await(5, TimeUnit.SECONDS));
+        assertFalse(detector.start(), "No new stream while a vanish waits for the tick");
+
+        // Working was left another way before the tick took the vanish
+        assertEquals(StreamingVanishDetector.TickAction.IDLE, detector.onMonitoringTick(false));
+        assertFalse(detector.isVanishPending(), "A stale vanish should be dropped");
+        assertEquals(0, detector.getVanishCount());
+        detector.shutdown();
+    }
+
+    @Test
+    public void testRestartEndsTheOldStreamAndStartsAFreshRun() throws InterruptedException {
+        AtomicInteger frames = new AtomicInteger();
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        CountDownLatch restarted = new CountDownLatch(1);
+        CountDownLatch vanished = new CountDownLatch(1);
+
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> {
+            if (frames.incrementAndGet() == 1) {
+                firstFrame.countDown();
+                try {
+                    restarted.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return false;
+        }, vanished::countDown, 2, 200);
+
+        assertTrue(detector.start());
+        assertTrue(firstFrame.await(5, TimeUnit.SECONDS));
+        // Restart while the old stream is still evaluating its first frame
+        detector.stop();
+        assertTrue(detector.start(), "A start right after a stop should open a new stream");
+        restarted.countDown();
+
+        assertTrue(vanished.await(5, TimeUnit.SECONDS), "The new stream should run once the old one ended");
+        assertEquals(3, frames.get(), "The old stream's miss should not count towards the new run");
+        detector.shutdown();
+    }
+
+    @Test
+    public void testFailedEvaluationIsNotAMiss() throws InterruptedException {
+        AtomicInteger frames = new AtomicInteger();
+        CountDownLatch vanished = new CountDownLatch(1);
+
+        StreamingVanishDetector detector = new StreamingVanishDetector(() -> {
+            int frame = frames.incrementAndGet();
+            if (frame == 2) {
+                throw new IllegalStateException("capture failed");
+            }
+            return false;
+        }, vanished::countDown, 2, 200);
+
+        detector.start();
+        assertTrue(vanished.await(5, TimeUnit.SECONDS));
+        assertEquals(3, frames.get(), "The failed frame should not count towards the misses");
+        detector.shutdown();
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamingVanishDetector(() -> true, () -> { }, 0, 10));
+    }
+}
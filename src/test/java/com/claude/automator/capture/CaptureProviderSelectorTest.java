@@ -0,0 +1,119 @@
+package com.claude.automator.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the capture provider benchmark with fake providers.
+ */
+public class CaptureProviderSelectorTest {
+
+    private static final Dimension SCREEN = new Dimension(64, 48);
+
+    @Test
+    public void testPassingProviderReportsMedianLatency() {
+        FakeProvider provider = new FakeProvider("fast", 64, 48, 0x1E1E1E, 0);
+
+        CaptureProviderSelector.BenchmarkResult result = CaptureProviderSelector.benchmark(provider, SCREEN, 3);
+
+        assertTrue(result.passed(), "A grey frame of the screen size should pass: " + result.failure());
+        assertEquals(4, provider.captures, "One warm-up and three timed captures");
+        assertTrue(result.medianMillis() >= 0);
+    }
+
+    @Test
+    public void testRejectsBlackFrames() {
+        CaptureProviderSelector.BenchmarkResult result =
+                CaptureProviderSelector.benchmark(new FakeProvider("black", 64, 48, 0x000000, 0), SCREEN, 3);
+
+        assertFalse(result.passed());
+        assertEquals("black frame", result.failure());
+    }
+
+    @Test
+    public void testRejectsWrongResolution() {
+        CaptureProviderSelector.BenchmarkResult result =
+                CaptureProviderSelector.benchmark(new FakeProvider("logical", 51, 38, 0x808080, 0), SCREEN, 3);
+
+        assertFalse(result.passed());
+        assertEquals("frame is 51x38, expected 64x48", result.failure());
+    }
+
+    @Test
+    public void testRejectsFailingProvider() {
+        ScreenCaptureProvider failing = new FakeProvider("broken", 64, 48, 0x808080, 0) {
+            @Override
+            public BufferedImage capture() {
+                throw new IllegalStateException("no display");
+            }
+        };
+
+        CaptureProviderSelector.BenchmarkResult result = CaptureProviderSelector.benchmark(failing, SCREEN, 3);
+
+        assertFalse(result.passed());
+        assertTrue(result.failure().contains("no display"), result.failure());
+    }
+
+    @Test
+    public void testSelectsFastestCorrectProvider() {
+        FakeProvider slow = new FakeProvider("slow", 64, 48, 0x808080, 20);
+        FakeProvider black = new FakeProvider("black", 64, 48, 0x000000, 0);
+        FakeProvider fast = new FakeProvider("fast", 64, 48, 0x808080, 2);
+        CaptureProviderSelector selector = new CaptureProviderSelector(List.of(slow, black, fast));
+
+        assertSame(fast, selector.getProvider());
+        assertSame(fast, selector.getProvider(), "The benchmark should only run once");
+        assertEquals(List.of("slow", "black", "fast"),
+                selector.getResults().stream().map(CaptureProviderSelector.BenchmarkResult::provider).toList());
+        assertFalse(selector.getResults().get(1).passed());
+    }
+
+    @Test
+    public void testBlackDetectionSamplesWholeFrame() {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        assertTrue(CaptureProviderSelector.isBlack(image));
+        // A lit region anywhere, e.g. a terminal in one corner, makes the frame valid
+        for (int y = 400; y < 480; y++) {
+            for (int x = 560; x < 640; x++) {
+                image.setRGB(x, y, 0x20A040);
+            }
+        }
+        assertFalse(CaptureProviderSelector.isBlack(image));
+    }
+
+    private static class FakeProvider implements ScreenCaptureProvider {
+
+        private final String name;
+        private final BufferedImage frame;
+        private final long delayMillis;
+        int captures;
+
+        FakeProvider(String name, int width, int height, int rgb, long delayMillis) {
+            this.name = name;
+            this.delayMillis = delayMillis;
+            frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    frame.setRGB(x, y, rgb);
+                }
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public BufferedImage capture() throws InterruptedException {
+            captures++;
+            Thread.sleep(delayMillis);
+            return frame;
+        }
+    }
+}
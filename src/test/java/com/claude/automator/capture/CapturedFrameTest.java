@@ -0,0 +1,63 @@
+package com.claude.automator.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for full-screen and region frames.
+ */
+public class CapturedFrameTest {
+
+    private static final Dimension SCREEN = new Dimension(1920, 1080);
+
+    @Test
+    public void testFullFrameCoversEverything() {
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB), 1);
+
+        assertTrue(frame.isFullScreen());
+        assertTrue(frame.covers(null), "A full frame should serve whole-screen requests");
+        assertTrue(frame.covers(new Rectangle(100, 900, 400, 100)));
+        assertEquals(new Rectangle(100, 900, 400, 100), frame.toImageArea(new Rectangle(100, 900, 400, 100)));
+    }
+
+    @Test
+    public void testRegionFrameTranslatesScreenAreas() {
+        Rectangle region = new Rectangle(0, 540, 960, 540);
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(960, 540, BufferedImage.TYPE_INT_RGB), 2,
+                System.nanoTime(), region, SCREEN);
+
+        assertFalse(frame.isFullScreen());
+        assertEquals(region, frame.getBounds());
+        assertEquals(SCREEN, frame.getScreenSize());
+        assertFalse(frame.covers(null), "Whole-screen requests need a full capture");
+        assertTrue(frame.covers(new Rectangle(10, 1000, 200, 80)));
+        assertFalse(frame.covers(new Rectangle(900, 1000, 200, 80)), "The area extends beyond the region");
+        assertTrue(frame.covers(new Rectangle(0, 1080, 200, 80)), "Off-screen parts are never captured");
+
+        assertEquals(new Rectangle(10, 460, 200, 80), frame.toImageArea(new Rectangle(10, 1000, 200, 80)));
+        assertEquals(new Rectangle(900, 460, 60, 80), frame.toImageArea(new Rectangle(900, 1000, 200, 80)),
+                "Areas should be clipped to the image");
+        assertTrue(frame.toImageArea(new Rectangle(1000, 0, 100, 100)).isEmpty());
+        assertNull(frame.toImageArea(null));
+    }
+
+    @Test
+    public void testRegionSceneKeepsScreenCoordinates() {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFF8000);
+        CapturedFrame frame = new CapturedFrame(image, 3, System.nanoTime(), new Rectangle(30, 40, 20, 10),
+                new Dimension(64, 64));
+
+        BufferedImage scene = frame.getScene().getPattern().getBImage();
+
+        assertEquals(64, scene.getWidth());
+        assertEquals(64, scene.getHeight());
+        assertEquals(0xFF8000, scene.getRGB(30, 40) & 0xFFFFFF);
+        assertEquals(0, scene.getRGB(0, 0) & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,247 @@
+package com.claude.automator.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for decoding stream frames and handing them out, without a
+ * display: the x11grab stream is replaced by a fake frame source.
+ */
+public class FfmpegStreamCaptureProviderTest {
+
+    @Test
+    public void testCopiesBgr0RowsIntoRgbPixels() {
+        int width = 3;
+        int height = 2;
+        // FFmpeg pads rows, here to 16 bytes for 12 bytes of pixels
+        int stride = 16;
+        ByteBuffer frame = ByteBuffer.allocateDirect(stride * height);
+        int[][] rgb = {{0xFF0000, 0x00FF00, 0x0000FF}, {0x123456, 0xABCDEF, 0x000000}};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int offset = y * stride + x * 4;
+                frame.put(offset, (byte) rgb[y][x]);
+                frame.put(offset + 1, (byte) (rgb[y][x] >> 8));
+                frame.put(offset + 2, (byte) (rgb[y][x] >> 16));
+            }
+            frame.put(y * stride + 12, (byte) 0x7F);
+        }
+
+        int[] pixels = new int[width * height];
+        FfmpegStreamCaptureProvider.copyBgr0(frame, stride, width, height, pixels);
+
+        assertArrayEquals(new int[]{0xFF0000, 0x00FF00, 0x0000FF, 0x123456, 0xABCDEF, 0x000000}, pixels,
+                "Padding bytes should be skipped");
+        assertEquals(0, frame.position(), "The frame buffer should not be consumed");
+    }
+
+    @Test
+    public void testCaptureReturnsTheLatestFrameWithoutWaiting() throws Exception {
+        Semaphore frames = new Semaphore(1);
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(8, 4),
+                area -> new FakeSource(frames), 30000);
+
+        BufferedImage first = stream.capture();
+        long firstSequence = stream.getFrameSequence();
+        BufferedImage again = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> stream.capture(),
+                "Without a new frame the capture should not wait for one");
+        assertSame(first, again);
+        assertEquals(firstSequence, stream.getFrameSequence(), "The same frame should keep its number");
+
+        frames.release();
+        BufferedImage second = again;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stream.getFrameSequence() == firstSequence && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+            second = stream.capture();
+        }
+
+        assertEquals(2, second.getRGB(0, 0) & 0xFFFFFF, "The capture should return the newer frame");
+        assertNotSame(first, second, "Consecutive frames should use different buffers");
+        assertEquals(1, first.getRGB(0, 0) & 0xFFFFFF, "The previous capture should stay intact until the next one");
+        stream.stop();
+    }
+
+    @Test
+    public void testCropsTheGrabToTheCapturedArea() throws Exception {
+        List<Rectangle> opened = new CopyOnWriteArrayList<>();
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(100, 50, 8, 4), area -> {
+            opened.add(area);
+            return new FakeSource(null);
+        }, 30000);
+
+        BufferedImage prompt = stream.capture(new Rectangle(2, 1, 4, 2));
+        assertEquals(4, prompt.getWidth());
+        assertEquals(2, prompt.getHeight());
+        assertEquals(List.of(new Rectangle(102, 51, 4, 2)), opened, "The grab should start at the screen's offset");
+
+        BufferedImage inside = stream.capture(new Rectangle(3, 1, 2, 2));
+        assertEquals(2, inside.getWidth());
+        assertEquals(1, opened.size(), "An area inside the crop should not reopen the stream");
+
+        BufferedImage screen = stream.capture();
+        assertEquals(8, screen.getWidth());
+        assertEquals(new Rectangle(100, 50, 8, 4), opened.get(1), "A wider area should reopen the stream");
+        stream.stop();
+    }
+
+    @Test
+    public void testNarrowsTheCropToTheAreasCapturedSinceItWidened() throws Exception {
+        List<Rectangle> opened = new CopyOnWriteArrayList<>();
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(8, 4), area -> {
+            opened.add(area);
+            return new FakeSource(null);
+        }, 30000);
+
+        stream.capture();
+        for (int i = 0; i < FfmpegStreamCaptureProvider.RECROP_CAPTURES - 1; i++) {
+            stream.capture(new Rectangle(2, 1, 4, 2));
+        }
+        assertEquals(1, opened.size());
+        stream.capture(new Rectangle(2, 1, 4, 2));
+
+        assertEquals(List.of(new Rectangle(8, 4), new Rectangle(2, 1, 4, 2)), opened,
+                "The stream should be reopened cropped to the areas captured since");
+        stream.stop();
+    }
+
+    @Test
+    public void testFailureReachesEveryWaitingCapture() throws Exception {
+        CountDownLatch fail = new CountDownLatch(1);
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(8, 4),
+                area -> new FfmpegStreamCaptureProvider.FrameSource() {
+                    @Override
+                    public boolean next(int[] pixels) throws Exception {
+                        fail.await();
+                        throw new IOException("device gone");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                }, 30000);
+        ExecutorService captures = Executors.newFixedThreadPool(2);
+        try {
+            Future<BufferedImage> first = captures.submit(() -> stream.capture());
+            Future<BufferedImage> second = captures.submit(() -> stream.capture());
+            Thread.sleep(50);
+            fail.countDown();
+
+            // Well below the start timeout, so neither capture waited for it
+            for (Future<BufferedImage> capture : List.of(first, second)) {
+                ExecutionException failure = assertThrows(ExecutionException.class,
+                        () -> capture.get(2, TimeUnit.SECONDS));
+                assertTrue(failure.getCause().getMessage().contains("device gone"), failure.getCause().toString());
+            }
+        } finally {
+            captures.shutdownNow();
+            stream.stop();
+        }
+    }
+
+    @Test
+    public void testStopsWhenIdleAndRestartsOnNextCapture() throws Exception {
+        FakeSource source = new FakeSource(null);
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(8, 4), screen -> {
+            source.opened.incrementAndGet();
+            return source;
+        }, 50);
+
+        stream.capture();
+        assertTrue(source.closed.await(5, TimeUnit.SECONDS), "The stream should stop without captures");
+        // The stream thread clears its handle right after closing the source
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stream.isStreaming() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(stream.isStreaming());
+
+        stream.capture();
+        assertEquals(2, source.opened.get(), "The next capture should start the stream again");
+        stream.stop();
+    }
+
+    @Test
+    public void testFailsAfterRepeatedEmptyGrabsAndReopensOnNextCapture() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger grabs = new AtomicInteger();
+        FfmpegStreamCaptureProvider stream = new FfmpegStreamCaptureProvider(new Rectangle(8, 4), screen -> {
+            opened.incrementAndGet();
+            return new FfmpegStreamCaptureProvider.FrameSource() {
+                @Override
+                public boolean next(int[] pixels) {
+                    // The device is gone: no frame, but no error either
+                    grabs.incrementAndGet();
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }, 30000);
+
+        IOException failure = assertThrows(IOException.class, stream::capture);
+        assertTrue(failure.getMessage().contains("No frame in"), failure.getMessage());
+        assertEquals(FfmpegStreamCaptureProvider.MAX_EMPTY_GRABS, grabs.get(),
+                "The stream should give up after the empty grab limit");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stream.isStreaming() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThrows(IOException.class, stream::capture);
+        assertEquals(2, opened.get(), "The next capture should open the device again");
+        stream.stop();
+    }
+
+    /**
+     * A stream whose frames are filled with their number, at about 500 fps
+     * or one frame per permit.
+     */
+    private static final class FakeSource implements FfmpegStreamCaptureProvider.FrameSource {
+
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger grabbed = new AtomicInteger();
+        final CountDownLatch closed = new CountDownLatch(1);
+        private final Semaphore frames;
+
+        FakeSource(Semaphore frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public boolean next(int[] pixels) throws InterruptedException {
+            if (frames != null) {
+                frames.acquire();
+            } else {
+                Thread.sleep(2);
+            }
+            Arrays.fill(pixels, grabbed.incrementAndGet());
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.config.core.FrameworkSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for region captures and frame pooling of the frame broker with a fake provider.
+ */
+public class FrameBrokerTest {
+
+    private static final Rectangle PROMPT = new Rectangle(10, 60, 80, 30);
+    private static final Rectangle ICON = new Rectangle(100, 20, 40, 20);
+
+    private final FakeProvider provider = new FakeProvider(200, 100);
+    private final FrameBroker broker = new FrameBroker();
+    private boolean mock;
+
+    @BeforeEach
+    public void setUp() {
+        mock = FrameworkSettings.mock;
+        FrameworkSettings.mock = false;
+        CaptureProviderSelector selector = new CaptureProviderSelector(List.of(provider));
+        ReflectionTestUtils.setField(selector, "providerName", "fake");
+        ReflectionTestUtils.setField(broker, "captureProviders", selector);
+        ReflectionTestUtils.setField(broker, "stalenessMillis", 1000L);
+        ReflectionTestUtils.setField(broker, "regionCapture", true);
+        ReflectionTestUtils.setField(broker, "ringSlots", 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        FrameworkSettings.mock = mock;
+    }
+
+    @Test
+    public void testFirstCaptureIsFullToLearnScreenSize() {
+        try (CapturedFrame frame = broker.currentFrame(PROMPT)) {
+            assertTrue(frame.isFullScreen(), "The screen size is unknown before the first full capture");
+        }
+        broker.beginTick();
+
+        try (CapturedFrame frame = broker.currentFrame(PROMPT)) {
+            assertEquals(PROMPT, frame.getBounds());
+            assertEquals(new Dimension(200, 100), frame.getScreenSize());
+        }
+        assertEquals(List.of(PROMPT), provider.regions);
+    }
+
+    @Test
+    public void testUncoveredAreaRecapturesUnionWithinTick() {
+        learnScreenSize();
+
+        try (CapturedFrame prompt = broker.currentFrame(PROMPT)) {
+            assertEquals(PROMPT, prompt.getBounds());
+        }
+        try (CapturedFrame both = broker.currentFrame(ICON)) {
+            assertEquals(PROMPT.union(ICON), both.getBounds(),
+                    "The frame should keep covering the area searched earlier in the tick");
+        }
+        long captures = broker.getCaptureCount();
+        try (CapturedFrame again = broker.currentFrame(PROMPT)) {
+            assertEquals(PROMPT.union(ICON), again.getBounds());
+        }
+
+        assertEquals(captures, broker.getCaptureCount(), "A covered area should reuse the frame");
+        assertEquals(List.of(PROMPT, PROMPT.union(ICON)), provider.regions);
+        try (CapturedFrame full = broker.currentFrame()) {
+            assertTrue(full.isFullScreen(), "The whole screen is not covered by a region frame");
+        }
+    }
+
+    @Test
+    public void testStaleFrameIsCapturedAgain() throws InterruptedException {
+        learnScreenSize();
+        ReflectionTestUtils.setField(broker, "stalenessMillis", 20L);
+
+        long first;
+        try (CapturedFrame frame = broker.currentFrame(PROMPT)) {
+            first = frame.getSequence();
+        }
+        try (CapturedFrame frame = broker.currentFrame(PROMPT)) {
+            assertEquals(first, frame.getSequence(), "A fresh frame should be reused");
+        }
+        Thread.sleep(40);
+
+        try (CapturedFrame frame = broker.currentFrame(PROMPT)) {
+            assertNotEquals(first, frame.getSequence(), "A frame past the staleness window should be replaced");
+            assertEquals(PROMPT, frame.getBounds());
+        }
+    }
+
+    @Test
+    public void testOnlyMatcherFramesAreCopiedIntoTheRing() {
+        try (CapturedFrame full = broker.currentFrame()) {
+            assertSame(provider.screen, full.getImage(), "A full frame for Brobot should be handed over as captured");
+            assertSame(provider.screen, full.getScene().getPattern().getBImage(),
+                    "The scene of an unpooled frame should not copy it");
+        }
+        assertEquals(0, broker.getRingBytes(), "No ring slot should be allocated for a Brobot frame");
+        broker.beginTick();
+
+        try (CapturedFrame prompt = broker.currentFrame(PROMPT)) {
+            assertNotSame(provider.screen, prompt.getImage());
+        }
+        assertTrue(broker.getRingBytes() > 0, "A frame searched through the matcher should live in the ring");
+    }
+
+    @Test
+    public void testFrameTheProviderReturnsAgainIsNotStoredTwice() {
+        provider.frameSequence = 7;
+        long first;
+        try (CapturedFrame frame = broker.currentFrame()) {
+            first = frame.getSequence();
+        }
+        broker.beginTick();
+
+        try (CapturedFrame frame = broker.currentFrame()) {
+            assertEquals(first, frame.getSequence(), "The provider's frame 7 is already stored");
+        }
+        assertEquals(1, broker.getDuplicateCount());
+        assertEquals(1, broker.getCaptureCount());
+
+        provider.frameSequence = 8;
+        broker.beginTick();
+        try (CapturedFrame frame = broker.currentFrame()) {
+            assertNotEquals(first, frame.getSequence(), "A new provider frame should be stored");
+        }
+    }
+
+    private void learnScreenSize() {
+        try (CapturedFrame frame = broker.currentFrame()) {
+            assertNotNull(frame);
+        }
+        broker.beginTick();
+        provider.regions.clear();
+    }
+
+    private static class FakeProvider implements ScreenCaptureProvider {
+
+        private final BufferedImage screen;
+        final List<Rectangle> regions = new ArrayList<>();
+        // 0 like a provider that grabs anew on every capture
+        long frameSequence;
+
+        FakeProvider(int width, int height) {
+            screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public BufferedImage capture() {
+            return screen;
+        }
+
+        @Override
+        public long getFrameSequence() {
+            return frameSequence;
+        }
+
+        @Override
+        public BufferedImage capture(Rectangle region) throws Exception {
+            regions.add(new Rectangle(region));
+            return ScreenCaptureProvider.super.capture(region);
+        }
+    }
+}
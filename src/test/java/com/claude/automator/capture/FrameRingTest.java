@@ -0,0 +1,112 @@
+package com.claude.automator.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the preallocated frame buffers.
+ */
+public class FrameRingTest {
+
+    private static final Dimension SCREEN = new Dimension(64, 48);
+
+    @Test
+    public void testReusesSlotsOnceReleased() {
+        FrameRing ring = new FrameRing(2);
+        BufferedImage capture = filled(64, 48, 0x336699);
+
+        CapturedFrame first = ring.store(capture, 1, System.nanoTime(), null, null);
+        BufferedImage firstImage = first.getImage();
+        first.release();
+        CapturedFrame second = ring.store(capture, 2, System.nanoTime(), null, null);
+        second.release();
+        CapturedFrame third = ring.store(capture, 3, System.nanoTime(), null, null);
+
+        assertTrue(third.isPooled());
+        assertSame(firstImage, third.getImage(), "The third capture should go into the first slot again");
+        assertEquals(BufferedImage.TYPE_INT_RGB, third.getImage().getType());
+        assertEquals(0x336699, third.getImage().getRGB(10, 10) & 0xFFFFFF);
+        assertEquals(2 * 64 * 48 * 4L, ring.allocatedBytes());
+    }
+
+    @Test
+    public void testKeepsReferencedFrames() {
+        FrameRing ring = new FrameRing(2);
+
+        CapturedFrame kept = ring.store(filled(64, 48, 0x112233), 1, System.nanoTime(), null, null);
+        kept.retain();
+        kept.release();
+        CapturedFrame other = ring.store(filled(64, 48, 0x445566), 2, System.nanoTime(), null, null);
+
+        assertNull(ring.store(filled(64, 48, 0x778899), 3, System.nanoTime(), null, null),
+                "Both slots are referenced");
+        other.close();
+        assertNotNull(ring.store(filled(64, 48, 0x778899), 4, System.nanoTime(), null, null));
+        assertEquals(0x112233, kept.getImage().getRGB(0, 0) & 0xFFFFFF, "A referenced frame must not be overwritten");
+
+        kept.release();
+        assertThrows(IllegalStateException.class, kept::retain, "A released frame cannot be retained again");
+    }
+
+    @Test
+    public void testCopiesRegionsOfFullCaptures() {
+        FrameRing ring = new FrameRing(1);
+        BufferedImage screen = filled(64, 48, 0x000000);
+        screen.setRGB(20, 30, 0xFF8000);
+        ring.store(screen, 1, System.nanoTime(), null, null).release();
+
+        BufferedImage region = screen.getSubimage(16, 24, 32, 16);
+        CapturedFrame frame = ring.store(region, 2, System.nanoTime(), new Rectangle(16, 24, 32, 16), SCREEN);
+
+        assertEquals(32, frame.getWidth());
+        assertEquals(16, frame.getHeight());
+        assertEquals(new Rectangle(16, 24, 32, 16), frame.getBounds());
+        assertEquals(0xFF8000, frame.getImage().getRGB(4, 6) & 0xFFFFFF);
+        assertEquals(64 * 48 * 4L, ring.allocatedBytes(), "A smaller region should fit into the existing slot");
+    }
+
+    @Test
+    public void testSceneOfPooledFrameSurvivesSlotReuse() {
+        FrameRing ring = new FrameRing(1);
+
+        BufferedImage sceneImage;
+        try (CapturedFrame frame = ring.store(filled(64, 48, 0x224466), 1, System.nanoTime(), null, null)) {
+            sceneImage = frame.getScene().getPattern().getBImage();
+            assertNotSame(frame.getImage(), sceneImage, "Brobot may keep the scene, so it must not share the slot");
+            assertSame(sceneImage, frame.getScene().getPattern().getBImage(), "The copy should be made once");
+        }
+        // The released slot takes the next capture
+        ring.store(filled(64, 48, 0x886644), 2, System.nanoTime(), null, null).release();
+
+        assertEquals(0x224466, sceneImage.getRGB(10, 10) & 0xFFFFFF, "A kept scene should still show its frame");
+    }
+
+    @Test
+    public void testIntPixelsIndexSubImages() {
+        BufferedImage screen = filled(64, 48, 0x000000);
+        screen.setRGB(20, 30, 0xFF8000);
+
+        IntPixels pixels = IntPixels.of(screen.getSubimage(16, 24, 32, 16));
+
+        assertNotNull(pixels);
+        assertEquals(0xFF8000, pixels.data()[pixels.index(4, 6)] & 0xFFFFFF,
+                "Sub-image coordinates should map into the parent's array");
+        assertNull(IntPixels.of(new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR)),
+                "Byte images have no int view");
+    }
+
+    private static BufferedImage filled(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,142 @@
+package com.claude.automator.capture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for replaying PNG sequences as the screen, per tick and in
+ * realtime on a fake clock.
+ */
+public class ReplayCaptureProviderTest {
+
+    @TempDir
+    Path recording;
+
+    @Test
+    public void testFastModePlaysFramesInFileNameOrder() throws IOException {
+        // Written out of order; frame_10 must come after frame_02
+        png("frame_10.png", 0x0000FF);
+        png("frame_01.png", 0xFF0000);
+        png("frame_02.png", 0x00FF00);
+        png("notes.txt.bak", 0xFFFFFF);
+        ReplayCaptureProvider replay = new ReplayCaptureProvider(recording.toString(),
+                ReplayCaptureProvider.FAST, 10, false);
+
+        assertTrue(replay.isAvailable());
+        replay.beginTick();
+        assertEquals(0xFF0000, color(replay.capture()));
+        assertEquals(0xFF0000, color(replay.capture()), "Captures within a tick should show the same frame");
+        replay.beginTick();
+        assertEquals(0x00FF00, color(replay.capture()));
+        replay.beginTick();
+        assertEquals(0x0000FF, color(replay.capture()));
+        assertFalse(replay.isFinished());
+
+        replay.beginTick();
+        assertEquals(0x0000FF, color(replay.capture()), "The last frame should stay on screen");
+        assertTrue(replay.isFinished());
+        assertEquals(3, replay.getFramesShown());
+
+        replay.rewind();
+        replay.beginTick();
+        assertEquals(0xFF0000, color(replay.capture()), "Rewinding should start from the first frame");
+    }
+
+    @Test
+    public void testLoopsAndCropsRegions() throws Exception {
+        png("a.png", 0x112233);
+        png("b.png", 0x445566);
+        ReplayCaptureProvider replay = new ReplayCaptureProvider(recording.toString(),
+                ReplayCaptureProvider.FAST, 10, true);
+
+        assertEquals(0x112233, color(replay.capture()));
+        replay.beginTick();
+        assertEquals(0x445566, color(replay.capture()));
+        replay.beginTick();
+        BufferedImage region = replay.capture(new Rectangle(4, 4, 8, 6));
+
+        assertEquals(8, region.getWidth());
+        assertEquals(6, region.getHeight());
+        assertEquals(0x112233, color(region), "The recording should start over");
+        assertFalse(replay.isFinished());
+    }
+
+    @Test
+    public void testRealtimeShowsLastFrameWhoseTimeHasCome() throws IOException {
+        // At 10 frames per second: 0, 100, 200 and 300 ms
+        png("0.png", 0x000001);
+        png("1.png", 0x000002);
+        png("2.png", 0x000003);
+        png("3.png", 0x000004);
+        AtomicLong now = new AtomicLong();
+        ReplayCaptureProvider replay = new ReplayCaptureProvider(recording.toString(), "realtime", 10, false,
+                now::get);
+
+        assertEquals(1, color(replay.capture()));
+        now.set(millis(99));
+        assertEquals(1, color(replay.capture()), "The second frame is not due before 100 ms");
+        now.set(millis(100));
+        assertEquals(2, color(replay.capture()), "A frame is due at its timestamp");
+        now.set(millis(250));
+        assertEquals(3, color(replay.capture()), "The frame of 200 ms should be shown, not the next one");
+        assertEquals(3, replay.getFramesShown());
+
+        now.set(millis(10_000));
+        assertEquals(4, color(replay.capture()));
+        assertEquals(4, color(replay.capture()), "The last frame should stay on screen");
+        assertTrue(replay.isFinished());
+    }
+
+    @Test
+    public void testRealtimeLoopsAfterTheLastFrameWasShown() throws IOException {
+        png("0.png", 0x000001);
+        png("1.png", 0x000002);
+        AtomicLong now = new AtomicLong();
+        ReplayCaptureProvider replay = new ReplayCaptureProvider(recording.toString(), "realtime", 10, true,
+                now::get);
+
+        assertEquals(1, color(replay.capture()));
+        now.set(millis(150));
+        assertEquals(2, color(replay.capture()));
+        now.set(millis(199));
+        assertEquals(2, color(replay.capture()), "The last frame should be shown for one frame interval");
+        now.set(millis(200));
+        assertEquals(1, color(replay.capture()), "The recording should start over");
+        assertFalse(replay.isFinished());
+    }
+
+    @Test
+    public void testOnlyAvailableWhenConfigured() {
+        assertFalse(new ReplayCaptureProvider().isAvailable(), "No source configured");
+        assertFalse(new ReplayCaptureProvider(recording.resolve("missing").toString(),
+                ReplayCaptureProvider.FAST, 10, false).isAvailable());
+    }
+
+    private void png(String name, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ImageIO.write(image, "png", recording.resolve(name).toFile());
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static int color(BufferedImage image) {
+        return image.getRGB(0, 0) & 0xFFFFFF;
+    }
+}
@@ -0,0 +1,114 @@
+package com.claude.automator.capture;
+
+import io.github.jspinak.brobot.action.basic.find.MatchAdjustmentOptions;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.element.Region;
+import io.github.jspinak.brobot.model.element.SearchRegionOnObject;
+import io.github.jspinak.brobot.model.match.Match;
+import io.github.jspinak.brobot.model.state.StateImage;
+import io.github.jspinak.brobot.model.state.StateObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for resolving search regions declared relative to another object.
+ * The images mirror ClaudePrompt and ClaudeIcon of PromptState and WorkingState.
+ */
+public class SearchRegionResolverTest {
+
+    @Test
+    public void testIconIsSearchedInStripNextToPromptMatch() {
+        StateImage prompt = prompt();
+        Pattern iconPattern = pattern("claude-icon-1");
+        StateImage icon = icon(iconPattern);
+        prompt.setLastMatchesFound(new ArrayList<>(List.of(
+                new Match.Builder().setRegion(100, 600, 200, 30).build())));
+
+        assertSame(prompt, SearchRegionResolver.anchorOf(icon, prompt, icon));
+        List<Region> regions = SearchRegionResolver.regionsForSearch(icon, iconPattern, prompt);
+
+        assertEquals(1, regions.size());
+        assertEquals(new Rectangle(103, 610, 230, 85), rect(regions.get(0)),
+                "The icon should be searched in the prompt match moved and grown by +3/+10/+30/+55");
+        assertEquals(new Rectangle(0, 540, 960, 540), FrameBroker.searchArea(icon, prompt),
+                "The capture area should be the prompt region, not the whole screen");
+    }
+
+    @Test
+    public void testFallsBackToOwnRegionsWithoutPromptMatch() {
+        StateImage prompt = prompt();
+        Pattern iconPattern = pattern("claude-icon-1");
+        iconPattern.getSearchRegions().addSearchRegions(new Region(0, 0, 400, 300));
+        StateImage icon = icon(iconPattern);
+
+        List<Region> regions = SearchRegionResolver.regionsForSearch(icon, iconPattern, prompt);
+
+        assertEquals(new Rectangle(0, 0, 400, 300), rect(regions.get(0)));
+    }
+
+    @Test
+    public void testFoundFixedPatternKeepsItsFixedRegion() {
+        StateImage prompt = prompt();
+        prompt.setLastMatchesFound(new ArrayList<>(List.of(
+                new Match.Builder().setRegion(100, 600, 200, 30).build())));
+        Pattern iconPattern = pattern("claude-icon-1");
+        iconPattern.setFixed(true);
+        iconPattern.getSearchRegions().setFixedRegion(new Region(110, 615, 25, 25));
+        StateImage icon = icon(iconPattern);
+
+        List<Region> regions = SearchRegionResolver.regionsForSearch(icon, iconPattern, prompt);
+
+        assertEquals(new Rectangle(110, 615, 25, 25), rect(regions.get(0)));
+    }
+
+    @Test
+    public void testImagesWithoutRelativeRegionHaveNoAnchor() {
+        StateImage prompt = prompt();
+
+        assertNull(SearchRegionResolver.anchorOf(prompt, prompt, icon(pattern("claude-icon-1"))));
+        assertNull(SearchRegionResolver.anchorOf(icon(pattern("claude-icon-1"))), "The prompt is not among the images");
+    }
+
+    private static StateImage prompt() {
+        Pattern pattern = pattern("claude-prompt");
+        pattern.getSearchRegions().addSearchRegions(new Region(0, 540, 960, 540));
+        return new StateImage.Builder()
+                .addPattern(pattern)
+                .setName("ClaudePrompt")
+                .build();
+    }
+
+    private static StateImage icon(Pattern pattern) {
+        return new StateImage.Builder()
+                .addPattern(pattern)
+                .setName("ClaudeIcon")
+                .setSearchRegionOnObject(SearchRegionOnObject.builder()
+                        .setTargetType(StateObject.Type.IMAGE)
+                        .setTargetStateName("Prompt")
+                        .setTargetObjectName("ClaudePrompt")
+                        .setAdjustments(MatchAdjustmentOptions.builder()
+                                .setAddX(3)
+                                .setAddY(10)
+                                .setAddW(30)
+                                .setAddH(55)
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private static Pattern pattern(String name) {
+        Pattern pattern = new Pattern(new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB));
+        pattern.setName(name);
+        return pattern;
+    }
+
+    private static Rectangle rect(Region region) {
+        return new Rectangle(region.x(), region.y(), region.w(), region.h());
+    }
+}
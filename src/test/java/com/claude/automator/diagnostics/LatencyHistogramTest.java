@@ -0,0 +1,73 @@
+package com.claude.automator.diagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() {
+        for (int i = 0; i < 900; i++) {
+            long low = LatencyHistogram.lowestValueIn(i);
+            assertEquals(i, LatencyHistogram.indexOf(low), "Lowest value of bucket " + i);
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.highestValueIn(i)), "Highest value of bucket " + i);
+            assertEquals(LatencyHistogram.highestValueIn(i) + 1, LatencyHistogram.lowestValueIn(i + 1));
+        }
+    }
+
+    @Test
+    public void testRelativePrecision() {
+        for (long value = 1; value < Long.MAX_VALUE / 4; value = value * 3 + 7) {
+            int index = LatencyHistogram.indexOf(value);
+            long width = LatencyHistogram.highestValueIn(index) - LatencyHistogram.lowestValueIn(index) + 1;
+            assertTrue(width <= Math.max(1, value / (LatencyHistogram.SUB_BUCKETS / 2)),
+                    "Bucket of " + value + " is too wide: " + width);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), histogram.getMaxNanos());
+        assertEquals(50.0, TimeUnit.NANOSECONDS.toMicros(histogram.valueAtPercentile(50)) / 1000.0, 50 * 0.07,
+                "p50 should be within the bucket precision of 50 ms");
+        assertEquals(99.0, TimeUnit.NANOSECONDS.toMicros(histogram.valueAtPercentile(99)) / 1000.0, 99 * 0.07);
+        assertEquals(histogram.getMaxNanos(), histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.valueAtPercentile(99));
+        assertEquals(0L, histogram.summary().get("count"));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000, histogram.getCount(), "No recording should be lost");
+    }
+}
@@ -0,0 +1,72 @@
+package com.claude.automator.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IconFramePredictor using the ClaudeIcon pattern layout.
+ */
+public class IconFramePredictorTest {
+
+    private static final List<String> ICON_PATTERNS = List.of(
+            "working/claude-icon-1", "working/claude-icon-2", "working/claude-icon-3", "working/claude-icon-4",
+            "working/claude-icon-1-80", "working/claude-icon-2-80", "working/claude-icon-3-80",
+            "working/claude-icon-4-80");
+
+    @Test
+    public void testDeclarationOrderWithoutHistory() {
+        IconFramePredictor predictor = new IconFramePredictor(ICON_PATTERNS);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6, 7}, predictor.searchOrder());
+    }
+
+    @Test
+    public void testWinningScaleGroupIsTriedFirst() {
+        IconFramePredictor predictor = new IconFramePredictor(ICON_PATTERNS);
+        predictor.recordHit(6, 7); // claude-icon-3-80
+
+        int[] order = predictor.searchOrder();
+        assertArrayEquals(new int[] {7, 4, 5, 6, 3, 0, 1, 2}, order,
+                "The -80 group should come first, starting with the frame after the last hit");
+    }
+
+    @Test
+    public void testLearnedTransitionsOverrideCycleOrder() {
+        IconFramePredictor predictor = new IconFramePredictor(ICON_PATTERNS);
+        // Polling samples every other animation frame: 1 -> 3 -> 1 -> 3
+        for (int i = 0; i < 6; i++) {
+            predictor.recordHit(i % 2 == 0 ? 0 : 2, 1);
+        }
+
+        assertArrayEquals(new int[] {0, 3, 1, 2, 4, 7, 5, 6}, predictor.searchOrder(),
+                "After frame 3 the predictor should expect frame 1, then follow the cycle");
+    }
+
+    @Test
+    public void testAverageAttempts() {
+        IconFramePredictor predictor = new IconFramePredictor(ICON_PATTERNS);
+        predictor.recordHit(0, 1);
+        predictor.recordHit(1, 1);
+        predictor.recordMiss(8);
+        assertEquals(10 / 3.0, predictor.getAverageAttempts(), 1e-9);
+        assertEquals(2, predictor.getHitCount());
+    }
+
+    @Test
+    public void testCountsDecay() {
+        IconFramePredictor predictor = new IconFramePredictor(List.of("a", "b"));
+        for (int i = 0; i < IconFramePredictor.MAX_ROW_TOTAL * 2; i++) {
+            predictor.recordHit(0, 1);
+        }
+        assertEquals(0, predictor.searchOrder()[0]);
+
+        // Without decay the 2000 a -> a transitions would still outweigh these
+        for (int i = 0; i < IconFramePredictor.MAX_ROW_TOTAL; i++) {
+            predictor.recordHit(1, 1);
+            predictor.recordHit(0, 1);
+        }
+        assertEquals(1, predictor.searchOrder()[0], "Old transitions should fade so a -> b takes over");
+    }
+}
@@ -0,0 +1,329 @@
+package com.claude.automator.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+import static com.claude.automator.matching.NccTemplateMatcher.DEFAULT_FFT_MIN_AREA;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the pure-Java NCC matcher on synthetic images.
+ */
+public class NccTemplateMatcherTest {
+
+    private final NccTemplateMatcher matcher = new NccTemplateMatcher();
+
+    @Test
+    public void testFindsTemplateAtExactLocation() {
+        BufferedImage scene = noise(200, 120, 1);
+        BufferedImage template = scene.getSubimage(73, 41, 25, 25);
+
+        TemplateMatch match = matcher.match(scene, new Rectangle(0, 0, 200, 120), copy(template), 0.9);
+
+        assertNotNull(match, "A template cut from the scene should be found");
+        assertEquals(73, match.x());
+        assertEquals(41, match.y());
+        assertEquals(1.0, match.score(), 1e-4);
+    }
+
+    @Test
+    public void testCoordinatesAreInSceneSpace() {
+        BufferedImage scene = noise(200, 120, 2);
+        BufferedImage template = copy(scene.getSubimage(150, 80, 20, 20));
+
+        TemplateMatch match = matcher.match(scene, new Rectangle(140, 70, 50, 40), template, 0.9);
+
+        assertNotNull(match);
+        assertEquals(new Rectangle(150, 80, 20, 20), match.bounds());
+    }
+
+    @Test
+    public void testBrightnessChangeKeepsScore() {
+        BufferedImage scene = noise(100, 100, 3);
+        BufferedImage template = copy(scene.getSubimage(30, 30, 16, 16));
+        // Darken the template: NCC is invariant to gain and offset
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                int gray = GrayImages.luminance(template.getRGB(x, y)) / 2 + 10;
+                template.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+
+        TemplateMatch match = matcher.match(scene, new Rectangle(0, 0, 100, 100), template, 0.95);
+
+        assertNotNull(match, "Gain and offset changes should not lower the score");
+        assertEquals(30, match.x());
+    }
+
+    @Test
+    public void testNoMatchBelowThreshold() {
+        BufferedImage scene = noise(100, 100, 4);
+        BufferedImage template = noise(20, 20, 5);
+
+        assertNull(matcher.match(scene, new Rectangle(0, 0, 100, 100), template, 0.8),
+                "Unrelated noise should not reach the threshold");
+    }
+
+    @Test
+    public void testAreaSmallerThanTemplate() {
+        BufferedImage scene = noise(100, 100, 6);
+        assertNull(matcher.match(scene, new Rectangle(0, 0, 10, 10), noise(20, 20, 7), 0.1));
+    }
+
+    @Test
+    public void testPrefilterKeepsMatchOnDarkBackground() {
+        // Flat dark background with the template pasted in, like the ClaudeIcon region
+        BufferedImage scene = new BufferedImage(120, 90, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 90; y++) {
+            for (int x = 0; x < 120; x++) {
+                scene.setRGB(x, y, 0x1E1E1E);
+            }
+        }
+        BufferedImage template = noise(18, 18, 9);
+        scene.getGraphics().drawImage(template, 61, 37, null);
+
+        NccTemplateMatcher filtered = new NccTemplateMatcher(RowKernels.scalar(), new WindowPrefilter(48, 2.5));
+        TemplateMatch plain = matcher.match(scene, new Rectangle(0, 0, 120, 90), template, 0.9);
+        TemplateMatch match = filtered.match(scene, new Rectangle(0, 0, 120, 90), template, 0.9);
+
+        assertNotNull(match, "The prefilter should not reject the matching window");
+        assertEquals(plain, match, "The prefilter should not change the result");
+    }
+
+    @Test
+    public void testPrefilterRejectsBrightnessChange() {
+        BufferedImage scene = noise(100, 100, 3);
+        BufferedImage template = copy(scene.getSubimage(30, 30, 16, 16));
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                int gray = GrayImages.luminance(template.getRGB(x, y)) / 4 + 10;
+                template.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+
+        NccTemplateMatcher filtered = new NccTemplateMatcher(RowKernels.scalar(), new WindowPrefilter(48, 2.5));
+
+        assertNotNull(matcher.match(scene, new Rectangle(0, 0, 100, 100), template, 0.95));
+        assertNull(filtered.match(scene, new Rectangle(0, 0, 100, 100), template, 0.95),
+                "A window four times brighter and with four times the contrast should be rejected");
+    }
+
+    @Test
+    public void testEarlyTerminationFindsExhaustiveBest() {
+        Random random = new Random(10);
+        BufferedImage scene = noise(90, 70, 11);
+        BufferedImage template = copy(scene.getSubimage(40, 25, 20, 20));
+        // Perturb the template so the best score is below 1 and near-matches compete
+        for (int i = 0; i < 120; i++) {
+            template.setRGB(random.nextInt(20), random.nextInt(20), random.nextInt(0x1000000));
+        }
+        double[] expected = exhaustiveBest(scene, template);
+
+        for (double minScore : new double[] {-1, 0.2, 0.5}) {
+            TemplateMatch match = matcher.match(scene, new Rectangle(0, 0, 90, 70), template, minScore);
+            assertNotNull(match, "Threshold " + minScore + " is below the best score " + expected[2]);
+            assertEquals((int) expected[0], match.x());
+            assertEquals((int) expected[1], match.y());
+            assertEquals(expected[2], match.score(), 1e-4);
+        }
+        assertNull(matcher.match(scene, new Rectangle(0, 0, 90, 70), template, expected[2] + 0.01));
+    }
+
+    @Test
+    public void testMatchAllFindsEveryCopy() {
+        BufferedImage scene = noise(160, 120, 12);
+        BufferedImage template = noise(16, 16, 13);
+        int[][] positions = {{10, 90}, {120, 15}, {70, 60}};
+        for (int[] position : positions) {
+            scene.getGraphics().drawImage(template, position[0], position[1], null);
+        }
+
+        List<TemplateMatch> matches = matcher.matchAll(scene, new Rectangle(0, 0, 160, 120), template, 0.9, 5);
+
+        assertEquals(3, matches.size(), "Each copy should be one match: " + matches);
+        for (int[] position : positions) {
+            assertTrue(matches.stream().anyMatch(m -> m.x() == position[0] && m.y() == position[1]),
+                    "Missing copy at " + position[0] + "," + position[1]);
+        }
+        assertEquals(1, matcher.matchAll(scene, new Rectangle(0, 0, 160, 120), template, 0.9, 1).size());
+    }
+
+    @Test
+    public void testMatchEachAgreesWithSeparateMatches() {
+        BufferedImage scene = noise(120, 90, 14);
+        List<BufferedImage> templates = List.of(
+                copy(scene.getSubimage(5, 7, 20, 20)),
+                noise(20, 20, 15),
+                copy(scene.getSubimage(90, 60, 16, 12)),
+                copy(scene.getSubimage(47, 33, 20, 20)),
+                noise(200, 20, 16));
+        Rectangle area = new Rectangle(0, 0, 120, 90);
+
+        TemplateMatch[] together = matcher.matchEach(scene, area, templates, 0.8);
+
+        assertEquals(templates.size(), together.length);
+        for (int i = 0; i < templates.size(); i++) {
+            assertEquals(matcher.match(scene, area, templates.get(i), 0.8), together[i],
+                    "Template " + i + " should match as it does on its own");
+        }
+        assertNull(together[1], "Unrelated noise should not match");
+        assertNull(together[4], "A template wider than the area should not match");
+        assertEquals(new Rectangle(47, 33, 20, 20), together[3].bounds());
+    }
+
+    @Test
+    public void testFftPathAgreesWithSpatialCorrelation() {
+        Random random = new Random(17);
+        BufferedImage scene = noise(150, 100, 18);
+        BufferedImage template = copy(scene.getSubimage(61, 27, 40, 30));
+        for (int i = 0; i < 300; i++) {
+            template.setRGB(random.nextInt(40), random.nextInt(30), random.nextInt(0x1000000));
+        }
+        NccTemplateMatcher spatial = new NccTemplateMatcher(RowKernels.scalar(), null, Integer.MAX_VALUE);
+        NccTemplateMatcher fft = new NccTemplateMatcher(RowKernels.scalar(), null, 1);
+
+        // An area whose size is not a power of two and does not start at the origin
+        Rectangle area = new Rectangle(3, 5, 141, 93);
+        TemplateMatch expected = spatial.match(scene, area, template, 0.3);
+        TemplateMatch actual = fft.match(scene, area, template, 0.3);
+
+        assertNotNull(actual);
+        assertEquals(new Rectangle(61, 27, 40, 30), actual.bounds());
+        assertEquals(expected.bounds(), actual.bounds());
+        assertEquals(expected.score(), actual.score(), 1e-6);
+
+        List<BufferedImage> templates = List.of(template, copy(scene.getSubimage(10, 60, 40, 30)));
+        TemplateMatch[] each = fft.matchEach(scene, area, templates, 0.9);
+        assertNull(each[0], "The perturbed template should not reach 0.9");
+        assertEquals(new Rectangle(10, 60, 40, 30), each[1].bounds());
+    }
+
+    @Test
+    public void testMaskIgnoresTransparentBackground() {
+        // A round icon with a transparent surround, drawn over noise instead of the background it was cut from
+        BufferedImage icon = new BufferedImage(24, 24, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage texture = noise(24, 24, 19);
+        for (int y = 0; y < 24; y++) {
+            for (int x = 0; x < 24; x++) {
+                int dx = x - 12;
+                int dy = y - 12;
+                icon.setRGB(x, y, dx * dx + dy * dy < 100 ? 0xFF000000 | texture.getRGB(x, y) : 0x00FFFFFF);
+            }
+        }
+        BufferedImage scene = noise(120, 90, 20);
+        scene.getGraphics().drawImage(icon, 70, 40, null);
+        Rectangle area = new Rectangle(0, 0, 120, 90);
+
+        NccTemplateMatcher masking = new NccTemplateMatcher(RowKernels.scalar(), null, DEFAULT_FFT_MIN_AREA, true);
+        TemplateMatch masked = masking.match(scene, area, icon, 0.95);
+        TemplateMatch unmasked = matcher.match(scene, area, icon, 0.95);
+
+        assertNotNull(masked, "The opaque pixels should match wherever the icon is drawn");
+        assertEquals(new Rectangle(70, 40, 24, 24), masked.bounds());
+        assertEquals(1.0, masked.score(), 1e-4);
+        assertNull(unmasked, "Without the mask the white surround should not match the noise");
+        assertEquals(masked, masking.matchEach(scene, area, List.of(noise(24, 24, 21), icon), 0.95)[1]);
+        assertEquals(List.of(masked), masking.matchAll(scene, area, icon, 0.95, 3));
+    }
+
+    @Test
+    public void testMaskIndexesOpaqueRuns() {
+        BufferedImage image = new BufferedImage(5, 2, BufferedImage.TYPE_INT_ARGB);
+        int[] alphas = {0xFF, 0xFF, 0x00, 0xFF, 0x00, 0x00, 0x7F, 0x80, 0xFF, 0xFF};
+        for (int i = 0; i < alphas.length; i++) {
+            image.setRGB(i % 5, i / 5, alphas[i] << 24 | 0x404040 * (i % 3));
+        }
+
+        PreparedTemplate prepared = new PreparedTemplate(image, true);
+
+        assertTrue(prepared.isMasked());
+        assertEquals(6, prepared.opaque);
+        assertArrayEquals(new int[] {0, 2, 3}, prepared.runStarts);
+        assertArrayEquals(new int[] {0, 3, 2}, prepared.runXs);
+        assertArrayEquals(new int[] {2, 1, 3}, prepared.runLengths);
+        assertEquals(0f, prepared.values[2], "Transparent pixels should not contribute");
+        assertFalse(new PreparedTemplate(image, false).isMasked());
+        assertFalse(new PreparedTemplate(noise(5, 2, 22), true).isMasked(), "An opaque image is not masked");
+    }
+
+    @Test
+    public void testKernelsAgree() {
+        float[] template = {1.5f, -2f, 0.25f, 3f, -1f};
+        float[] scene = new float[64];
+        Random random = new Random(8);
+        for (int i = 0; i < scene.length; i++) {
+            scene[i] = random.nextInt(256);
+        }
+
+        float[] scalar = new float[40];
+        float[] selected = new float[40];
+        RowKernels.scalar().correlateRow(template, 0, template.length, scene, 3, scalar, 37);
+        RowKernels.select(RowKernels.AUTO).correlateRow(template, 0, template.length, scene, 3, selected, 37);
+
+        for (int k = 0; k < 37; k++) {
+            assertEquals(scalar[k], selected[k], 1e-3, "Kernels should agree at position " + k);
+        }
+        assertEquals(0f, selected[37], "Positions past the count should be untouched");
+    }
+
+    /**
+     * Reference NCC on luminance, scoring every window in double precision.
+     *
+     * @return x, y and score of the best window
+     */
+    private static double[] exhaustiveBest(BufferedImage scene, BufferedImage template) {
+        int tw = template.getWidth();
+        int th = template.getHeight();
+        int n = tw * th;
+        double[] t = new double[n];
+        double tMean = 0;
+        for (int i = 0; i < n; i++) {
+            t[i] = GrayImages.luminance(template.getRGB(i % tw, i / tw));
+            tMean += t[i] / n;
+        }
+        double[] best = {0, 0, -2};
+        for (int y = 0; y + th <= scene.getHeight(); y++) {
+            for (int x = 0; x + tw <= scene.getWidth(); x++) {
+                double wMean = 0;
+                for (int i = 0; i < n; i++) {
+                    wMean += GrayImages.luminance(scene.getRGB(x + i % tw, y + i / tw)) / (double) n;
+                }
+                double cross = 0;
+                double tVar = 0;
+                double wVar = 0;
+                for (int i = 0; i < n; i++) {
+                    double w = GrayImages.luminance(scene.getRGB(x + i % tw, y + i / tw)) - wMean;
+                    cross += (t[i] - tMean) * w;
+                    tVar += (t[i] - tMean) * (t[i] - tMean);
+                    wVar += w * w;
+                }
+                double score = cross / Math.sqrt(tVar * wVar);
+                if (score > best[2]) {
+                    best = new double[] {x, y, score};
+                }
+            }
+        }
+        return best;
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        copy.getGraphics().drawImage(source, 0, 0, null);
+        return copy;
+    }
+}
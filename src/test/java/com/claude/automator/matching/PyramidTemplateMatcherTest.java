@@ -0,0 +1,98 @@
+package com.claude.automator.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the coarse-to-fine matcher on a synthetic UI-like scene.
+ */
+public class PyramidTemplateMatcherTest {
+
+    private final NccTemplateMatcher ncc = new NccTemplateMatcher();
+    private final PyramidTemplateMatcher pyramid = new PyramidTemplateMatcher(ncc);
+
+    @Test
+    public void testFindsUnalignedTemplateInQuarterScreen() {
+        BufferedImage scene = blocks(960, 540, 1);
+        Rectangle area = new Rectangle(0, 0, 960, 540);
+
+        int[][] positions = {{333, 401}, {17, 9}, {901, 500}, {480, 270}};
+        for (int[] position : positions) {
+            BufferedImage template = copy(scene.getSubimage(position[0], position[1], 48, 24));
+
+            TemplateMatch match = pyramid.match(scene, area, template, 0.9);
+
+            assertNotNull(match, "Template at " + position[0] + "," + position[1] + " should be found");
+            assertEquals(position[0], match.x());
+            assertEquals(position[1], match.y());
+            assertEquals(1.0, match.score(), 1e-4);
+        }
+    }
+
+    @Test
+    public void testAgreesWithFullResolutionSearch() {
+        BufferedImage scene = blocks(400, 300, 2);
+        BufferedImage template = copy(scene.getSubimage(123, 77, 40, 30));
+        Rectangle area = new Rectangle(50, 20, 300, 250);
+
+        TemplateMatch full = ncc.match(scene, area, template, 0.9);
+        TemplateMatch coarseToFine = pyramid.match(scene, area, template, 0.9);
+
+        assertNotNull(full);
+        assertEquals(full.bounds(), coarseToFine.bounds());
+    }
+
+    @Test
+    public void testSmallAreaFallsBackToFullResolution() {
+        BufferedImage scene = blocks(200, 200, 3);
+        BufferedImage template = copy(scene.getSubimage(60, 60, 25, 25));
+
+        TemplateMatch match = pyramid.match(scene, new Rectangle(50, 50, 58, 80), template, 0.9);
+
+        assertNotNull(match);
+        assertEquals(new Rectangle(60, 60, 25, 25), match.bounds());
+    }
+
+    @Test
+    public void testNoMatchForAbsentTemplate() {
+        BufferedImage scene = blocks(960, 540, 4);
+        BufferedImage template = copy(blocks(48, 24, 5));
+
+        assertNull(pyramid.match(scene, new Rectangle(0, 0, 960, 540), template, 0.95));
+    }
+
+    /**
+     * Overlapping flat rectangles with a little noise, closer to a screen than
+     * pure noise, which has no structure at coarse levels.
+     */
+    private static BufferedImage blocks(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < width * height / 400; i++) {
+            g.setColor(new Color(random.nextInt(0x1000000)));
+            g.fillRect(random.nextInt(width), random.nextInt(height), 4 + random.nextInt(40), 4 + random.nextInt(20));
+        }
+        g.dispose();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y) ^ random.nextInt(4);
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.getGraphics().drawImage(source, 0, 0, null);
+        return copy;
+    }
+}
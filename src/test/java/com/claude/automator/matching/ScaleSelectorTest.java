@@ -0,0 +1,94 @@
+package com.claude.automator.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ScaleSelector and the scale range of StateImageMatcher.
+ */
+public class ScaleSelectorTest {
+
+    private static final List<String> ICON_PATTERNS = List.of(
+            "working/claude-icon-1", "working/claude-icon-2", "working/claude-icon-3", "working/claude-icon-4",
+            "working/claude-icon-1-80", "working/claude-icon-2-80", "working/claude-icon-3-80",
+            "working/claude-icon-4-80");
+
+    private static final int[] SCALES = StateImageMatcher.scaleRange(0.75, 1.25, 0.05);
+
+    @Test
+    public void testScaleRange() {
+        assertArrayEquals(new int[] {75, 80, 85, 90, 95, 100, 105, 110, 115, 120, 125}, SCALES);
+        assertArrayEquals(new int[] {80, 90, 100}, StateImageMatcher.scaleRange(0.8, 0.9, 0.1),
+                "100% should always be part of the range");
+    }
+
+    @Test
+    public void testSweepStartsAtFullSize() {
+        ScaleSelector selector = new ScaleSelector(SCALES, 20, ICON_PATTERNS);
+        int[] sweep = selector.scalesFor("1920x1080");
+        assertEquals(SCALES.length, sweep.length);
+        assertArrayEquals(new int[] {100, 95, 105, 90, 110}, java.util.Arrays.copyOf(sweep, 5));
+    }
+
+    @Test
+    public void testPrescaledCopiesAreSkipped() {
+        ScaleSelector selector = new ScaleSelector(SCALES, 20, ICON_PATTERNS);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(selector.isScaledCopy(i), "Source pattern " + i + " should be searched");
+        }
+        for (int i = 4; i < 8; i++) {
+            assertTrue(selector.isScaledCopy(i), "Copy " + ICON_PATTERNS.get(i) + " should be skipped");
+        }
+
+        // A numeric suffix without a matching source is a pattern of its own
+        ScaleSelector standalone = new ScaleSelector(SCALES, 20, List.of("prompt/windows-80"));
+        assertFalse(standalone.isScaledCopy(0));
+    }
+
+    @Test
+    public void testWinningScaleIsRememberedPerDisplay() {
+        ScaleSelector selector = new ScaleSelector(SCALES, 20, ICON_PATTERNS);
+        selector.recordHit("1536x864", 80);
+
+        assertArrayEquals(new int[] {80}, selector.scalesFor("1536x864"));
+        assertEquals(SCALES.length, selector.scalesFor("1920x1080").length,
+                "Another display should still search the whole range");
+    }
+
+    @Test
+    public void testRescanAfterConsecutiveMisses() {
+        ScaleSelector selector = new ScaleSelector(SCALES, 3, ICON_PATTERNS);
+        selector.recordHit("1536x864", 80);
+
+        selector.recordMiss("1536x864");
+        selector.recordMiss("1536x864");
+        selector.recordHit("1536x864", 80);
+        selector.recordMiss("1536x864");
+        selector.recordMiss("1536x864");
+        assertEquals(80, selector.getWinningScale("1536x864"), "A hit should reset the miss count");
+
+        selector.recordMiss("1536x864");
+        assertNull(selector.getWinningScale("1536x864"));
+        assertEquals(SCALES.length, selector.scalesFor("1536x864").length);
+    }
+
+    @Test
+    public void testStateChangeRestartsMissCount() {
+        ScaleSelector selector = new ScaleSelector(SCALES, 3, ICON_PATTERNS);
+        selector.recordHit("1536x864", 80);
+
+        // Two expected vanishes, each followed by a state change
+        for (int visit = 0; visit < 2; visit++) {
+            selector.recordMiss("1536x864");
+            selector.recordMiss("1536x864");
+            selector.resetMisses();
+        }
+
+        assertEquals(80, selector.getWinningScale("1536x864"),
+                "Misses of separate state visits should not add up to a rescan");
+        assertArrayEquals(new int[] {80}, selector.scalesFor("1536x864"));
+    }
+}
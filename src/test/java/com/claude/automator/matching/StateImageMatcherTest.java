@@ -0,0 +1,117 @@
+package com.claude.automator.matching;
+
+import com.claude.automator.capture.CapturedFrame;
+import io.github.jspinak.brobot.model.element.Pattern;
+import io.github.jspinak.brobot.model.match.Match;
+import io.github.jspinak.brobot.model.state.StateImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the parallel search of a multi-pattern StateImage.
+ */
+public class StateImageMatcherTest {
+
+    private final BufferedImage first = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+    private final BufferedImage second = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+    // Released once the second pattern has matched
+    private final CountDownLatch secondMatched = new CountDownLatch(1);
+
+    private final TemplateMatcher gated = new TemplateMatcher() {
+        @Override
+        public String getName() {
+            return "gated";
+        }
+
+        @Override
+        public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template, double minScore) {
+            if (template == second) {
+                secondMatched.countDown();
+                return new TemplateMatch(50, 20, 10, 10, 0.95);
+            }
+            try {
+                // The first pattern finishes only after the second has
+                secondMatched.await(5, TimeUnit.SECONDS);
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TemplateMatch(10, 20, 10, 10, 0.9);
+        }
+    };
+
+    private StateImageMatcher matcher;
+
+    @AfterEach
+    public void shutdown() {
+        if (matcher != null) {
+            matcher.shutdownMatchPool();
+        }
+    }
+
+    @Test
+    public void testParallelSearchPrefersBestRankedHitOverFirstFinished() {
+        matcher = parallelMatcher();
+        StateImage image = new StateImage.Builder()
+                .setName("ClaudeIcon")
+                .addPattern(pattern("claude-icon-1", first))
+                .addPattern(pattern("claude-icon-2", second))
+                .build();
+        CapturedFrame frame = new CapturedFrame(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), 1);
+
+        Optional<Match> match = matcher.findFirst(image, frame, 0.8);
+
+        assertTrue(match.isPresent());
+        assertEquals(10, match.get().getRegion().x(),
+                "The first pattern in predicted order should win although the second matched earlier");
+        assertEquals(0, secondMatched.getCount(), "Both patterns should have been searched");
+        assertEquals(10, image.getLastMatchesFound().get(0).getRegion().x());
+    }
+
+    @Test
+    public void testAutoMultiScaleSkipsSikuliImages() {
+        TemplateMatcherRegistry registry = new TemplateMatcherRegistry(List.of(new SikuliTemplateMatcher(), gated));
+        ReflectionTestUtils.setField(registry, "defaultBackendName", SikuliTemplateMatcher.NAME);
+        ReflectionTestUtils.setField(registry, "overrideDefinitions", List.of("ClaudeIcon:gated"));
+        registry.initBackends();
+        matcher = new StateImageMatcher(registry);
+        ReflectionTestUtils.setField(matcher, "multiScale", "auto");
+
+        StateImage icon = new StateImage.Builder().setName("ClaudeIcon").addPattern(pattern("claude-icon-1", first))
+                .build();
+        StateImage prompt = new StateImage.Builder().setName("ClaudePrompt").addPattern(pattern("windows", second))
+                .build();
+
+        assertNotNull(matcher.scaleSelectorFor(icon), "A pure-Java backend should search the scale range");
+        assertNull(matcher.scaleSelectorFor(prompt), "SikuliX images should only be searched at 100%");
+    }
+
+    private StateImageMatcher parallelMatcher() {
+        TemplateMatcherRegistry registry = new TemplateMatcherRegistry(List.of(gated));
+        ReflectionTestUtils.setField(registry, "defaultBackendName", "gated");
+        ReflectionTestUtils.setField(registry, "overrideDefinitions", List.of());
+        registry.initBackends();
+
+        StateImageMatcher parallel = new StateImageMatcher(registry);
+        ReflectionTestUtils.setField(parallel, "parallel", true);
+        ReflectionTestUtils.setField(parallel, "parallelThreads", 2);
+        parallel.initMatchPool();
+        return parallel;
+    }
+
+    private static Pattern pattern(String name, BufferedImage image) {
+        Pattern pattern = new Pattern(image);
+        pattern.setName(name);
+        return pattern;
+    }
+}
@@ -0,0 +1,137 @@
+package com.claude.automator.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for luminance detection with colour verification.
+ */
+public class TwoStageTemplateMatcherTest {
+
+    private final NccTemplateMatcher ncc = new NccTemplateMatcher();
+    private final TwoStageTemplateMatcher twoStage = new TwoStageTemplateMatcher(ncc);
+
+    @Test
+    public void testFindsTemplateWithColorScore() {
+        BufferedImage scene = noise(160, 100, 1);
+        BufferedImage template = copy(scene.getSubimage(97, 52, 25, 25));
+
+        TemplateMatch match = twoStage.match(scene, new Rectangle(0, 0, 160, 100), template, 0.9);
+
+        assertNotNull(match);
+        assertEquals(new Rectangle(97, 52, 25, 25), match.bounds());
+        assertEquals(1.0, match.score(), 1e-4);
+    }
+
+    @Test
+    public void testRejectsSameLuminanceInOtherColors() {
+        BufferedImage scene = noise(160, 100, 2);
+        BufferedImage template = noise(25, 25, 3);
+        // Same luminance everywhere, but grey: indistinguishable for the detection stage
+        BufferedImage grey = new BufferedImage(25, 25, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 25; y++) {
+            for (int x = 0; x < 25; x++) {
+                int gray = GrayImages.luminance(template.getRGB(x, y));
+                grey.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        scene.getGraphics().drawImage(grey, 10, 10, null);
+        Rectangle area = new Rectangle(0, 0, 160, 100);
+
+        TemplateMatch detected = ncc.match(scene, area, template, 0.9);
+        assertNotNull(detected, "Luminance alone should accept the grey copy");
+        assertEquals(10, detected.x());
+        assertNull(twoStage.match(scene, area, template, 0.9), "The colour check should reject the grey copy");
+
+        scene.getGraphics().drawImage(template, 120, 60, null);
+        TemplateMatch match = twoStage.match(scene, area, template, 0.9);
+        assertNotNull(match);
+        assertEquals(new Rectangle(120, 60, 25, 25), match.bounds(), "The coloured copy should win");
+        assertEquals(List.of(match), twoStage.matchAll(scene, area, template, 0.9, 5));
+    }
+
+    @Test
+    public void testRejectedCandidateCostsNoSecondLuminancePass() {
+        AtomicInteger passes = new AtomicInteger();
+        NccTemplateMatcher counting = new NccTemplateMatcher() {
+            @Override
+            public TemplateMatch match(BufferedImage scene, Rectangle area, BufferedImage template,
+                                       double minScore) {
+                passes.incrementAndGet();
+                return super.match(scene, area, template, minScore);
+            }
+
+            @Override
+            public List<TemplateMatch> matchAll(BufferedImage scene, Rectangle area, BufferedImage template,
+                                                double minScore, int maxMatches) {
+                passes.incrementAndGet();
+                return super.matchAll(scene, area, template, minScore, maxMatches);
+            }
+        };
+        BufferedImage scene = noise(160, 100, 4);
+        BufferedImage template = noise(25, 25, 5);
+        BufferedImage grey = new BufferedImage(25, 25, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 25; y++) {
+            for (int x = 0; x < 25; x++) {
+                int gray = GrayImages.luminance(template.getRGB(x, y));
+                grey.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        scene.getGraphics().drawImage(grey, 10, 10, null);
+        scene.getGraphics().drawImage(template, 120, 60, null);
+
+        TemplateMatch match = new TwoStageTemplateMatcher(counting)
+                .match(scene, new Rectangle(0, 0, 160, 100), template, 0.9);
+
+        assertNotNull(match);
+        assertEquals(new Rectangle(120, 60, 25, 25), match.bounds());
+        assertEquals(1, passes.get(), "All candidates should come from one luminance pass");
+    }
+
+    @Test
+    public void testDetectThresholdStaysAtOrAboveZero() {
+        List<Double> thresholds = new ArrayList<>();
+        NccTemplateMatcher recording = new NccTemplateMatcher() {
+            @Override
+            public List<TemplateMatch> matchAll(BufferedImage scene, Rectangle area, BufferedImage template,
+                                                double minScore, int maxMatches) {
+                thresholds.add(minScore);
+                return super.matchAll(scene, area, template, minScore, maxMatches);
+            }
+        };
+        BufferedImage scene = noise(160, 100, 6);
+        BufferedImage template = copy(scene.getSubimage(40, 30, 25, 25));
+        TwoStageTemplateMatcher matcher = new TwoStageTemplateMatcher(recording);
+        Rectangle area = new Rectangle(0, 0, 160, 100);
+
+        assertNotNull(matcher.match(scene, area, template, 0.05));
+        assertFalse(matcher.matchAll(scene, area, template, 0.9, 2).isEmpty());
+
+        assertEquals(List.of(0.0, 0.8), thresholds.stream().map(t -> Math.round(t * 100) / 100.0).toList());
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        copy.getGraphics().drawImage(source, 0, 0, null);
+        return copy;
+    }
+}